@@ -0,0 +1,311 @@
+package io.jmix.data.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates an {@code io.jmix.data.metadata.EntityMetadata} implementation for every JPA entity. The generated class
+ * is placed next to the entity, named {@code <EntityClassName>_JmixMetadata} and accesses the soft delete and
+ * external reference attributes through getters, setters or fields directly instead of reflection.
+ */
+@SupportedAnnotationTypes("javax.persistence.Entity")
+public class EntityMetadataProcessor extends AbstractProcessor {
+
+    static final String METADATA_CLASS_SUFFIX = "_JmixMetadata";
+
+    private static final String DELETED_DATE = "io.jmix.data.config.DeletedDate";
+    private static final String EXTERNAL_REFERENCE = "io.jmix.data.config.ExternalReference";
+    private static final String REGISTRY = "io.jmix.data.metadata.EntityMetadataRegistry";
+    private static final String DESCRIPTOR = "io.jmix.data.metadata.ExternalReferenceDescriptor";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS) {
+                    generate((TypeElement) element);
+                }
+            }
+        }
+        return false;
+    }
+
+    private void generate(TypeElement entity) {
+        Map<String, VariableElement> fields = collectFields(entity);
+
+        VariableElement deletedDate = null;
+        List<VariableElement> externalReferences = new ArrayList<>();
+        for (VariableElement field : fields.values()) {
+            if (findAnnotation(field, DELETED_DATE) != null) {
+                if (deletedDate != null) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                            "Entity should have exactly one deletedBy field", entity);
+                    return;
+                }
+                deletedDate = field;
+            }
+            if (findAnnotation(field, EXTERNAL_REFERENCE) != null) {
+                externalReferences.add(field);
+            }
+        }
+
+        Map<String, VariableElement> accessed = new LinkedHashMap<>();
+        if (deletedDate != null) {
+            accessed.put(deletedDate.getSimpleName().toString(), deletedDate);
+        }
+        for (VariableElement reference : externalReferences) {
+            accessed.put(reference.getSimpleName().toString(), reference);
+            String keyAttribute = getAnnotationValue(findAnnotation(reference, EXTERNAL_REFERENCE), "keyAttribute");
+            VariableElement keyField = fields.get(keyAttribute);
+            if (keyField == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Key attribute " + keyAttribute + " of the external reference is not found", reference);
+                return;
+            }
+            accessed.put(keyAttribute, keyField);
+        }
+
+        try {
+            write(entity, deletedDate, externalReferences, accessed);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot generate metadata class: " + e.getMessage(), entity);
+        }
+    }
+
+    private void write(TypeElement entity, VariableElement deletedDate, List<VariableElement> externalReferences,
+                       Map<String, VariableElement> accessed) throws IOException {
+        Elements elements = processingEnv.getElementUtils();
+        String packageName = elements.getPackageOf(entity).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(entity).toString();
+        String className = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + METADATA_CLASS_SUFFIX;
+        String entityName = processingEnv.getTypeUtils().erasure(entity.asType()).toString();
+
+        JavaFileObject file = processingEnv.getFiler()
+                .createSourceFile(packageName.isEmpty() ? className : packageName + "." + className, entity);
+        try (Writer writer = file.openWriter(); PrintWriter out = new PrintWriter(writer)) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * Generated by " + getClass().getName() + ". Do not edit.");
+            out.println(" */");
+            out.println("public final class " + className + " implements io.jmix.data.metadata.EntityMetadata {");
+            out.println();
+            out.println("    private static final java.util.List<" + DESCRIPTOR + "> EXTERNAL_REFERENCES = java.util.Collections.unmodifiableList(java.util.Arrays.asList(");
+            for (int i = 0; i < externalReferences.size(); i++) {
+                VariableElement reference = externalReferences.get(i);
+                AnnotationMirror annotation = findAnnotation(reference, EXTERNAL_REFERENCE);
+                out.println("            new " + DESCRIPTOR + "(" + literal(reference.getSimpleName().toString()) + ", "
+                        + processingEnv.getTypeUtils().erasure(reference.asType()) + ".class, "
+                        + literal(getAnnotationValue(annotation, "keyAttribute")) + ", "
+                        + literal(getAnnotationValue(annotation, "references")) + ")"
+                        + (i < externalReferences.size() - 1 ? "," : ""));
+            }
+            out.println("    ));");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Class<?> getEntityClass() {");
+            out.println("        return " + entityName + ".class;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public String getDeletedDateAttribute() {");
+            out.println("        return " + (deletedDate == null ? "null" : literal(deletedDate.getSimpleName().toString())) + ";");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public java.util.List<" + DESCRIPTOR + "> getExternalReferences() {");
+            out.println("        return EXTERNAL_REFERENCES;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Object getValue(Object entity, String attribute) {");
+            out.println("        " + entityName + " e = (" + entityName + ") entity;");
+            out.println("        switch (attribute) {");
+            for (Map.Entry<String, VariableElement> entry : accessed.entrySet()) {
+                out.println("            case " + literal(entry.getKey()) + ":");
+                out.println("                return " + getterExpression(entity, entry.getValue()) + ";");
+            }
+            out.println("            default:");
+            out.println("                throw new IllegalArgumentException(\"Attribute \" + attribute + \" is not available in generated metadata\");");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void setValue(Object entity, String attribute, Object value) {");
+            out.println("        " + entityName + " e = (" + entityName + ") entity;");
+            out.println("        switch (attribute) {");
+            for (Map.Entry<String, VariableElement> entry : accessed.entrySet()) {
+                out.println("            case " + literal(entry.getKey()) + ":");
+                out.println("                " + setterStatement(entity, entry.getValue()) + ";");
+                out.println("                return;");
+            }
+            out.println("            default:");
+            out.println("                throw new IllegalArgumentException(\"Attribute \" + attribute + \" is not available in generated metadata\");");
+            out.println("        }");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private String getterExpression(TypeElement entity, VariableElement field) {
+        String name = field.getSimpleName().toString();
+        String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (Element member : processingEnv.getElementUtils().getAllMembers(entity)) {
+            if (member.getKind() == ElementKind.METHOD && isAccessible(entity, member)) {
+                ExecutableElement method = (ExecutableElement) member;
+                String methodName = method.getSimpleName().toString();
+                boolean booleanGetter = methodName.equals("is" + capitalized) && method.getReturnType().getKind() == TypeKind.BOOLEAN;
+                if ((methodName.equals("get" + capitalized) || booleanGetter) && method.getParameters().isEmpty()) {
+                    return "e." + methodName + "()";
+                }
+            }
+        }
+        if (isAccessible(entity, field)) {
+            return "e." + name;
+        }
+        return REGISTRY + ".readField(entity, " + literal(name) + ")";
+    }
+
+    private String setterStatement(TypeElement entity, VariableElement field) {
+        Types types = processingEnv.getTypeUtils();
+        String name = field.getSimpleName().toString();
+        String setterName = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        String cast = "(" + boxedTypeName(field.asType()) + ") value";
+        for (Element member : processingEnv.getElementUtils().getAllMembers(entity)) {
+            if (member.getKind() == ElementKind.METHOD && isAccessible(entity, member)) {
+                ExecutableElement method = (ExecutableElement) member;
+                if (method.getSimpleName().contentEquals(setterName) && method.getParameters().size() == 1
+                        && types.isSameType(types.erasure(method.getParameters().get(0).asType()), types.erasure(field.asType()))) {
+                    return "e." + setterName + "(" + cast + ")";
+                }
+            }
+        }
+        if (isAccessible(entity, field) && !field.getModifiers().contains(Modifier.FINAL)) {
+            return "e." + name + " = " + cast;
+        }
+        return REGISTRY + ".writeField(entity, " + literal(name) + ", value)";
+    }
+
+    private boolean isAccessible(TypeElement entity, Element member) {
+        Set<Modifier> modifiers = member.getModifiers();
+        if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        Elements elements = processingEnv.getElementUtils();
+        return elements.getPackageOf(member).equals(elements.getPackageOf(entity));
+    }
+
+    /**
+     * @return Java string literal of the value, annotation values may contain quotes, backslashes and line breaks
+     */
+    static String literal(String value) {
+        StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    literal.append("\\\"");
+                    break;
+                case '\\':
+                    literal.append("\\\\");
+                    break;
+                case '\n':
+                    literal.append("\\n");
+                    break;
+                case '\r':
+                    literal.append("\\r");
+                    break;
+                case '\t':
+                    literal.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c == 0x7f) {
+                        literal.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        literal.append(c);
+                    }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private String boxedTypeName(TypeMirror type) {
+        Types types = processingEnv.getTypeUtils();
+        if (type.getKind().isPrimitive()) {
+            return types.boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        }
+        return types.erasure(type).toString();
+    }
+
+    private Map<String, VariableElement> collectFields(TypeElement entity) {
+        Map<String, VariableElement> fields = new LinkedHashMap<>();
+        TypeElement type = entity;
+        while (type != null) {
+            for (Element member : type.getEnclosedElements()) {
+                if (member.getKind() == ElementKind.FIELD && !member.getModifiers().contains(Modifier.STATIC)) {
+                    fields.putIfAbsent(member.getSimpleName().toString(), (VariableElement) member);
+                }
+            }
+            TypeMirror superclass = type.getSuperclass();
+            type = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return fields;
+    }
+
+    private AnnotationMirror findAnnotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private String getAnnotationValue(AnnotationMirror annotation, String name) {
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+                processingEnv.getElementUtils().getElementValuesWithDefaults(annotation);
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return String.valueOf(entry.getValue().getValue());
+            }
+        }
+        throw new IllegalArgumentException("Annotation " + annotation + " has no attribute " + name);
+    }
+}
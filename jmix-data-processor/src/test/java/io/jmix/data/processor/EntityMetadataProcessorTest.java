@@ -0,0 +1,152 @@
+package io.jmix.data.processor;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import io.jmix.data.metadata.EntityMetadata;
+import io.jmix.data.metadata.ExternalReferenceDescriptor;
+import org.junit.Test;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class EntityMetadataProcessorTest {
+
+    @Test
+    public void generatesMetadataAccessingAttributes() throws Exception {
+        Compilation compilation = compile(JavaFileObjects.forSourceLines("test.Book",
+                "package test;",
+                "",
+                "@javax.persistence.Entity",
+                "public class Book {",
+                "    @javax.persistence.Id",
+                "    private Long id;",
+                "    @io.jmix.data.config.DeletedDate",
+                "    java.time.LocalDate deletedDate;",
+                "    @io.jmix.data.config.ExternalReference(keyAttribute = \"authorId\", references = \"AUTHOR\\\"S \\\\ ID\\n\")",
+                "    private String author;",
+                "    private Long authorId;",
+                "    public Long getAuthorId() { return authorId; }",
+                "    public void setAuthorId(Long authorId) { this.authorId = authorId; }",
+                "}"));
+        assertThat(compilation).succeeded();
+
+        ClassLoader classLoader = new GeneratedClassLoader(compilation);
+        EntityMetadata metadata = (EntityMetadata) classLoader.loadClass("test.Book" + EntityMetadataProcessor.METADATA_CLASS_SUFFIX)
+                .getDeclaredConstructor().newInstance();
+        Object book = classLoader.loadClass("test.Book").getDeclaredConstructor().newInstance();
+
+        assertEquals("deletedDate", metadata.getDeletedDateAttribute());
+        List<ExternalReferenceDescriptor> references = metadata.getExternalReferences();
+        assertEquals(1, references.size());
+        assertEquals("author", references.get(0).getAttribute());
+        assertEquals(String.class, references.get(0).getType());
+        assertEquals("authorId", references.get(0).getKeyAttribute());
+        assertEquals("AUTHOR\"S \\ ID\n", references.get(0).getReferences());
+
+        metadata.setValue(book, "deletedDate", LocalDate.of(2019, 7, 1));
+        metadata.setValue(book, "authorId", 7L);
+        metadata.setValue(book, "author", "Tolstoy");
+        assertEquals(LocalDate.of(2019, 7, 1), metadata.getValue(book, "deletedDate"));
+        assertEquals(7L, metadata.getValue(book, "authorId"));
+        assertEquals("Tolstoy", metadata.getValue(book, "author"));
+    }
+
+    @Test
+    public void generatesMetadataWithoutSoftDelete() throws Exception {
+        Compilation compilation = compile(JavaFileObjects.forSourceLines("test.Tag",
+                "package test;",
+                "",
+                "@javax.persistence.Entity",
+                "public class Tag {",
+                "    @javax.persistence.Id",
+                "    private Long id;",
+                "}"));
+        assertThat(compilation).succeeded();
+
+        EntityMetadata metadata = (EntityMetadata) new GeneratedClassLoader(compilation)
+                .loadClass("test.Tag" + EntityMetadataProcessor.METADATA_CLASS_SUFFIX)
+                .getDeclaredConstructor().newInstance();
+        assertNull(metadata.getDeletedDateAttribute());
+        assertEquals(0, metadata.getExternalReferences().size());
+    }
+
+    @Test
+    public void failsOnSeveralDeletedDateFields() {
+        Compilation compilation = compile(JavaFileObjects.forSourceLines("test.Note",
+                "package test;",
+                "",
+                "@javax.persistence.Entity",
+                "public class Note {",
+                "    @javax.persistence.Id",
+                "    private Long id;",
+                "    @io.jmix.data.config.DeletedDate",
+                "    private java.time.LocalDate deletedDate;",
+                "    @io.jmix.data.config.DeletedDate",
+                "    private java.time.LocalDate removedDate;",
+                "}"));
+        assertThat(compilation).hadErrorContaining("exactly one");
+    }
+
+    @Test
+    public void failsOnMissingKeyAttribute() {
+        Compilation compilation = compile(JavaFileObjects.forSourceLines("test.Order",
+                "package test;",
+                "",
+                "@javax.persistence.Entity",
+                "public class Order {",
+                "    @javax.persistence.Id",
+                "    private Long id;",
+                "    @io.jmix.data.config.ExternalReference(keyAttribute = \"customerId\")",
+                "    private String customer;",
+                "}"));
+        assertThat(compilation).hadErrorContaining("Key attribute customerId");
+    }
+
+    private static Compilation compile(JavaFileObject source) {
+        return javac().withProcessors(new EntityMetadataProcessor()).compile(source);
+    }
+
+    /**
+     * Loads the classes of the compilation, other classes are loaded by the class loader of the test.
+     */
+    private static class GeneratedClassLoader extends ClassLoader {
+
+        private final Compilation compilation;
+
+        GeneratedClassLoader(Compilation compilation) {
+            super(EntityMetadataProcessorTest.class.getClassLoader());
+            this.compilation = compilation;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            JavaFileObject file = compilation.generatedFile(StandardLocation.CLASS_OUTPUT, name.replace('.', '/') + ".class")
+                    .orElseThrow(() -> new ClassNotFoundException(name));
+            try (InputStream in = file.openInputStream()) {
+                byte[] bytes = readAll(in);
+                return defineClass(name, bytes, 0, bytes.length);
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+
+        private static byte[] readAll(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
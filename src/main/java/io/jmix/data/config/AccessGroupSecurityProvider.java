@@ -1,6 +1,10 @@
 package io.jmix.data.config;
 
+import org.springframework.lang.Nullable;
+
+import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
 import java.util.Map;
 
 public interface AccessGroupSecurityProvider {
@@ -14,6 +18,30 @@ public interface AccessGroupSecurityProvider {
 
     Predicate getDeletePredicate(Class<?> entity);
 
+    /**
+     * Restriction of the rows of an update statement. Override to build the predicate on the root of the statement,
+     * returns the predicate for the entity class by default.
+     *
+     * @param root root of the update statement, its java type is the entity class
+     * @return restriction of updated rows or {@literal null}
+     */
+    @Nullable
+    default Predicate getUpdatePredicate(Root<?> root, CriteriaBuilder builder) {
+        return getUpdatePredicate(root.getJavaType());
+    }
+
+    /**
+     * Restriction of the rows of a soft delete statement. Override to build the predicate on the root of the
+     * statement, returns the predicate for the entity class by default.
+     *
+     * @param root root of the update or delete statement, its java type is the entity class
+     * @return restriction of deleted rows or {@literal null}
+     */
+    @Nullable
+    default Predicate getDeletePredicate(Root<?> root, CriteriaBuilder builder) {
+        return getDeletePredicate(root.getJavaType());
+    }
+
     Map<String, Object> getSessionAttributes(); //
 
 }
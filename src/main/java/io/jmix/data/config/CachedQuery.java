@@ -0,0 +1,38 @@
+package io.jmix.data.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caches results of a repository query method per parameter values. Cached results of the method's entity type are
+ * invalidated when entities of this type are saved, deleted, purged or restored through a Jmix repository, or when
+ * soft delete of the repository is switched. Changes made by other means, including changes of joined entities,
+ * become visible only after {@link #ttlSeconds()}.
+ * <p>
+ * The cache is bypassed in transactions and while an EntityManager is bound to the thread, for example by open
+ * EntityManager in view, so only detached entities are cached. For the same reason, the cache does not apply to
+ * methods returning {@code CompletableFuture}, they run with an EntityManager bound to the executor thread. Cached
+ * entities are shared between callers, so they must not be modified.
+ * <p>
+ * Requires a {@link io.jmix.data.query.QueryResultCaches} bean in the application context.
+ *
+ * @see io.jmix.data.query.QueryResultCaches
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CachedQuery {
+
+    /**
+     * Maximum number of cached results, least recently used results are evicted first.
+     */
+    int maxSize() default 1000;
+
+    /**
+     * Time to live of cached results.
+     */
+    int ttlSeconds() default 60;
+}
@@ -0,0 +1,22 @@
+package io.jmix.data.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Soft deletes the associated entities together with the owning entity. The annotated attribute must be the
+ * inverse side ({@code mappedBy}) of a {@code @OneToMany} or {@code @OneToOne} association to an entity with a
+ * {@link DeletedDate} attribute.
+ * <p>
+ * Children are marked with one bulk update per association and chunk of parent ids, without loading them, so
+ * instances already loaded into the persistence context are not refreshed. Associations marked on the children
+ * are followed level by level.
+ */
+@Documented
+@Target({ElementType.FIELD, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CascadeSoftDelete {
+}
@@ -0,0 +1,62 @@
+package io.jmix.data.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Defines how the total number of elements is obtained for a repository query method returning a
+ * {@link org.springframework.data.domain.Page}.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CountStrategy {
+
+    Mode value() default Mode.EXACT;
+
+    /**
+     * Time to live of cached counts for {@link Mode#CACHED}.
+     */
+    int ttlSeconds() default 60;
+
+    /**
+     * For {@link Mode#ESTIMATED}, the estimated number of rows above which the estimate is returned instead of the
+     * exact count.
+     */
+    long estimateThreshold() default 100_000;
+
+    /**
+     * Whether the count query runs in parallel with the content query, in its own {@code EntityManager} on the
+     * {@link io.jmix.data.query.QueryBackgroundExecutor}. Applies only when the method is invoked outside of a
+     * transaction.
+     */
+    boolean parallel() default false;
+
+    enum Mode {
+
+        /**
+         * Executes the count query unless the total follows from a partially filled page.
+         */
+        EXACT,
+
+        /**
+         * Never executes the count query. One more row than the page size is read and the total is the number of
+         * elements up to the end of the page, plus one if there are more rows.
+         */
+        SKIP,
+
+        /**
+         * Caches exact counts per method parameters, except paging and sorting, for {@link #ttlSeconds()}.
+         */
+        CACHED,
+
+        /**
+         * Returns the table row estimate of {@link io.jmix.data.query.CountEstimator} if it exceeds
+         * {@link #estimateThreshold()}, the exact count otherwise. The estimate ignores query restrictions.
+         */
+        ESTIMATED
+    }
+}
@@ -0,0 +1,122 @@
+package io.jmix.data.config;
+
+import org.springframework.core.env.Environment;
+import org.springframework.util.Assert;
+
+/**
+ * Typed access to the {@code jmix.data.*} properties. Defaults are declared in {@code jmix-data.properties}.
+ */
+public class JmixDataProperties {
+
+    public static final String QUERY_BOOTSTRAP_MODE = "jmix.data.query.bootstrap-mode";
+    public static final String QUERY_WARM_UP_ENABLED = "jmix.data.query.warm-up.enabled";
+    public static final String PURGE_ENABLED = "jmix.data.purge.enabled";
+    public static final String PURGE_RETENTION_DAYS = "jmix.data.purge.retention-days";
+    public static final String PURGE_CHUNK_SIZE = "jmix.data.purge.chunk-size";
+    public static final String PURGE_MAX_ROWS_PER_SECOND = "jmix.data.purge.max-rows-per-second";
+    public static final String PURGE_INTERVAL_MINUTES = "jmix.data.purge.interval-minutes";
+    public static final String ARCHIVE_INTERVAL_SECONDS = "jmix.data.archive.interval-seconds";
+    public static final String ARCHIVE_CHUNK_SIZE = "jmix.data.archive.chunk-size";
+    public static final String SCHEMA_ADVISOR_ENABLED = "jmix.data.schema-advisor.enabled";
+    public static final String REPLICA_ENTITY_MANAGER_FACTORY = "jmix.data.replica.entity-manager-factory";
+    public static final String REPLICA_TRANSACTION_MANAGER = "jmix.data.replica.transaction-manager";
+    public static final String REPLICA_MAX_LAG_MILLIS = "jmix.data.replica.max-lag-millis";
+    public static final String ASYNC_EXECUTOR = "jmix.data.async.executor";
+    public static final String ASYNC_POOL_SIZE = "jmix.data.async.pool-size";
+    public static final String ASYNC_QUEUE_CAPACITY = "jmix.data.async.queue-capacity";
+    public static final String ASYNC_VIRTUAL_THREADS = "jmix.data.async.virtual-threads";
+
+    private final Environment environment;
+
+    public JmixDataProperties(Environment environment) {
+        Assert.notNull(environment, "Environment must not be null!");
+        this.environment = environment;
+    }
+
+    public QueryBootstrapMode getQueryBootstrapMode() {
+        return environment.getProperty(QUERY_BOOTSTRAP_MODE, QueryBootstrapMode.class, QueryBootstrapMode.EAGER);
+    }
+
+    public boolean isQueryWarmUpEnabled() {
+        return environment.getProperty(QUERY_WARM_UP_ENABLED, Boolean.class, false);
+    }
+
+    public boolean isPurgeEnabled() {
+        return environment.getProperty(PURGE_ENABLED, Boolean.class, false);
+    }
+
+    public int getPurgeRetentionDays() {
+        return environment.getProperty(PURGE_RETENTION_DAYS, Integer.class, 30);
+    }
+
+    public int getPurgeChunkSize() {
+        return environment.getProperty(PURGE_CHUNK_SIZE, Integer.class, 500);
+    }
+
+    /**
+     * @return maximum number of purged rows per second, zero or negative value means no limit
+     */
+    public int getPurgeMaxRowsPerSecond() {
+        return environment.getProperty(PURGE_MAX_ROWS_PER_SECOND, Integer.class, 1000);
+    }
+
+    public int getPurgeIntervalMinutes() {
+        return environment.getProperty(PURGE_INTERVAL_MINUTES, Integer.class, 60);
+    }
+
+    public int getArchiveIntervalSeconds() {
+        return environment.getProperty(ARCHIVE_INTERVAL_SECONDS, Integer.class, 60);
+    }
+
+    public int getArchiveChunkSize() {
+        return environment.getProperty(ARCHIVE_CHUNK_SIZE, Integer.class, 500);
+    }
+
+    public boolean isSchemaAdvisorEnabled() {
+        return environment.getProperty(SCHEMA_ADVISOR_ENABLED, Boolean.class, false);
+    }
+
+    /**
+     * @return bean name of the read replica {@code EntityManagerFactory}, empty if reads are not routed to a replica
+     */
+    public String getReplicaEntityManagerFactory() {
+        return environment.getProperty(REPLICA_ENTITY_MANAGER_FACTORY, "");
+    }
+
+    /**
+     * @return bean name of the transaction manager of routed transactional reads, empty to use a
+     * {@code JpaTransactionManager} of the replica
+     */
+    public String getReplicaTransactionManager() {
+        return environment.getProperty(REPLICA_TRANSACTION_MANAGER, "");
+    }
+
+    public long getReplicaMaxLagMillis() {
+        return environment.getProperty(REPLICA_MAX_LAG_MILLIS, Long.class, 1000L);
+    }
+
+    /**
+     * @return bean name of the {@code Executor} of asynchronous repository methods, empty to use the built-in pool
+     */
+    public String getAsyncExecutor() {
+        return environment.getProperty(ASYNC_EXECUTOR, "");
+    }
+
+    /**
+     * @return number of threads of the built-in pool, or the maximum number of concurrent tasks on virtual threads
+     */
+    public int getAsyncPoolSize() {
+        return environment.getProperty(ASYNC_POOL_SIZE, Integer.class, 16);
+    }
+
+    /**
+     * @return number of tasks waiting for a thread of the built-in pool or for a permit on virtual threads
+     */
+    public int getAsyncQueueCapacity() {
+        return environment.getProperty(ASYNC_QUEUE_CAPACITY, Integer.class, 1000);
+    }
+
+    public boolean isAsyncVirtualThreads() {
+        return environment.getProperty(ASYNC_VIRTUAL_THREADS, Boolean.class, false);
+    }
+}
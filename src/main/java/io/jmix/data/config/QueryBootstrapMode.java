@@ -0,0 +1,22 @@
+package io.jmix.data.config;
+
+/**
+ * Defines when repository query methods are parsed and validated.
+ */
+public enum QueryBootstrapMode {
+
+    /**
+     * All queries are created while the repository is being initialized (default Spring Data behaviour).
+     */
+    EAGER,
+
+    /**
+     * Queries are created on the first invocation of a repository method.
+     */
+    LAZY,
+
+    /**
+     * Queries are created on the first invocation or by a background warm-up task, whichever happens first.
+     */
+    BACKGROUND
+}
@@ -0,0 +1,60 @@
+package io.jmix.data.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits executions of repository query methods. On a repository interface, the limits apply to each of its query
+ * methods not annotated themselves, and {@link #maxConcurrent()} is shared by these methods. CRUD methods are not
+ * limited.
+ * <p>
+ * Requires a {@link io.jmix.data.query.QueryLimitRegistry} bean in the application context.
+ *
+ * @see io.jmix.data.query.QueryLimitRegistry
+ */
+@Documented
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryLimits {
+
+    /**
+     * Query timeout passed to the persistence provider as the {@code javax.persistence.query.timeout} hint, zero
+     * means no timeout. JDBC drivers time out statements in whole seconds, so the timeout is rounded up to seconds.
+     */
+    int timeoutMillis() default 0;
+
+    /**
+     * Maximum number of rows of a collection, page or slice result, zero means no limit. Pages and slices are read
+     * completely and checked afterwards, so that their totals stay correct.
+     */
+    int maxResults() default 0;
+
+    Overflow overflow() default Overflow.FAIL;
+
+    /**
+     * Maximum number of concurrent executions, zero means no limit.
+     */
+    int maxConcurrent() default 0;
+
+    /**
+     * Time to wait for an execution slot when {@link #maxConcurrent()} executions are running, after which the
+     * invocation is rejected.
+     */
+    int queueTimeoutMillis() default 1000;
+
+    enum Overflow {
+
+        /**
+         * Throws {@link org.springframework.dao.IncorrectResultSizeDataAccessException}.
+         */
+        FAIL,
+
+        /**
+         * Returns the first {@link #maxResults()} rows.
+         */
+        TRUNCATE
+    }
+}
@@ -0,0 +1,20 @@
+package io.jmix.data.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Concurrent invocations of the annotated repository query method with equal parameter values share one database
+ * execution. Applies only to invocations outside of a transaction and without an EntityManager bound to the thread,
+ * for example by open EntityManager in view. Methods returning {@code CompletableFuture} run with an EntityManager
+ * bound to the executor thread, so their executions are not shared. All callers receive the same result with
+ * unmodifiable collections; its detached entities must not be modified.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SingleFlight {
+}
@@ -0,0 +1,35 @@
+package io.jmix.data.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Moves soft deleted rows of the entity from its table into an archive table, so that the table and its indexes
+ * contain live rows only. The archive table must contain all columns of the entity table with the same names; rows are
+ * copied with explicit column lists, so the column order may differ. Entities mapped to several tables are not
+ * supported. Column names are taken from the Hibernate mapping.
+ * <p>
+ * Archived rows are physically deleted after the retention period by {@link io.jmix.data.purge.SoftDeletePurger}
+ * together with the soft deleted rows of the entity table, when the purge is enabled.
+ */
+@Inherited
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SoftDeleteArchive {
+
+    /**
+     * Archive table name, {@code <entity table>_archive} by default.
+     */
+    String table() default "";
+
+    /**
+     * If {@literal true}, rows are moved to the archive in the transaction that soft deletes them. Otherwise soft
+     * deleted rows are moved by a background task.
+     */
+    boolean synchronous() default true;
+}
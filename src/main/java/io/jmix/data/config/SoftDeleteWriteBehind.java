@@ -0,0 +1,41 @@
+package io.jmix.data.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Queues soft deletes of the entity instead of executing them in the calling transaction. Queued ids are marked
+ * with chunked bulk updates in a separate transaction of the repository transaction manager when
+ * {@link #batchSize()} ids are pending or every {@link #flushIntervalMillis()}, and on shutdown.
+ * <p>
+ * Entities with pending deletes are excluded from the repository {@code findById}, {@code existsById},
+ * {@code findAll} and {@code count} results. Query methods, including derived finders, and other repository
+ * methods still return them until the queue is flushed. Deletes are not rolled back together with the calling
+ * transaction.
+ * <p>
+ * Background flushes of all such entities run in the thread of the
+ * {@link io.jmix.data.repository.SoftDeleteFlushScheduler} bean, which the application context must contain.
+ */
+@Inherited
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SoftDeleteWriteBehind {
+
+    /**
+     * Maximum number of pending ids, including the ids of failed flushes. A delete finding the queue full flushes it
+     * in the calling thread and fails if the flush fails.
+     */
+    int capacity() default 10000;
+
+    /**
+     * Number of pending ids that triggers a background flush, also the number of ids per update statement.
+     */
+    int batchSize() default 500;
+
+    int flushIntervalMillis() default 1000;
+}
@@ -0,0 +1,40 @@
+package io.jmix.data.metadata;
+
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Jmix-specific metadata of an entity class: the soft delete attribute, external references and accessors for
+ * the attributes involved. Implementations are generated at compile time by the {@code jmix-data-processor}
+ * module; {@link ReflectionEntityMetadata} is used when no generated class is found.
+ *
+ * @see EntityMetadataRegistry
+ */
+public interface EntityMetadata {
+
+    Class<?> getEntityClass();
+
+    /**
+     * @return name of the attribute annotated with {@link io.jmix.data.config.DeletedDate} or {@literal null}
+     * if the entity cannot be soft deleted.
+     */
+    @Nullable
+    String getDeletedDateAttribute();
+
+    /**
+     * @return attributes annotated with {@link io.jmix.data.config.ExternalReference}, never {@literal null}.
+     */
+    List<ExternalReferenceDescriptor> getExternalReferences();
+
+    /**
+     * Reads the value of a soft delete, external reference or external reference key attribute.
+     */
+    @Nullable
+    Object getValue(Object entity, String attribute);
+
+    /**
+     * Writes the value of a soft delete, external reference or external reference key attribute.
+     */
+    void setValue(Object entity, String attribute, @Nullable Object value);
+}
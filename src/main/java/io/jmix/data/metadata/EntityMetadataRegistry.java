@@ -0,0 +1,92 @@
+package io.jmix.data.metadata;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+
+/**
+ * Provides {@link EntityMetadata} for entity classes. Metadata classes generated by the {@code jmix-data-processor}
+ * annotation processor are named {@code <EntityClassName>_JmixMetadata} and are looked up first; the entity class is
+ * scanned with reflection only if the generated class is missing. Generated metadata applies to its exact entity
+ * class only, so subclasses without their own generated class, including runtime subclasses of persistence
+ * providers, are scanned with reflection.
+ */
+public final class EntityMetadataRegistry {
+
+    public static final String METADATA_CLASS_SUFFIX = "_JmixMetadata";
+
+    private static final Logger log = LoggerFactory.getLogger(EntityMetadataRegistry.class);
+
+    private static final ClassValue<EntityMetadata> METADATA = new ClassValue<EntityMetadata>() {
+        @Override
+        protected EntityMetadata computeValue(Class<?> type) {
+            return loadMetadata(type);
+        }
+    };
+
+    private EntityMetadataRegistry() {
+    }
+
+    public static EntityMetadata getMetadata(Class<?> entityClass) {
+        return METADATA.get(entityClass);
+    }
+
+    private static EntityMetadata loadMetadata(Class<?> entityClass) {
+        // metadata of a superclass would miss the attributes declared by the subclass
+        EntityMetadata generated = loadGeneratedMetadata(entityClass);
+        if (generated != null) {
+            return generated;
+        }
+        log.debug("Generated metadata not found for {}, using reflection", entityClass.getName());
+        return new ReflectionEntityMetadata(entityClass);
+    }
+
+    @Nullable
+    private static EntityMetadata loadGeneratedMetadata(Class<?> entityClass) {
+        ClassLoader classLoader = entityClass.getClassLoader();
+        if (classLoader == null) {
+            return null;
+        }
+        Class<?> metadataClass;
+        try {
+            metadataClass = Class.forName(entityClass.getName() + METADATA_CLASS_SUFFIX, true, classLoader);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        if (!EntityMetadata.class.isAssignableFrom(metadataClass)) {
+            log.warn("Class {} does not implement {}, ignoring it", metadataClass.getName(), EntityMetadata.class.getName());
+            return null;
+        }
+        try {
+            return (EntityMetadata) metadataClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot instantiate generated metadata " + metadataClass.getName(), e);
+        }
+    }
+
+    /**
+     * Reads a field that has neither an accessible getter nor direct access from the generated metadata class.
+     * Called by generated code only.
+     */
+    @Nullable
+    public static Object readField(Object entity, String fieldName) {
+        try {
+            return FieldUtils.readField(entity, fieldName, true);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot read field " + fieldName + " of " + entity.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Writes a field that has neither an accessible setter nor direct access from the generated metadata class.
+     * Called by generated code only.
+     */
+    public static void writeField(Object entity, String fieldName, @Nullable Object value) {
+        try {
+            FieldUtils.writeField(entity, fieldName, value, true);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot set field " + fieldName + " value " + value, e);
+        }
+    }
+}
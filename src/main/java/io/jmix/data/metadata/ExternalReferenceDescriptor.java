@@ -0,0 +1,43 @@
+package io.jmix.data.metadata;
+
+import io.jmix.data.config.ExternalReference;
+
+/**
+ * Describes an attribute annotated with {@link ExternalReference}.
+ */
+public class ExternalReferenceDescriptor {
+
+    private final String attribute;
+    private final Class<?> type;
+    private final String keyAttribute;
+    private final String references;
+
+    public ExternalReferenceDescriptor(String attribute, Class<?> type, String keyAttribute, String references) {
+        this.attribute = attribute;
+        this.type = type;
+        this.keyAttribute = keyAttribute;
+        this.references = references;
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @see ExternalReference#keyAttribute()
+     */
+    public String getKeyAttribute() {
+        return keyAttribute;
+    }
+
+    /**
+     * @see ExternalReference#references()
+     */
+    public String getReferences() {
+        return references;
+    }
+}
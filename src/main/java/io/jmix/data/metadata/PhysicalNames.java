@@ -0,0 +1,154 @@
+package io.jmix.data.metadata;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.persister.entity.SingleTableEntityPersister;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Table and column names of an entity for native SQL, as mapped by the persistence provider. Only Hibernate
+ * exposes its physical names, other providers are not supported.
+ */
+public final class PhysicalNames {
+
+    private static final boolean HIBERNATE_PRESENT = ClassUtils.isPresent(
+            "org.hibernate.persister.entity.AbstractEntityPersister", PhysicalNames.class.getClassLoader());
+
+    private final Class<?> entityClass;
+    private final String tableName;
+    private final boolean multiTable;
+    private final List<String> columnNames;
+    private final Function<String, String[]> attributeColumns;
+
+    private PhysicalNames(Class<?> entityClass, String tableName, boolean multiTable, List<String> columnNames,
+                          Function<String, String[]> attributeColumns) {
+        this.entityClass = entityClass;
+        this.tableName = tableName;
+        this.multiTable = multiTable;
+        this.columnNames = columnNames;
+        this.attributeColumns = attributeColumns;
+    }
+
+    /**
+     * @throws IllegalStateException if the entity is not mapped by Hibernate
+     */
+    public static PhysicalNames of(EntityManagerFactory emf, Class<?> entityClass) {
+        if (!HIBERNATE_PRESENT) {
+            throw new IllegalStateException("Physical names of " + entityClass.getName() + " require Hibernate");
+        }
+        return HibernateNames.of(emf, entityClass);
+    }
+
+    /**
+     * @return table of the entity, qualified and quoted as in the SQL of the persistence provider
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @return whether the entity is mapped to several tables, by joined inheritance or secondary tables
+     */
+    public boolean isMultiTable() {
+        return multiTable;
+    }
+
+    /**
+     * @return all columns of the entity table mapped by the entity and its subclasses, the id columns first
+     */
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the attribute is not mapped to a single column
+     */
+    public String getColumnName(String attribute) {
+        String[] columns;
+        try {
+            columns = attributeColumns.apply(attribute);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Unknown attribute " + attribute + " of " + entityClass.getName(), e);
+        }
+        if (columns == null || columns.length != 1 || columns[0] == null) {
+            throw new IllegalArgumentException(
+                    "Attribute " + attribute + " of " + entityClass.getName() + " is not mapped to a single column");
+        }
+        return columns[0];
+    }
+
+    /**
+     * @return table or column name without the schema and quotes, as used in the database metadata
+     */
+    public static String toMetadataName(String name) {
+        String result = name.substring(name.lastIndexOf('.') + 1);
+        if (result.length() > 1 && "\"`[".indexOf(result.charAt(0)) >= 0) {
+            result = result.substring(1, result.length() - 1);
+        }
+        return result;
+    }
+
+    private static final class HibernateNames {
+
+        static PhysicalNames of(EntityManagerFactory emf, Class<?> entityClass) {
+            EntityPersister entityPersister;
+            try {
+                entityPersister = emf.unwrap(SessionFactoryImplementor.class).getMetamodel().entityPersister(entityClass);
+            } catch (PersistenceException e) {
+                throw new IllegalStateException("Physical names of " + entityClass.getName() + " require Hibernate", e);
+            }
+            if (!(entityPersister instanceof AbstractEntityPersister)) {
+                throw new IllegalStateException("Unsupported persister of " + entityClass.getName());
+            }
+            AbstractEntityPersister persister = (AbstractEntityPersister) entityPersister;
+            String identifierAttribute = persister.getIdentifierPropertyName();
+            return new PhysicalNames(entityClass, persister.getTableName(), persister.isMultiTable(),
+                    getColumnNames(persister),
+                    attribute -> attribute.equals(identifierAttribute)
+                            ? persister.getIdentifierColumnNames()
+                            : persister.getPropertyColumnNames(attribute));
+        }
+
+        /**
+         * Collects the columns of the entity and of its subclasses in the same table, so that rows of every subclass
+         * of a single table hierarchy are copied completely. Formulas and collections have no columns in the table.
+         */
+        private static List<String> getColumnNames(AbstractEntityPersister persister) {
+            Set<String> columns = new LinkedHashSet<>();
+            Collections.addAll(columns, persister.getIdentifierColumnNames());
+            List<AbstractEntityPersister> persisters = new ArrayList<>();
+            persisters.add(persister);
+            for (Object subclass : persister.getEntityMetamodel().getSubclassEntityNames()) {
+                EntityPersister subclassPersister = persister.getFactory().getMetamodel().entityPersister((String) subclass);
+                if (subclassPersister != persister && subclassPersister instanceof AbstractEntityPersister
+                        && persister.getTableName().equals(((AbstractEntityPersister) subclassPersister).getTableName())) {
+                    persisters.add((AbstractEntityPersister) subclassPersister);
+                }
+            }
+            for (AbstractEntityPersister it : persisters) {
+                // null for a discriminator formula
+                if (it instanceof SingleTableEntityPersister && it.getDiscriminatorColumnName() != null) {
+                    columns.add(it.getDiscriminatorColumnName());
+                }
+                for (int i = 0; i < it.getPropertyNames().length; i++) {
+                    for (String column : it.getPropertyColumnNames(i)) {
+                        if (column != null) {
+                            columns.add(column);
+                        }
+                    }
+                }
+            }
+            return Collections.unmodifiableList(new ArrayList<>(columns));
+        }
+    }
+}
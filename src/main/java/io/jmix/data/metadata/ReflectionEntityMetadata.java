@@ -0,0 +1,93 @@
+package io.jmix.data.metadata;
+
+import io.jmix.data.config.DeletedDate;
+import io.jmix.data.config.ExternalReference;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.springframework.lang.Nullable;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * {@link EntityMetadata} built by scanning the entity class at runtime. Used when the entity has not been
+ * processed by the {@code jmix-data-processor} annotation processor.
+ */
+public class ReflectionEntityMetadata implements EntityMetadata {
+
+    private final Class<?> entityClass;
+    private final String deletedDateAttribute;
+    private final List<ExternalReferenceDescriptor> externalReferences;
+    private final Map<String, Field> fields = new ConcurrentHashMap<>();
+
+    public ReflectionEntityMetadata(Class<?> entityClass) {
+        this.entityClass = entityClass;
+
+        List<Field> deletedDateFields = Arrays.stream(FieldUtils.getAllFields(entityClass))
+                .filter(field -> field.isAnnotationPresent(DeletedDate.class))
+                .collect(Collectors.toList());
+        if (deletedDateFields.size() > 1) {
+            throw new IllegalStateException("Entity should have exactly one deletedBy field, current amount is: " + deletedDateFields.size());
+        }
+        this.deletedDateAttribute = deletedDateFields.isEmpty() ? null : deletedDateFields.get(0).getName();
+
+        this.externalReferences = Collections.unmodifiableList(
+                Arrays.stream(FieldUtils.getAllFields(entityClass))
+                        .filter(field -> field.isAnnotationPresent(ExternalReference.class))
+                        .map(field -> {
+                            ExternalReference annotation = field.getAnnotation(ExternalReference.class);
+                            return new ExternalReferenceDescriptor(field.getName(), field.getType(),
+                                    annotation.keyAttribute(), annotation.references());
+                        })
+                        .collect(Collectors.toList()));
+    }
+
+    @Override
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    @Nullable
+    @Override
+    public String getDeletedDateAttribute() {
+        return deletedDateAttribute;
+    }
+
+    @Override
+    public List<ExternalReferenceDescriptor> getExternalReferences() {
+        return externalReferences;
+    }
+
+    @Nullable
+    @Override
+    public Object getValue(Object entity, String attribute) {
+        try {
+            return getField(attribute).get(entity);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot read field " + attribute + " of " + entityClass.getName(), e);
+        }
+    }
+
+    @Override
+    public void setValue(Object entity, String attribute, @Nullable Object value) {
+        try {
+            getField(attribute).set(entity, value);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot set field " + attribute + " value " + value, e);
+        }
+    }
+
+    private Field getField(String attribute) {
+        return fields.computeIfAbsent(attribute, name -> {
+            Field field = FieldUtils.getField(entityClass, name, true);
+            if (field == null) {
+                throw new IllegalArgumentException("Entity " + entityClass.getName() + " has no field " + name);
+            }
+            return field;
+        });
+    }
+}
@@ -0,0 +1,53 @@
+package io.jmix.data.purge;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Purge metrics of a single entity type.
+ */
+public class PurgeStatistics {
+
+    private final AtomicLong totalPurged = new AtomicLong();
+    private volatile long lastRunPurged;
+    private volatile long lastRunDurationMillis;
+    private volatile long lagDays;
+    private volatile Instant lastRunTime;
+
+    void runFinished(long purged, long durationMillis, long lagDays) {
+        totalPurged.addAndGet(purged);
+        this.lastRunPurged = purged;
+        this.lastRunDurationMillis = durationMillis;
+        this.lagDays = lagDays;
+        this.lastRunTime = Instant.now();
+    }
+
+    public long getTotalPurged() {
+        return totalPurged.get();
+    }
+
+    public long getLastRunPurged() {
+        return lastRunPurged;
+    }
+
+    public long getLastRunDurationMillis() {
+        return lastRunDurationMillis;
+    }
+
+    /**
+     * @return how many days the oldest soft deleted row exceeded the retention period when the last run started
+     */
+    public long getLagDays() {
+        return lagDays;
+    }
+
+    public Instant getLastRunTime() {
+        return lastRunTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("purged %d rows in %d ms, lag %d days, %d rows purged in total",
+                lastRunPurged, lastRunDurationMillis, lagDays, getTotalPurged());
+    }
+}
@@ -0,0 +1,106 @@
+package io.jmix.data.purge;
+
+import io.jmix.data.config.JmixDataProperties;
+import io.jmix.data.repository.ArchiveRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically moves soft deleted rows to archive tables for entities annotated with
+ * {@code @SoftDeleteArchive(synchronous = false)}. Each chunk is moved in its own transaction.
+ */
+@Component
+public class SoftDeleteArchiveMover implements ApplicationContextAware, ApplicationListener<ContextRefreshedEvent>, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SoftDeleteArchiveMover.class);
+
+    private ApplicationContext applicationContext;
+
+    private JmixDataProperties properties;
+
+    private ScheduledExecutorService executor;
+
+    private Map<Class<?>, ArchiveRepository<?, ?>> repositories;
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+        this.properties = new JmixDataProperties(applicationContext.getEnvironment());
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(ContextRefreshedEvent event) {
+        if (event.getApplicationContext() != applicationContext || executor != null) {
+            return;
+        }
+        repositories = findBackgroundArchiveRepositories();
+        if (repositories.isEmpty()) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "jmix-soft-delete-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int interval = properties.getArchiveIntervalSeconds();
+        executor.scheduleWithFixedDelay(this::archive, interval, interval, TimeUnit.SECONDS);
+        log.info("Archiving of soft deleted rows scheduled every {} seconds for {}", interval, repositories.keySet());
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void archive() {
+        int chunkSize = properties.getArchiveChunkSize();
+        repositories.forEach((domainType, repository) -> {
+            try {
+                long archived = 0;
+                int moved;
+                do {
+                    moved = repository.archiveDeleted(chunkSize);
+                    archived += moved;
+                } while (moved == chunkSize && !Thread.currentThread().isInterrupted());
+                if (archived > 0) {
+                    log.debug("Moved {} soft deleted {} rows to the archive", archived, domainType.getSimpleName());
+                }
+            } catch (RuntimeException e) {
+                log.error("Archiving of soft deleted {} rows failed", domainType.getName(), e);
+            }
+        });
+    }
+
+    private Map<Class<?>, ArchiveRepository<?, ?>> findBackgroundArchiveRepositories() {
+        Map<Class<?>, ArchiveRepository<?, ?>> result = new LinkedHashMap<>();
+        Repositories allRepositories = new Repositories(applicationContext);
+        for (Class<?> domainType : allRepositories) {
+            Optional<Object> repository = allRepositories.getRepositoryFor(domainType);
+            if (repository.isPresent() && repository.get() instanceof ArchiveRepository) {
+                ArchiveRepository<?, ?> archiveRepository = (ArchiveRepository<?, ?>) repository.get();
+                if (archiveRepository.isArchiveEnabled() && !archiveRepository.isArchiveSynchronous()) {
+                    result.put(domainType, archiveRepository);
+                }
+            }
+        }
+        return result;
+    }
+}
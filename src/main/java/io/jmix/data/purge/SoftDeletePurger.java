@@ -0,0 +1,146 @@
+package io.jmix.data.purge;
+
+import io.jmix.data.config.JmixDataProperties;
+import io.jmix.data.repository.ArchiveRepository;
+import io.jmix.data.repository.SoftDeleteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Physically deletes soft deleted rows which are older than the retention period. When enabled by
+ * {@code jmix.data.purge.enabled}, all repositories with soft delete enabled are processed periodically in chunks,
+ * each chunk in its own transaction, with throughput limited by {@code jmix.data.purge.max-rows-per-second}.
+ * Rows moved to the archive tables of {@link io.jmix.data.config.SoftDeleteArchive} entities are purged the same way.
+ */
+@Component
+public class SoftDeletePurger implements ApplicationContextAware, ApplicationListener<ContextRefreshedEvent>, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SoftDeletePurger.class);
+
+    private ApplicationContext applicationContext;
+
+    private JmixDataProperties properties;
+
+    private ScheduledExecutorService executor;
+
+    private final Map<Class<?>, PurgeStatistics> statistics = new ConcurrentHashMap<>();
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+        this.properties = new JmixDataProperties(applicationContext.getEnvironment());
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(ContextRefreshedEvent event) {
+        if (event.getApplicationContext() != applicationContext || !properties.isPurgeEnabled() || executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "jmix-soft-delete-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int interval = properties.getPurgeIntervalMinutes();
+        executor.scheduleWithFixedDelay(this::purge, interval, interval, TimeUnit.MINUTES);
+        log.info("Soft delete purge scheduled every {} minutes, retention {} days", interval, properties.getPurgeRetentionDays());
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Purges all soft delete enabled repositories. Called by the scheduler, can also be invoked manually.
+     */
+    public void purge() {
+        LocalDate deletedBefore = LocalDate.now().minusDays(properties.getPurgeRetentionDays());
+        Repositories repositories = new Repositories(applicationContext);
+        for (Class<?> domainType : repositories) {
+            Optional<Object> repository = repositories.getRepositoryFor(domainType);
+            if (repository.isPresent() && repository.get() instanceof SoftDeleteRepository
+                    && ((SoftDeleteRepository<?, ?>) repository.get()).isSoftDeleteEnabled()) {
+                try {
+                    purge(domainType, (SoftDeleteRepository<?, ?>) repository.get(), deletedBefore);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.info("Soft delete purge interrupted");
+                    return;
+                } catch (RuntimeException e) {
+                    log.error("Soft delete purge of {} failed", domainType.getName(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return purge metrics by entity type
+     */
+    public Map<Class<?>, PurgeStatistics> getStatistics() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    private void purge(Class<?> domainType, SoftDeleteRepository<?, ?> repository, LocalDate deletedBefore)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        long lagDays = repository.findOldestDeletedDate()
+                .map(oldest -> Math.max(0, ChronoUnit.DAYS.between(oldest, deletedBefore)))
+                .orElse(0L);
+
+        int chunkSize = properties.getPurgeChunkSize();
+        long purged = 0;
+        int deleted;
+        do {
+            deleted = repository.purgeDeletedBefore(deletedBefore, chunkSize);
+            purged += deleted;
+            throttle(purged, start);
+        } while (deleted == chunkSize);
+
+        if (repository instanceof ArchiveRepository && ((ArchiveRepository<?, ?>) repository).isArchiveEnabled()) {
+            ArchiveRepository<?, ?> archive = (ArchiveRepository<?, ?>) repository;
+            do {
+                deleted = archive.purgeArchivedBefore(deletedBefore, chunkSize);
+                purged += deleted;
+                throttle(purged, start);
+            } while (deleted == chunkSize);
+        }
+
+        PurgeStatistics entityStatistics = statistics.computeIfAbsent(domainType, type -> new PurgeStatistics());
+        entityStatistics.runFinished(purged, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), lagDays);
+        log.info("Soft delete purge of {}: {}", domainType.getSimpleName(), entityStatistics);
+    }
+
+    private void throttle(long purged, long start) throws InterruptedException {
+        int maxRowsPerSecond = properties.getPurgeMaxRowsPerSecond();
+        if (maxRowsPerSecond <= 0) {
+            return;
+        }
+        long expectedNanos = purged * TimeUnit.SECONDS.toNanos(1) / maxRowsPerSecond;
+        long sleepNanos = expectedNanos - (System.nanoTime() - start);
+        if (sleepNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(sleepNanos);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package io.jmix.data.query;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Estimates the number of rows of an entity table for {@link io.jmix.data.config.CountStrategy.Mode#ESTIMATED}
+ * page queries. Declare a {@code @Primary} bean to replace {@link DatabaseStatisticsCountEstimator}.
+ */
+public interface CountEstimator {
+
+    /**
+     * @return estimated number of rows or {@literal null} if no estimate is available
+     */
+    @Nullable
+    Long estimate(Class<?> entityClass);
+}
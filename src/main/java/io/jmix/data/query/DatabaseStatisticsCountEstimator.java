@@ -0,0 +1,109 @@
+package io.jmix.data.query;
+
+import io.jmix.data.metadata.PhysicalNames;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * {@link CountEstimator} reading the row count that the database keeps in its optimizer statistics. Supports
+ * PostgreSQL, MySQL/MariaDB, Oracle and SQL Server; returns no estimate for other databases. Statistics are read
+ * in a separate connection of the single {@link DataSource} bean, outside of the current transaction. The table name
+ * is taken from the Hibernate mapping.
+ */
+@Component
+public class DatabaseStatisticsCountEstimator implements CountEstimator, ApplicationContextAware {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseStatisticsCountEstimator.class);
+
+    private ApplicationContext applicationContext;
+
+    private volatile DataSource dataSource;
+
+    private volatile String statisticsSql;
+
+    private volatile boolean upperCaseNames;
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+    }
+
+    @Nullable
+    @Override
+    public Long estimate(Class<?> entityClass) {
+        try {
+            if (!initialize()) {
+                return null;
+            }
+            EntityManagerFactory emf = getEntityManagerFactory(entityClass);
+            if (emf == null) {
+                return null;
+            }
+            String table = PhysicalNames.toMetadataName(PhysicalNames.of(emf, entityClass).getTableName());
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(statisticsSql)) {
+                statement.setString(1, upperCaseNames ? table.toUpperCase() : table.toLowerCase());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (!resultSet.next()) {
+                        return null;
+                    }
+                    long rows = resultSet.getLong(1);
+                    return resultSet.wasNull() || rows < 0 ? null : rows;
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Cannot estimate row count of {}", entityClass.getName(), e);
+            return null;
+        }
+    }
+
+    @Nullable
+    private EntityManagerFactory getEntityManagerFactory(Class<?> entityClass) {
+        for (EntityManagerFactory emf : applicationContext.getBeanProvider(EntityManagerFactory.class)) {
+            if (emf.getMetamodel().getEntities().stream().anyMatch(entityType -> entityType.getJavaType() == entityClass)) {
+                return emf;
+            }
+        }
+        return null;
+    }
+
+    private boolean initialize() throws SQLException {
+        if (dataSource != null) {
+            return statisticsSql != null;
+        }
+        DataSource unique = applicationContext.getBeanProvider(DataSource.class).getIfUnique();
+        if (unique == null) {
+            return false;
+        }
+        String product;
+        try (Connection connection = unique.getConnection()) {
+            product = connection.getMetaData().getDatabaseProductName().toLowerCase();
+        }
+        if (product.contains("postgres")) {
+            statisticsSql = "SELECT CAST(reltuples AS BIGINT) FROM pg_class WHERE relname = ? AND relkind = 'r'";
+        } else if (product.contains("mysql") || product.contains("mariadb")) {
+            statisticsSql = "SELECT table_rows FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?";
+        } else if (product.contains("oracle")) {
+            statisticsSql = "SELECT num_rows FROM user_tables WHERE table_name = ?";
+            upperCaseNames = true;
+        } else if (product.contains("sql server")) {
+            statisticsSql = "SELECT SUM(rows) FROM sys.partitions WHERE object_id = OBJECT_ID(?) AND index_id IN (0, 1)";
+        } else {
+            log.info("Row count estimates are not supported for {}", product);
+        }
+        dataSource = unique;
+        return statisticsSql != null;
+    }
+}
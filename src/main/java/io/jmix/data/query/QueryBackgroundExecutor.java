@@ -0,0 +1,63 @@
+package io.jmix.data.query;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of the application context executing background work of repository queries: parallel count queries of
+ * {@link io.jmix.data.config.CountStrategy} methods and background query creation of
+ * {@link io.jmix.data.config.QueryBootstrapMode#BACKGROUND}. The pool is created on first use with one thread per
+ * processor and shut down when the context is closed.
+ */
+@Component
+public class QueryBackgroundExecutor implements DisposableBean {
+
+    private ExecutorService executor;
+
+    private boolean destroyed;
+
+    /**
+     * @throws RejectedExecutionException if the application context is closed
+     */
+    public void execute(Runnable task) {
+        getExecutor().execute(task);
+    }
+
+    /**
+     * @throws RejectedExecutionException if the application context is closed
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return getExecutor().submit(task);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        destroyed = true;
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (destroyed) {
+            throw new RejectedExecutionException("Application context is closed");
+        }
+        if (executor == null) {
+            AtomicInteger counter = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                Thread thread = new Thread(r, "jmix-query-background-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+}
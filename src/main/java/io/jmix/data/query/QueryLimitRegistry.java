@@ -0,0 +1,46 @@
+package io.jmix.data.query;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Holds the repository level bulkheads and the {@link QueryLimitStatistics} of the repository query methods with
+ * {@link io.jmix.data.config.QueryLimits} of the application context. Both are dropped when the context is closed.
+ */
+@Component
+public class QueryLimitRegistry implements DisposableBean {
+
+    private final Map<Class<?>, Semaphore> repositoryBulkheads = new ConcurrentHashMap<>();
+
+    private final List<QueryLimitStatistics> statistics = new CopyOnWriteArrayList<>();
+
+    /**
+     * @return bulkhead shared by the query methods of the repository limited on the interface level
+     */
+    public Semaphore getRepositoryBulkhead(Class<?> repositoryInterface, int maxConcurrent) {
+        return repositoryBulkheads.computeIfAbsent(repositoryInterface, it -> new Semaphore(maxConcurrent, true));
+    }
+
+    public QueryLimitStatistics register(String name) {
+        QueryLimitStatistics methodStatistics = new QueryLimitStatistics(name);
+        statistics.add(methodStatistics);
+        return methodStatistics;
+    }
+
+    public List<QueryLimitStatistics> getStatistics() {
+        return Collections.unmodifiableList(statistics);
+    }
+
+    @Override
+    public void destroy() {
+        repositoryBulkheads.clear();
+        statistics.clear();
+    }
+}
@@ -0,0 +1,79 @@
+package io.jmix.data.query;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a repository query method with {@link io.jmix.data.config.QueryLimits}.
+ *
+ * @see QueryLimitRegistry#getStatistics()
+ */
+public class QueryLimitStatistics {
+
+    private final String name;
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong truncations = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    QueryLimitStatistics(String name) {
+        this.name = name;
+    }
+
+    public void executed() {
+        executions.incrementAndGet();
+    }
+
+    public void rejected() {
+        rejections.incrementAndGet();
+    }
+
+    public void overflowed() {
+        overflows.incrementAndGet();
+    }
+
+    public void truncated() {
+        truncations.incrementAndGet();
+    }
+
+    public void timedOut() {
+        timeouts.incrementAndGet();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getExecutionCount() {
+        return executions.get();
+    }
+
+    /**
+     * @return number of invocations rejected because the maximum number of concurrent executions was reached
+     */
+    public long getRejectionCount() {
+        return rejections.get();
+    }
+
+    /**
+     * @return number of invocations failed because the result exceeded the maximum size
+     */
+    public long getOverflowCount() {
+        return overflows.get();
+    }
+
+    public long getTruncationCount() {
+        return truncations.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: executions=%d, rejections=%d, overflows=%d, truncations=%d, timeouts=%d",
+                name, executions.get(), rejections.get(), overflows.get(), truncations.get(), timeouts.get());
+    }
+}
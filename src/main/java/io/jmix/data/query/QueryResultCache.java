@@ -0,0 +1,144 @@
+package io.jmix.data.query;
+
+import org.springframework.lang.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of the results of one repository query method, see {@link io.jmix.data.config.CachedQuery}.
+ */
+public class QueryResultCache {
+
+    private final String name;
+    private final Class<?> entityClass;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final Map<Object, CachedResult> entries;
+
+    // incremented by invalidate() so that results loaded before an invalidation are not cached after it
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public QueryResultCache(String name, Class<?> entityClass, int maxSize, int ttlSeconds) {
+        if (maxSize <= 0 || ttlSeconds <= 0) {
+            throw new IllegalArgumentException("Cache size and time to live of " + name + " must be positive");
+        }
+        this.name = name;
+        this.entityClass = entityClass;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<Object, CachedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, CachedResult> eldest) {
+                if (size() > QueryResultCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached result for the key or loads and caches it. The loader is invoked outside of the cache lock.
+     */
+    @Nullable
+    public Object get(Object key, Supplier<?> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            CachedResult entry = entries.get(key);
+            if (entry != null) {
+                if (!entry.isExpired(System.nanoTime())) {
+                    hits++;
+                    return entry.value;
+                }
+                entries.remove(key);
+                evictions++;
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+        Object value = loader.get();
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                entries.put(key, new CachedResult(value, System.nanoTime() + ttlNanos));
+            }
+        }
+        return value;
+    }
+
+    public synchronized void invalidate() {
+        generation++;
+        invalidations++;
+        entries.clear();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return number of results removed because the cache was full or their time to live has passed
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public synchronized long getInvalidationCount() {
+        return invalidations;
+    }
+
+    public synchronized double getHitRatio() {
+        return hitRatio();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s: size=%d, hits=%d, misses=%d, hitRatio=%.2f, evictions=%d, invalidations=%d",
+                name, entries.size(), hits, misses, hitRatio(), evictions, invalidations);
+    }
+
+    private double hitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    private static final class CachedResult {
+
+        private final Object value;
+        private final long expiresAt;
+
+        CachedResult(@Nullable Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
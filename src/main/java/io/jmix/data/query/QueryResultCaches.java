@@ -0,0 +1,81 @@
+package io.jmix.data.query;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of the {@link QueryResultCache}s of the repository query methods of the application context, used to
+ * invalidate them by entity type and to read their statistics. The caches are dropped when the context is closed.
+ */
+@Component
+public class QueryResultCaches implements DisposableBean {
+
+    private final List<QueryResultCache> caches = new CopyOnWriteArrayList<>();
+
+    public void register(QueryResultCache cache) {
+        caches.add(cache);
+    }
+
+    public List<QueryResultCache> getCaches() {
+        return Collections.unmodifiableList(caches);
+    }
+
+    /**
+     * Invalidates caches of methods returning the given entity type, its super or sub types. In a transaction,
+     * the caches are invalidated once more after completion, so that results read by concurrent callers before the
+     * commit are dropped.
+     */
+    public void invalidate(Class<?> entityClass) {
+        if (caches.isEmpty()) {
+            return;
+        }
+        invalidateNow(entityClass);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            getAfterCompletionInvalidation().entityClasses.add(entityClass);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        caches.clear();
+    }
+
+    private void invalidateNow(Class<?> entityClass) {
+        for (QueryResultCache cache : caches) {
+            if (cache.getEntityClass().isAssignableFrom(entityClass) || entityClass.isAssignableFrom(cache.getEntityClass())) {
+                cache.invalidate();
+            }
+        }
+    }
+
+    private AfterCompletionInvalidation getAfterCompletionInvalidation() {
+        // bound per registry, the transaction may span repositories of several application contexts
+        AfterCompletionInvalidation invalidation =
+                (AfterCompletionInvalidation) TransactionSynchronizationManager.getResource(this);
+        if (invalidation == null) {
+            invalidation = new AfterCompletionInvalidation();
+            TransactionSynchronizationManager.bindResource(this, invalidation);
+            TransactionSynchronizationManager.registerSynchronization(invalidation);
+        }
+        return invalidation;
+    }
+
+    private final class AfterCompletionInvalidation extends TransactionSynchronizationAdapter {
+
+        private final Set<Class<?>> entityClasses = new LinkedHashSet<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(QueryResultCaches.this);
+            entityClasses.forEach(QueryResultCaches.this::invalidateNow);
+        }
+    }
+}
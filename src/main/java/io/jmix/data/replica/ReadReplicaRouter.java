@@ -0,0 +1,341 @@
+package io.jmix.data.replica;
+
+import io.jmix.data.config.JmixDataProperties;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.repository.core.support.RepositoryProxyPostProcessor;
+import org.springframework.lang.Nullable;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAttributeSource;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Routes read methods of Jmix repositories to the read replica {@link EntityManagerFactory} named by
+ * {@code jmix.data.replica.entity-manager-factory}. A repository method is a read if its name starts with a query
+ * prefix ({@code find}, {@code read}, {@code get}, {@code query}, {@code search}, {@code scan}, {@code export},
+ * {@code count}, {@code exists}), it returns no {@link Stream} and is not annotated with {@link Modifying} or
+ * {@link Lock}. Reads are routed only outside of transactions.
+ * <p>
+ * A routed read of a transactional method, such as the CRUD methods inherited from {@code SimpleJpaRepository},
+ * runs in a read-only transaction of the replica transaction manager named by
+ * {@code jmix.data.replica.transaction-manager}, a {@link JpaTransactionManager} of the replica by default. The
+ * transaction of the primary transaction manager participates in it, so the read takes no primary connection.
+ * Repositories invoked within such a read, including {@link io.jmix.data.config.ExternalReference} lookups, read
+ * from the replica as well. Reads declared with propagation {@code REQUIRES_NEW}, {@code NESTED} or
+ * {@code MANDATORY} are not routed.
+ * <p>
+ * Reads of an entity go to the primary for {@code jmix.data.replica.max-lag-millis} after any other method of its
+ * repository was invoked, so that callers read their own writes despite the replication lag. A read failing because
+ * the replica is unavailable is retried on the primary.
+ */
+@Component
+public class ReadReplicaRouter implements ApplicationContextAware {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadReplicaRouter.class);
+
+    private static final Pattern READ_METHOD = Pattern.compile("^(find|read|get|query|search|scan|export|count|exists)(\\p{Lu}.*)?$");
+
+    private static final ThreadLocal<Boolean> REPLICA = new ThreadLocal<>();
+
+    private ApplicationContext applicationContext;
+
+    private JmixDataProperties properties;
+
+    private volatile EntityManagerFactory replicaEntityManagerFactory;
+
+    private volatile EntityManager replicaEntityManager;
+
+    private volatile PlatformTransactionManager replicaTransactionManager;
+
+    private final TransactionAttributeSource transactionAttributeSource = new AnnotationTransactionAttributeSource();
+
+    private final Map<Class<?>, Long> lastWrites = new ConcurrentHashMap<>();
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+        this.properties = new JmixDataProperties(applicationContext.getEnvironment());
+    }
+
+    public boolean isEnabled() {
+        return !properties.getReplicaEntityManagerFactory().isEmpty();
+    }
+
+    /**
+     * @return {@literal true} if the current repository read is executed on the replica
+     */
+    public static boolean isReplicaRead() {
+        return Boolean.TRUE.equals(REPLICA.get());
+    }
+
+    /**
+     * Creates an {@link EntityManager} delegating to the replica during routed reads and to the given primary
+     * {@link EntityManager} otherwise.
+     */
+    public EntityManager createRoutingEntityManager(EntityManager primary) {
+        Class<?>[] interfaces = ClassUtils.getAllInterfaces(primary);
+        return (EntityManager) Proxy.newProxyInstance(primary.getClass().getClassLoader(), interfaces,
+                (proxy, method, args) -> {
+                    if (ReflectionUtils.isEqualsMethod(method)) {
+                        return proxy == args[0];
+                    }
+                    if (ReflectionUtils.isHashCodeMethod(method)) {
+                        return System.identityHashCode(proxy);
+                    }
+                    Object target = primary;
+                    if (isReplicaRead()) {
+                        EntityManager replica = getReplicaEntityManager();
+                        if (method.getDeclaringClass().isInstance(replica)) {
+                            target = replica;
+                        }
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    /**
+     * @param primary factory of the repository {@link EntityManager} and of its transactions
+     * @return post processor adding the routing interceptor to repositories of the given domain type
+     */
+    public RepositoryProxyPostProcessor createRepositoryProxyPostProcessor(EntityManagerFactory primary) {
+        return (factory, repositoryInformation) -> factory.addAdvice(new RoutingInterceptor(
+                repositoryInformation.getDomainType(), repositoryInformation.getRepositoryBaseClass(), primary));
+    }
+
+    private EntityManagerFactory getReplicaEntityManagerFactory() {
+        EntityManagerFactory emf = replicaEntityManagerFactory;
+        if (emf == null) {
+            emf = applicationContext.getBean(properties.getReplicaEntityManagerFactory(), EntityManagerFactory.class);
+            replicaEntityManagerFactory = emf;
+        }
+        return emf;
+    }
+
+    private EntityManager getReplicaEntityManager() {
+        EntityManager em = replicaEntityManager;
+        if (em == null) {
+            synchronized (this) {
+                em = replicaEntityManager;
+                if (em == null) {
+                    em = SharedEntityManagerCreator.createSharedEntityManager(getReplicaEntityManagerFactory());
+                    replicaEntityManager = em;
+                }
+            }
+        }
+        return em;
+    }
+
+    private PlatformTransactionManager getReplicaTransactionManager() {
+        PlatformTransactionManager transactionManager = replicaTransactionManager;
+        if (transactionManager == null) {
+            synchronized (this) {
+                transactionManager = replicaTransactionManager;
+                if (transactionManager == null) {
+                    String beanName = properties.getReplicaTransactionManager();
+                    transactionManager = beanName.isEmpty()
+                            ? new JpaTransactionManager(getReplicaEntityManagerFactory())
+                            : applicationContext.getBean(beanName, PlatformTransactionManager.class);
+                    replicaTransactionManager = transactionManager;
+                }
+            }
+        }
+        return transactionManager;
+    }
+
+    private boolean isReadMethod(Method method) {
+        return READ_METHOD.matcher(method.getName()).matches()
+                && !"getOne".equals(method.getName())
+                && !Stream.class.isAssignableFrom(method.getReturnType())
+                && !AnnotatedElementUtils.hasAnnotation(method, Modifying.class)
+                && !AnnotatedElementUtils.hasAnnotation(method, Lock.class);
+    }
+
+    private static boolean isStateless(Method method) {
+        return method.getName().startsWith("is") || method.getName().startsWith("set")
+                || method.getDeclaringClass() == Object.class;
+    }
+
+    private boolean isLagging(Class<?> domainType) {
+        Long lastWrite = lastWrites.get(domainType);
+        return lastWrite != null
+                && System.nanoTime() - lastWrite < TimeUnit.MILLISECONDS.toNanos(properties.getReplicaMaxLagMillis());
+    }
+
+    private void markWritten(Class<?> domainType) {
+        lastWrites.put(domainType, System.nanoTime());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // the lag window starts when the changes are committed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    lastWrites.put(domainType, System.nanoTime());
+                }
+            });
+        }
+    }
+
+    private static boolean isReplicaFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataAccessResourceFailureException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientConnectionException
+                    || cause instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private class RoutingInterceptor implements MethodInterceptor {
+
+        private final Class<?> domainType;
+        private final Class<?> repositoryBaseClass;
+        private final EntityManagerFactory primary;
+
+        RoutingInterceptor(Class<?> domainType, Class<?> repositoryBaseClass, EntityManagerFactory primary) {
+            this.domainType = domainType;
+            this.repositoryBaseClass = repositoryBaseClass;
+            this.primary = primary;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Method method = invocation.getMethod();
+            if (isStateless(method)) {
+                return invocation.proceed();
+            }
+            boolean read = isReadMethod(method);
+            boolean replica = read && !TransactionSynchronizationManager.isActualTransactionActive() && !isLagging(domainType);
+            TransactionAttribute transaction = replica
+                    ? transactionAttributeSource.getTransactionAttribute(method, repositoryBaseClass) : null;
+            if (transaction != null && !isRoutable(transaction)) {
+                replica = false;
+            }
+            boolean replicaTransaction = replica && transaction != null
+                    && transaction.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRED;
+            // the clone must be taken before the invocation proceeds
+            MethodInvocation retry = replica && invocation instanceof ProxyMethodInvocation
+                    ? ((ProxyMethodInvocation) invocation).invocableClone() : null;
+            Boolean previous = REPLICA.get();
+            REPLICA.set(replica);
+            try {
+                return replicaTransaction ? proceedInReplicaTransaction(invocation, transaction) : invocation.proceed();
+            } catch (RuntimeException e) {
+                if (retry == null || !isReplicaFailure(e)) {
+                    throw e;
+                }
+                log.warn("Read of {} on the replica failed, retrying on the primary", domainType.getSimpleName(), e);
+                REPLICA.set(false);
+                return retry.proceed();
+            } finally {
+                if (previous != null) {
+                    REPLICA.set(previous);
+                } else {
+                    REPLICA.remove();
+                }
+                if (!read) {
+                    markWritten(domainType);
+                }
+            }
+        }
+
+        /**
+         * Reads with propagation {@code REQUIRES_NEW} or {@code NESTED} would open a primary transaction inside the
+         * replica one, {@code MANDATORY} requires an existing transaction.
+         */
+        private boolean isRoutable(TransactionAttribute transaction) {
+            int propagation = transaction.getPropagationBehavior();
+            return propagation == TransactionDefinition.PROPAGATION_REQUIRED
+                    || propagation == TransactionDefinition.PROPAGATION_SUPPORTS
+                    || propagation == TransactionDefinition.PROPAGATION_NOT_SUPPORTED
+                    || propagation == TransactionDefinition.PROPAGATION_NEVER;
+        }
+
+        @Nullable
+        private Object proceedInReplicaTransaction(MethodInvocation invocation, TransactionAttribute transaction)
+                throws Throwable {
+            DefaultTransactionDefinition definition = new DefaultTransactionDefinition(transaction);
+            definition.setReadOnly(true);
+            PlatformTransactionManager transactionManager = getReplicaTransactionManager();
+            TransactionStatus status = transactionManager.getTransaction(definition);
+            Object result;
+            try {
+                result = proceedWithReplicaResources(invocation);
+            } catch (Throwable e) {
+                try {
+                    transactionManager.rollback(status);
+                } catch (RuntimeException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+                throw e;
+            }
+            transactionManager.commit(status);
+            return result;
+        }
+
+        /**
+         * Binds the transactional {@link EntityManager} of the replica to the primary factory as well, so that the
+         * primary transaction manager participates in the replica transaction instead of opening its own
+         * transaction and connection.
+         */
+        @Nullable
+        private Object proceedWithReplicaResources(MethodInvocation invocation) throws Throwable {
+            EntityManagerFactory replica = getReplicaEntityManagerFactory();
+            if (EntityManagerFactoryUtils.getTransactionalEntityManager(replica) == null) {
+                throw new IllegalStateException("No transactional EntityManager of the replica");
+            }
+            Object replicaResource = TransactionSynchronizationManager.getResource(replica);
+            // for example an EntityManager bound by an asynchronous repository method or open EntityManager in view
+            Object primaryResource = TransactionSynchronizationManager.unbindResourceIfPossible(primary);
+            TransactionSynchronizationManager.bindResource(primary, replicaResource);
+            try {
+                return invocation.proceed();
+            } finally {
+                TransactionSynchronizationManager.unbindResource(primary);
+                if (primaryResource != null) {
+                    TransactionSynchronizationManager.bindResource(primary, primaryResource);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package io.jmix.data.repository;
+
+import io.jmix.data.config.SoftDeleteArchive;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Access to the archive table of entities annotated with {@link SoftDeleteArchive}. All methods except
+ * {@link #isArchiveEnabled()} throw {@link IllegalStateException} for other entities.
+ */
+@NoRepositoryBean
+public interface ArchiveRepository<T, ID> {
+
+    boolean isArchiveEnabled();
+
+    /**
+     * @return {@literal true} if soft deleted rows are moved to the archive by the deleting transaction
+     */
+    boolean isArchiveSynchronous();
+
+    /**
+     * Moves up to {@code limit} soft deleted rows from the entity table to the archive table.
+     *
+     * @return number of moved rows
+     */
+    int archiveDeleted(int limit);
+
+    /**
+     * Loads archived entities. Returned instances are detached.
+     */
+    List<T> findArchivedById(Iterable<ID> ids);
+
+    /**
+     * Moves rows back from the archive table to the entity table and clears their deleted date.
+     *
+     * @return number of restored rows
+     */
+    int restoreFromArchive(Iterable<ID> ids);
+
+    /**
+     * Physically deletes up to {@code limit} archived rows soft deleted before the given date.
+     *
+     * @return number of deleted rows
+     */
+    int purgeArchivedBefore(LocalDate deletedBefore, int limit);
+}
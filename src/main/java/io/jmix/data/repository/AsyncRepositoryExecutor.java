@@ -0,0 +1,226 @@
+package io.jmix.data.repository;
+
+import io.jmix.data.config.JmixDataProperties;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.data.repository.core.support.RepositoryProxyPostProcessor;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes repository methods declared to return {@link CompletableFuture}, for example
+ * {@code CompletableFuture<List<Order>> findByCustomer(Customer customer)}. The whole invocation, including
+ * {@link io.jmix.data.config.ExternalReference} resolution, runs on the executor named by
+ * {@code jmix.data.async.executor} or on a built-in bounded pool, with its own {@link EntityManager} and outside
+ * of the caller's transaction. The {@link SoftDeleteScope} mode of the caller is kept.
+ * <p>
+ * The EntityManager is bound to the executor thread for the whole invocation, so
+ * {@link io.jmix.data.config.CachedQuery} and {@link io.jmix.data.config.SingleFlight} do not apply to asynchronous
+ * methods.
+ * <p>
+ * When the executor rejects a task, the returned future is completed with {@link RejectedExecutionException}.
+ */
+@Component
+public class AsyncRepositoryExecutor implements ApplicationContextAware, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncRepositoryExecutor.class);
+
+    private ApplicationContext applicationContext;
+
+    private JmixDataProperties properties;
+
+    private volatile Executor executor;
+
+    private ExecutorService ownExecutor;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+        this.properties = new JmixDataProperties(applicationContext.getEnvironment());
+    }
+
+    /**
+     * @return post processor adding the asynchronous execution to repositories with {@link CompletableFuture} methods
+     */
+    public RepositoryProxyPostProcessor createRepositoryProxyPostProcessor(EntityManagerFactory emf) {
+        return (factory, repositoryInformation) -> {
+            if (Arrays.stream(repositoryInformation.getRepositoryInterface().getMethods()).anyMatch(AsyncRepositoryExecutor::isAsync)) {
+                factory.addAdvice(new AsyncInterceptor(emf));
+            }
+        };
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+            ownExecutor = null;
+        }
+    }
+
+    static boolean isAsync(Method method) {
+        return method.getReturnType() == CompletableFuture.class;
+    }
+
+    private Executor getExecutor() {
+        Executor current = executor;
+        if (current == null) {
+            synchronized (this) {
+                current = executor;
+                if (current == null) {
+                    current = createExecutor();
+                    executor = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Executor createExecutor() {
+        String beanName = properties.getAsyncExecutor();
+        if (!beanName.isEmpty()) {
+            return applicationContext.getBean(beanName, Executor.class);
+        }
+        int poolSize = Math.max(1, properties.getAsyncPoolSize());
+        int queueCapacity = Math.max(1, properties.getAsyncQueueCapacity());
+        if (properties.isAsyncVirtualThreads()) {
+            ExecutorService virtualThreads = createVirtualThreadExecutor();
+            if (virtualThreads != null) {
+                ownExecutor = virtualThreads;
+                // running and waiting tasks are bounded like the ones of the pool and its queue
+                Semaphore accepted = new Semaphore(poolSize + queueCapacity);
+                Semaphore running = new Semaphore(poolSize);
+                return task -> {
+                    if (!accepted.tryAcquire()) {
+                        throw new RejectedExecutionException(String.format(
+                                "%d asynchronous repository tasks are running or waiting", poolSize + queueCapacity));
+                    }
+                    try {
+                        virtualThreads.execute(() -> {
+                            running.acquireUninterruptibly();
+                            try {
+                                task.run();
+                            } finally {
+                                running.release();
+                                accepted.release();
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        accepted.release();
+                        throw e;
+                    }
+                };
+            }
+            log.warn("Virtual threads are not supported by the JVM, using a pool of {} threads", poolSize);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ownExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "jmix-repository-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ((ThreadPoolExecutor) ownExecutor).allowCoreThreadTimeOut(true);
+        return ownExecutor;
+    }
+
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private class AsyncInterceptor implements MethodInterceptor {
+
+        private final EntityManagerFactory emf;
+
+        AsyncInterceptor(EntityManagerFactory emf) {
+            this.emf = emf;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            if (!isAsync(invocation.getMethod())) {
+                return invocation.proceed();
+            }
+            CompletableFuture<Object> result = new CompletableFuture<>();
+            DeletedRows deletedRows = SoftDeleteScope.current();
+            try {
+                getExecutor().execute(() -> SoftDeleteScope.run(deletedRows, () -> proceed(invocation, result)));
+                submitted.incrementAndGet();
+            } catch (RejectedExecutionException e) {
+                rejected.incrementAndGet();
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void proceed(MethodInvocation invocation, CompletableFuture<Object> result) {
+            boolean bound = !TransactionSynchronizationManager.hasResource(emf);
+            if (bound) {
+                TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(emf.createEntityManager()));
+            }
+            try {
+                // the repository returns a completed future converted from the query result
+                Object value = invocation.proceed();
+                if (value instanceof CompletableFuture) {
+                    ((CompletableFuture<Object>) value).whenComplete((it, e) -> {
+                        if (e != null) {
+                            result.completeExceptionally(e);
+                        } else {
+                            result.complete(it);
+                        }
+                    });
+                } else {
+                    result.complete(value);
+                }
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                if (bound) {
+                    EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.unbindResource(emf);
+                    EntityManagerFactoryUtils.closeEntityManager(holder.getEntityManager());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package io.jmix.data.repository;
+
+import org.springframework.data.repository.NoRepositoryBean;
+
+/**
+ * Bulk ingestion API. Entities are written in chunks: the persistence context is flushed and cleared after every
+ * chunk, so memory consumption does not depend on the number of saved entities.
+ * <p>
+ * Note that clearing the persistence context detaches all entities loaded by the current transaction, including
+ * ones loaded before the call.
+ */
+@NoRepositoryBean
+public interface BatchSaveRepository<T> {
+
+    /**
+     * Saves entities in chunks aligned with the JDBC batch size of the persistence provider, using
+     * {@code persist} for new entities and {@code merge} for the others.
+     */
+    <S extends T> BatchSaveResult saveAllInBatches(Iterable<S> entities);
+
+    /**
+     * Saves entities in chunks.
+     *
+     * @param entities    entities to save
+     * @param batchSize   number of entities between flushes, rounded to a multiple of the JDBC batch size;
+     *                    non-positive value means the default size
+     * @param persistOnly if {@literal true}, all entities are treated as new and persisted without checking their state,
+     *                    otherwise existing entities are merged
+     */
+    <S extends T> BatchSaveResult saveAllInBatches(Iterable<S> entities, int batchSize, boolean persistOnly);
+}
@@ -0,0 +1,45 @@
+package io.jmix.data.repository;
+
+/**
+ * Statistics of a {@link BatchSaveRepository#saveAllInBatches} call.
+ */
+public class BatchSaveResult {
+
+    private final long savedCount;
+    private final int batchCount;
+    private final int batchSize;
+    private final long durationMillis;
+
+    public BatchSaveResult(long savedCount, int batchCount, int batchSize, long durationMillis) {
+        this.savedCount = savedCount;
+        this.batchCount = batchCount;
+        this.batchSize = batchSize;
+        this.durationMillis = durationMillis;
+    }
+
+    public long getSavedCount() {
+        return savedCount;
+    }
+
+    public int getBatchCount() {
+        return batchCount;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public double getEntitiesPerSecond() {
+        return durationMillis == 0 ? savedCount * 1000.0 : savedCount * 1000.0 / durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d entities in %d batches of %d, %d ms (%.1f entities/s)",
+                savedCount, batchCount, batchSize, durationMillis, getEntitiesPerSecond());
+    }
+}
@@ -0,0 +1,51 @@
+package io.jmix.data.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.lang.Nullable;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Bulk export of basic attributes to a compressed columnar file. Attribute values are read with scalar queries,
+ * without creating entities, outside of the caller's transaction and with the soft delete filter of the current
+ * {@link SoftDeleteScope} mode.
+ * <p>
+ * File format, all numbers big-endian:
+ * <ul>
+ *     <li>header: magic bytes {@code JMXC}, format version byte {@code 1}, number of columns as an int, then the
+ *     name and the type of every column as {@link java.io.DataOutput#writeUTF} strings</li>
+ *     <li>batches of up to 4096 rows: the number of rows, the raw and the compressed length of the batch as ints,
+ *     then the batch data compressed with zlib</li>
+ *     <li>a batch with zero rows marking the end of the file</li>
+ * </ul>
+ * Batch data contains the columns one after another: a null bitmap of {@code (rows + 7) / 8} bytes, the least
+ * significant bit of the first byte for the first row, followed by the non-null values of the column:
+ * <ul>
+ *     <li>{@code LONG}, {@code INT}, {@code SHORT}, {@code BYTE}, {@code DOUBLE}, {@code FLOAT}: the value</li>
+ *     <li>{@code BOOLEAN}: one byte</li>
+ *     <li>{@code STRING}, {@code BYTES}: int length and the bytes, strings in UTF-8, enums by name</li>
+ *     <li>{@code DECIMAL}: int scale, int length and the unscaled value as two's complement bytes</li>
+ *     <li>{@code DATE}: long epoch day, also of {@code java.util.Date} attributes mapped as
+ *     {@code @Temporal(DATE)}</li>
+ *     <li>{@code TIME}: long nano of day, also of {@code java.util.Date} attributes mapped as
+ *     {@code @Temporal(TIME)}</li>
+ *     <li>{@code TIMESTAMP}: long epoch second and int nano, local date-times as UTC</li>
+ *     <li>{@code UUID}: two longs, the most significant bits first</li>
+ * </ul>
+ */
+@NoRepositoryBean
+public interface ColumnarExportRepository<T> {
+
+    /**
+     * Exports all basic attributes, the id attribute first and the others by name.
+     */
+    ColumnarExportResult exportColumnar(@Nullable Specification<T> spec, Path target);
+
+    /**
+     * Exports the given basic attributes in the given order. The target file is replaced; it is deleted if the
+     * export fails.
+     */
+    ColumnarExportResult exportColumnar(@Nullable Specification<T> spec, List<String> attributes, Path target);
+}
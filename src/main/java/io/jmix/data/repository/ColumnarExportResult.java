@@ -0,0 +1,48 @@
+package io.jmix.data.repository;
+
+/**
+ * Statistics of a {@link ColumnarExportRepository#exportColumnar} call.
+ */
+public class ColumnarExportResult {
+
+    private final long rowCount;
+    private final int batchCount;
+    private final long bytesWritten;
+    private final long durationMillis;
+
+    public ColumnarExportResult(long rowCount, int batchCount, long bytesWritten, long durationMillis) {
+        this.rowCount = rowCount;
+        this.batchCount = batchCount;
+        this.bytesWritten = bytesWritten;
+        this.durationMillis = durationMillis;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * @return size of the written file
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return durationMillis == 0 ? rowCount * 1000.0 : rowCount * 1000.0 / durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows in %d batches, %d bytes, %d ms (%.1f rows/s)",
+                rowCount, batchCount, bytesWritten, durationMillis, getRowsPerSecond());
+    }
+}
@@ -0,0 +1,532 @@
+package io.jmix.data.repository;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Member;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes scalar query results to the file format described in {@link ColumnarExportRepository}. Rows are collected
+ * into column batches on the calling thread; a writer thread encodes, compresses and writes the batches, taking
+ * them from a bounded queue.
+ */
+class ColumnarExporter<T> {
+
+    private static final byte[] MAGIC = {'J', 'M', 'X', 'C'};
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final int BATCH_SIZE = 4096;
+
+    private static final int QUEUE_CAPACITY = 4;
+
+    private static final long POLL_MILLIS = 100;
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    private final EntityManager em;
+    private final Class<T> domainClass;
+
+    ColumnarExporter(EntityManager em, Class<T> domainClass) {
+        this.em = em;
+        this.domainClass = domainClass;
+    }
+
+    /**
+     * @return basic attributes of the entity, the id attribute first and the others by name
+     */
+    List<String> getBasicAttributes() {
+        EntityType<T> entityType = em.getMetamodel().entity(domainClass);
+        return entityType.getSingularAttributes().stream()
+                .filter(attribute -> attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC)
+                .sorted(Comparator.comparing((SingularAttribute<? super T, ?> attribute) -> !attribute.isId())
+                        .thenComparing(Attribute::getName))
+                .map(Attribute::getName)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param spec        specification of exported entities including the soft delete filter
+     * @param idAttribute id attribute selected for the id filter
+     * @param idFilter    filter of exported rows by id or {@literal null}
+     */
+    ColumnarExportResult export(Specification<T> spec, List<String> attributes, Path target,
+                                @Nullable String idAttribute, @Nullable java.util.function.Predicate<Object> idFilter) {
+        long start = System.currentTimeMillis();
+        List<ColumnType> types = getColumnTypes(attributes);
+
+        EntityManager readEm = em.getEntityManagerFactory().createEntityManager();
+        EntityTransaction transaction = PartitionedScanner.beginReadTransaction(readEm);
+        Writer writer = null;
+        boolean completed = false;
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             Stream<Object[]> rows = createQuery(readEm, spec, attributes, idFilter != null ? idAttribute : null)) {
+            writer = new Writer(channel, attributes, types);
+            Thread thread = new Thread(writer, "jmix-columnar-export-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.start();
+
+            long rowCount = 0;
+            Batch batch = new Batch(attributes.size());
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                if (idFilter != null && !idFilter.test(row[attributes.size()])) {
+                    continue;
+                }
+                batch.add(row);
+                rowCount++;
+                if (batch.size == BATCH_SIZE) {
+                    writer.put(batch);
+                    batch = new Batch(attributes.size());
+                }
+            }
+            if (batch.size > 0) {
+                writer.put(batch);
+            }
+            writer.put(Batch.END);
+            thread.join();
+            writer.checkFailure();
+            completed = true;
+            return new ColumnarExportResult(rowCount, writer.batchCount, writer.bytesWritten,
+                    System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Cannot export " + domainClass.getSimpleName() + " to " + target, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while exporting " + domainClass.getSimpleName(), e);
+        } finally {
+            if (writer != null) {
+                writer.cancelled = true;
+            }
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            readEm.close();
+            if (!completed) {
+                try {
+                    Files.deleteIfExists(target);
+                } catch (IOException e) {
+                    // the original failure is reported
+                }
+            }
+        }
+    }
+
+    private List<ColumnType> getColumnTypes(List<String> attributes) {
+        if (attributes.isEmpty()) {
+            throw new IllegalArgumentException("No attributes to export");
+        }
+        EntityType<T> entityType = em.getMetamodel().entity(domainClass);
+        List<ColumnType> types = new ArrayList<>(attributes.size());
+        for (String name : attributes) {
+            Attribute<? super T, ?> attribute;
+            try {
+                attribute = entityType.getAttribute(name);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Entity " + domainClass.getName() + " has no attribute " + name, e);
+            }
+            ColumnType type = attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC
+                    ? ColumnType.of(attribute.getJavaType(), getTemporalType(attribute)) : null;
+            if (type == null) {
+                throw new IllegalArgumentException(String.format("Attribute %s of %s cannot be exported, only basic " +
+                        "attributes of number, string, date, time, UUID and binary types are supported",
+                        name, domainClass.getName()));
+            }
+            types.add(type);
+        }
+        return types;
+    }
+
+    /**
+     * @return temporal type of a {@link Date} attribute, the provider reads {@code java.sql.Date} and {@code Time}
+     * values for {@code DATE} and {@code TIME}
+     */
+    @Nullable
+    private static TemporalType getTemporalType(Attribute<?, ?> attribute) {
+        Member member = attribute.getJavaMember();
+        Temporal temporal = member instanceof AnnotatedElement
+                ? ((AnnotatedElement) member).getAnnotation(Temporal.class) : null;
+        return temporal != null ? temporal.value() : null;
+    }
+
+    private Stream<Object[]> createQuery(EntityManager readEm, Specification<T> spec, List<String> attributes,
+                                         @Nullable String idAttribute) {
+        CriteriaBuilder builder = readEm.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = builder.createQuery(Object[].class);
+        Root<T> root = query.from(domainClass);
+        List<Selection<?>> selections = new ArrayList<>(attributes.size() + 1);
+        attributes.forEach(attribute -> selections.add(root.get(attribute)));
+        if (idAttribute != null) {
+            selections.add(root.get(idAttribute));
+        }
+        query.multiselect(selections);
+        Predicate predicate = spec.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return readEm.createQuery(query)
+                .setHint(PartitionedScanner.FETCH_SIZE_HINT, PartitionedScanner.FETCH_SIZE)
+                .setHint(PartitionedScanner.READ_ONLY_HINT, true)
+                .getResultStream();
+    }
+
+    private static final class Batch {
+
+        static final Batch END = new Batch(0);
+
+        private final Object[][] columns;
+        private int size;
+
+        Batch(int columnCount) {
+            columns = new Object[columnCount][columnCount > 0 ? BATCH_SIZE : 0];
+        }
+
+        void add(Object[] row) {
+            for (int i = 0; i < columns.length; i++) {
+                columns[i][size] = row[i];
+            }
+            size++;
+        }
+    }
+
+    /**
+     * Encodes, compresses and writes batches taken from a bounded queue.
+     */
+    private static final class Writer implements Runnable {
+
+        private final FileChannel channel;
+        private final List<String> names;
+        private final List<ColumnType> types;
+        private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        private final RawBuffer raw = new RawBuffer();
+        private final RawBuffer compressed = new RawBuffer();
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+
+        private volatile Throwable failure;
+        private volatile boolean cancelled;
+        private volatile int batchCount;
+        private volatile long bytesWritten;
+
+        Writer(FileChannel channel, List<String> names, List<ColumnType> types) {
+            this.channel = channel;
+            this.names = names;
+            this.types = types;
+        }
+
+        void put(Batch batch) throws InterruptedException {
+            while (!queue.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        }
+
+        void checkFailure() {
+            Throwable e = failure;
+            if (e == null) {
+                return;
+            }
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            throw new DataAccessResourceFailureException("Cannot write export file", e);
+        }
+
+        @Override
+        public void run() {
+            try {
+                writeHeader();
+                Batch batch;
+                while ((batch = take()) != Batch.END) {
+                    if (batch == null) {
+                        return;
+                    }
+                    writeBatch(batch);
+                }
+                // end marker
+                write(ByteBuffer.allocate(3 * Integer.BYTES));
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                deflater.end();
+            }
+        }
+
+        @Nullable
+        private Batch take() throws InterruptedException {
+            Batch batch;
+            while ((batch = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                if (cancelled) {
+                    return null;
+                }
+            }
+            return batch;
+        }
+
+        private void writeHeader() throws IOException {
+            raw.reset();
+            DataOutputStream out = new DataOutputStream(raw);
+            out.write(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                out.writeUTF(names.get(i));
+                out.writeUTF(types.get(i).name());
+            }
+            write(ByteBuffer.wrap(raw.array(), 0, raw.size()));
+        }
+
+        private void writeBatch(Batch batch) throws IOException {
+            raw.reset();
+            DataOutputStream out = new DataOutputStream(raw);
+            for (int column = 0; column < batch.columns.length; column++) {
+                Object[] values = batch.columns[column];
+                byte[] nulls = new byte[(batch.size + 7) / 8];
+                for (int row = 0; row < batch.size; row++) {
+                    if (values[row] == null) {
+                        nulls[row / 8] |= 1 << (row % 8);
+                    }
+                }
+                out.write(nulls);
+                ColumnType type = types.get(column);
+                for (int row = 0; row < batch.size; row++) {
+                    if (values[row] != null) {
+                        type.write(out, values[row]);
+                    }
+                }
+            }
+
+            compressed.reset();
+            deflater.reset();
+            try (DeflaterOutputStream deflated = new DeflaterOutputStream(compressed, deflater)) {
+                raw.writeTo(deflated);
+            }
+            ByteBuffer header = ByteBuffer.allocate(3 * Integer.BYTES);
+            header.putInt(batch.size).putInt(raw.size()).putInt(compressed.size()).flip();
+            write(header);
+            write(ByteBuffer.wrap(compressed.array(), 0, compressed.size()));
+            batchCount++;
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                bytesWritten += channel.write(buffer);
+            }
+        }
+    }
+
+    private static final class RawBuffer extends ByteArrayOutputStream {
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    private enum ColumnType {
+        LONG {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                out.writeLong(((Number) value).longValue());
+            }
+        },
+        INT {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                out.writeInt(((Number) value).intValue());
+            }
+        },
+        SHORT {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                out.writeShort(((Number) value).shortValue());
+            }
+        },
+        BYTE {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                out.writeByte(((Number) value).byteValue());
+            }
+        },
+        BOOLEAN {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                out.writeBoolean((Boolean) value);
+            }
+        },
+        DOUBLE {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                out.writeDouble(((Number) value).doubleValue());
+            }
+        },
+        FLOAT {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                out.writeFloat(((Number) value).floatValue());
+            }
+        },
+        STRING {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                String string = value instanceof Enum ? ((Enum<?>) value).name() : value.toString();
+                writeBytes(out, string.getBytes(StandardCharsets.UTF_8));
+            }
+        },
+        BYTES {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                writeBytes(out, (byte[]) value);
+            }
+        },
+        DECIMAL {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                BigDecimal decimal = value instanceof BigInteger ? new BigDecimal((BigInteger) value) : (BigDecimal) value;
+                out.writeInt(decimal.scale());
+                writeBytes(out, decimal.unscaledValue().toByteArray());
+            }
+        },
+        DATE {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                LocalDate date = value instanceof Date
+                        ? new java.sql.Date(((Date) value).getTime()).toLocalDate() : (LocalDate) value;
+                out.writeLong(date.toEpochDay());
+            }
+        },
+        TIME {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                LocalTime time = value instanceof Date ? new Time(((Date) value).getTime()).toLocalTime() : (LocalTime) value;
+                out.writeLong(time.toNanoOfDay());
+            }
+        },
+        TIMESTAMP {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                Instant instant;
+                if (value instanceof LocalDateTime) {
+                    instant = ((LocalDateTime) value).toInstant(ZoneOffset.UTC);
+                } else if (value instanceof Instant) {
+                    instant = (Instant) value;
+                } else if (value instanceof Timestamp) {
+                    // keeps the nanos
+                    instant = ((Timestamp) value).toInstant();
+                } else {
+                    // java.sql.Date and Time do not support toInstant()
+                    instant = Instant.ofEpochMilli(((Date) value).getTime());
+                }
+                out.writeLong(instant.getEpochSecond());
+                out.writeInt(instant.getNano());
+            }
+        },
+        UUID {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                out.writeLong(((java.util.UUID) value).getMostSignificantBits());
+                out.writeLong(((java.util.UUID) value).getLeastSignificantBits());
+            }
+        };
+
+        abstract void write(DataOutput out, Object value) throws IOException;
+
+        /**
+         * @param temporalType mapping of a {@link Date} attribute, {@literal null} for {@code TIMESTAMP}
+         */
+        @Nullable
+        static ColumnType of(Class<?> javaType, @Nullable TemporalType temporalType) {
+            Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(javaType);
+            if (type == Date.class && temporalType == TemporalType.DATE) {
+                return DATE;
+            } else if (type == Date.class && temporalType == TemporalType.TIME) {
+                return TIME;
+            }
+            if (type == Long.class) {
+                return LONG;
+            } else if (type == Integer.class) {
+                return INT;
+            } else if (type == Short.class) {
+                return SHORT;
+            } else if (type == Byte.class) {
+                return BYTE;
+            } else if (type == Boolean.class) {
+                return BOOLEAN;
+            } else if (type == Double.class) {
+                return DOUBLE;
+            } else if (type == Float.class) {
+                return FLOAT;
+            } else if (type == String.class || type == Character.class || type.isEnum()) {
+                return STRING;
+            } else if (type == byte[].class) {
+                return BYTES;
+            } else if (type == BigDecimal.class || type == BigInteger.class) {
+                return DECIMAL;
+            } else if (type == LocalDate.class || type == java.sql.Date.class) {
+                return DATE;
+            } else if (type == LocalTime.class || type == Time.class) {
+                return TIME;
+            } else if (type == LocalDateTime.class || type == Instant.class || type == Timestamp.class || type == Date.class) {
+                return TIMESTAMP;
+            } else if (type == java.util.UUID.class) {
+                return UUID;
+            }
+            return null;
+        }
+
+        private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
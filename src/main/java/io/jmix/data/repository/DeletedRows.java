@@ -0,0 +1,23 @@
+package io.jmix.data.repository;
+
+/**
+ * Which rows of soft deletable entities are returned by repository reads, see {@link SoftDeleteScope}.
+ */
+public enum DeletedRows {
+
+    /**
+     * Live rows only, the default. Repository methods of {@link SoftDeleteRepository} apply the filter only while
+     * soft delete is enabled.
+     */
+    EXCLUDE,
+
+    /**
+     * Live and soft deleted rows.
+     */
+    INCLUDE,
+
+    /**
+     * Soft deleted rows only.
+     */
+    ONLY
+}
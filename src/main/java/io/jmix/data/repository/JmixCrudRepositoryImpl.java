@@ -1,55 +1,128 @@
 package io.jmix.data.repository;
 
 
-import io.jmix.data.config.DeletedDate;
-import org.apache.commons.lang3.reflect.FieldUtils;
+import io.jmix.data.config.SoftDeleteArchive;
+import io.jmix.data.config.SoftDeleteWriteBehind;
+import io.jmix.data.metadata.EntityMetadata;
+import io.jmix.data.metadata.EntityMetadataRegistry;
+import io.jmix.data.query.QueryResultCaches;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.provider.PersistenceProvider;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
 import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
-import java.lang.reflect.Field;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.SingularAttribute;
 import java.time.LocalDate;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
-public class JmixCrudRepositoryImpl<T, ID> extends SimpleJpaRepository<T, ID> implements SoftDeleteRepository<T, ID> {
+public class JmixCrudRepositoryImpl<T, ID> extends SimpleJpaRepository<T, ID> implements SoftDeleteRepository<T, ID>,
+        BatchSaveRepository<T>, ArchiveRepository<T, ID>, PartitionedScanRepository<T>,
+        SpillToDiskRepository<T>, ColumnarExportRepository<T> {
 
     private static final Logger log = LoggerFactory.getLogger(JmixCrudRepositoryImpl.class);
 
-    private Specification<T> deletedFilter;
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final String JDBC_BATCH_SIZE_PROPERTY = "hibernate.jdbc.batch_size";
+
+    private static final int ID_CHUNK_SIZE = 1000;
+
+    private final Specification<T> liveFilter;
+
+    private final Specification<T> deletedOnlyFilter;
+
+    private final Specification<T> noFilter = (root, query, criteriaBuilder) -> criteriaBuilder.and();
 
     private EntityManager em;
 
-    private final Field deleteDateField;
+    private final JpaEntityInformation<T, ?> entityInformation;
+
+    private final EntityMetadata metadata;
+
+    private final String deletedDateAttribute;
+
+    private volatile boolean softDeleteEnabled = false;
+
+    private final SoftDeleteArchiver<T> archiver;
+
+    private final SoftDeleteCascader cascader;
+
+    private final SoftDeleteWriteBehindQueue writeBehindQueue;
+
+    @Nullable
+    private volatile QueryResultCaches queryResultCaches;
+
+    private final PartitionedScanner<T> scanner;
+
+    private final ResultSpiller<T> spiller;
 
-    private boolean softDeleteEnabled = false;
+    private final ColumnarExporter<T> exporter;
 
     public JmixCrudRepositoryImpl(JpaEntityInformation<T, ?> entityInformation, EntityManager entityManager) {
         super(entityInformation, entityManager);
         this.em = entityManager;
-        deleteDateField = setupDeletedField(entityInformation.getJavaType());
-        deletedFilter = createFilterSpecification(deleteDateField);
+        this.entityInformation = entityInformation;
+        metadata = EntityMetadataRegistry.getMetadata(entityInformation.getJavaType());
+        deletedDateAttribute = findDeletedMarkerAttribute(metadata);
+        liveFilter = (root, query, criteriaBuilder) -> criteriaBuilder.isNull(root.get(deletedDateAttribute));
+        deletedOnlyFilter = (root, query, criteriaBuilder) -> criteriaBuilder.isNotNull(root.get(deletedDateAttribute));
+        archiver = createArchiver();
+        cascader = SoftDeleteCascader.create(em, getDomainClass());
+        writeBehindQueue = createWriteBehindQueue();
+        scanner = new PartitionedScanner<>(em, getDomainClass());
+        spiller = new ResultSpiller<>(em, getDomainClass());
+        exporter = new ColumnarExporter<>(em, getDomainClass());
     }
 
     public JmixCrudRepositoryImpl(Class<T> domainClass, EntityManager entityManager) {
         super(domainClass, entityManager);
         this.em = entityManager;
-        deleteDateField = setupDeletedField(domainClass);
-        deletedFilter = createFilterSpecification(deleteDateField);
+        this.entityInformation = JpaEntityInformationSupport.getEntityInformation(domainClass, entityManager);
+        metadata = EntityMetadataRegistry.getMetadata(domainClass);
+        deletedDateAttribute = findDeletedMarkerAttribute(metadata);
+        liveFilter = (root, query, criteriaBuilder) -> criteriaBuilder.isNull(root.get(deletedDateAttribute));
+        deletedOnlyFilter = (root, query, criteriaBuilder) -> criteriaBuilder.isNotNull(root.get(deletedDateAttribute));
+        archiver = createArchiver();
+        cascader = SoftDeleteCascader.create(em, getDomainClass());
+        writeBehindQueue = createWriteBehindQueue();
+        scanner = new PartitionedScanner<>(em, getDomainClass());
+        spiller = new ResultSpiller<>(em, getDomainClass());
+        exporter = new ColumnarExporter<>(em, getDomainClass());
     }
 
     @Override
     public void setSoftDeleteEnabled(boolean softDeleteEnabled) {
         this.softDeleteEnabled = softDeleteEnabled;
-        deletedFilter = createFilterSpecification(deleteDateField);
+        invalidateCachedResults();
     }
 
     @Override
@@ -58,11 +131,23 @@ public class JmixCrudRepositoryImpl<T, ID> extends SimpleJpaRepository<T, ID> im
     }
 
     @Override
+    @Transactional
     public void deleteById(ID id) {
-        if (softDeleteEnabled) {
+        invalidateCachedResults();
+        if (softDeleteEnabled && writeBehindQueue != null) {
+            if (!writeBehindQueue.isPending(id) && em.find(getDomainClass(), id) == null) {
+                throw new EmptyResultDataAccessException(
+                        String.format("No %s entity with id %s exists!", getDomainClass(), id), 1);
+            }
+            writeBehindQueue.add(id);
+        } else if (softDeleteEnabled) {
             T entity = em.find(getDomainClass(), id);
+            if (entity == null) {
+                throw new EmptyResultDataAccessException(
+                        String.format("No %s entity with id %s exists!", getDomainClass(), id), 1);
+            }
             markAsDeleted(entity);
-            em.merge(entity);
+            afterSoftDelete(Collections.singletonList(entity));
         } else {
             super.deleteById(id);
         }
@@ -70,135 +155,773 @@ public class JmixCrudRepositoryImpl<T, ID> extends SimpleJpaRepository<T, ID> im
 
 
     @Override
+    @Transactional
     public void delete(T entity) {
-        if (softDeleteEnabled) {
-            em.merge(entity);
-            markAsDeleted(entity);
-            em.merge(entity);
+        invalidateCachedResults();
+        if (softDeleteEnabled && writeBehindQueue != null) {
+            enqueueDelete(entity);
+        } else if (softDeleteEnabled) {
+            afterSoftDelete(Collections.singletonList(softDelete(entity)));
         } else {
             super.delete(entity);
         }
     }
 
     @Override
+    @Transactional
     public void deleteAll(Iterable<? extends T> entities) {
-        if (softDeleteEnabled) {
-            entities.forEach(entity -> {
-                em.merge(entity);
-                markAsDeleted(entity);
-                em.merge(entity);
-            });
+        invalidateCachedResults();
+        if (softDeleteEnabled && writeBehindQueue != null) {
+            entities.forEach(this::enqueueDelete);
+        } else if (softDeleteEnabled) {
+            softDeleteAll(entities, true);
         } else {
             super.deleteAll(entities);
         }
     }
 
     @Override
+    @Transactional
     public void deleteInBatch(Iterable<T> entities) {
-        if (softDeleteEnabled) {
-            entities.forEach(entity -> {
-                em.merge(entity);
-                markAsDeleted(entity);
-                em.merge(entity);
-            });
+        invalidateCachedResults();
+        if (softDeleteEnabled && writeBehindQueue != null) {
+            entities.forEach(this::enqueueDelete);
+        } else if (softDeleteEnabled) {
+            softDeleteAll(entities, true);
         } else {
             super.deleteInBatch(entities);
         }
     }
 
     @Override
+    @Transactional
     public void deleteAll() {
+        invalidateCachedResults();
         if (softDeleteEnabled) {
-            super.findAll().forEach(entity -> {
-                em.merge(entity);
-                markAsDeleted(entity);
-                em.merge(entity);
-            });
+            softDeleteAll(super.findAll(), false);
         } else {
             super.deleteAll();
         }
     }
 
     @Override
+    @Transactional
     public void deleteAllInBatch() {
+        invalidateCachedResults();
         if (softDeleteEnabled) {
-            super.findAll().forEach(entity -> {
-                em.merge(entity);
-                markAsDeleted(entity);
-                em.merge(entity);
-            });
+            softDeleteAll(super.findAll(), false);
         } else {
             super.deleteAllInBatch();
         }
     }
 
+    @Override
+    @Transactional
+    public <S extends T> S save(S entity) {
+        invalidateCachedResults();
+        return super.save(entity);
+    }
+
+    @Override
+    public boolean isArchiveEnabled() {
+        return archiver != null;
+    }
+
+    @Override
+    public boolean isArchiveSynchronous() {
+        return getArchiver().isSynchronous();
+    }
+
+    @Override
+    @Transactional
+    public int archiveDeleted(int limit) {
+        invalidateCachedResults();
+        return getArchiver().archiveDeleted(limit);
+    }
+
+    @Override
+    public List<T> findArchivedById(Iterable<ID> ids) {
+        return getArchiver().findArchived(toList(ids));
+    }
+
+    @Override
+    @Transactional
+    public int restoreFromArchive(Iterable<ID> ids) {
+        invalidateCachedResults();
+        return getArchiver().restore(toList(ids));
+    }
+
+    @Override
+    @Transactional
+    public int purgeArchivedBefore(LocalDate deletedBefore, int limit) {
+        return getArchiver().purgeArchivedBefore(deletedBefore, limit);
+    }
+
+    @Override
+    public int flushPendingDeletes() {
+        return writeBehindQueue != null ? writeBehindQueue.flush() : 0;
+    }
+
+    /**
+     * Stops the write-behind queue of the repository, if any, flushing pending deletes.
+     */
+    public void shutdown() {
+        if (writeBehindQueue != null) {
+            writeBehindQueue.shutdown();
+        }
+    }
+
+    /**
+     * Sets the transaction manager of write-behind soft delete flushes.
+     */
+    void setTransactionManager(Supplier<PlatformTransactionManager> transactionManager) {
+        if (writeBehindQueue != null) {
+            writeBehindQueue.setTransactionManager(transactionManager);
+        }
+    }
+
+    /**
+     * Starts background flushes of the write-behind queue of the repository, if any.
+     */
+    void setFlushScheduler(@Nullable SoftDeleteFlushScheduler flushScheduler) {
+        if (writeBehindQueue == null) {
+            return;
+        }
+        if (flushScheduler == null) {
+            throw new IllegalStateException("@SoftDeleteWriteBehind entity " + getDomainClass().getName()
+                    + " requires a SoftDeleteFlushScheduler bean");
+        }
+        writeBehindQueue.start(flushScheduler);
+    }
+
+    /**
+     * Sets the registry of the {@link io.jmix.data.config.CachedQuery} results invalidated by modifications.
+     */
+    void setQueryResultCaches(@Nullable QueryResultCaches queryResultCaches) {
+        this.queryResultCaches = queryResultCaches;
+    }
 
     @Override
+    @Transactional
     public void purge(T entity) {
+        invalidateCachedResults();
         super.delete(entity);
     }
 
     @Override
+    @Transactional
     public void purgeById(ID id) {
+        invalidateCachedResults();
         super.deleteById(id);
     }
 
     @Override
+    @Transactional
     public void purgeAll(Iterable<? extends T> entities) {
+        invalidateCachedResults();
         super.deleteAll(entities);
     }
 
     @Override
+    @Transactional
     public void purgeAll() {
+        invalidateCachedResults();
         super.deleteAll();
     }
 
+    @Override
+    @Transactional
+    public <S extends T> BatchSaveResult saveAllInBatches(Iterable<S> entities) {
+        return saveAllInBatches(entities, 0, false);
+    }
+
+    @Override
+    @Transactional
+    public <S extends T> BatchSaveResult saveAllInBatches(Iterable<S> entities, int batchSize, boolean persistOnly) {
+        invalidateCachedResults();
+        int chunkSize = getChunkSize(batchSize);
+        long start = System.currentTimeMillis();
+        long saved = 0;
+        int batches = 0;
+
+        for (S entity : entities) {
+            if (persistOnly || entityInformation.isNew(entity)) {
+                em.persist(entity);
+            } else {
+                em.merge(entity);
+            }
+            if (++saved % chunkSize == 0) {
+                em.flush();
+                em.clear();
+                batches++;
+            }
+        }
+        if (saved % chunkSize != 0) {
+            em.flush();
+            em.clear();
+            batches++;
+        }
+
+        BatchSaveResult result = new BatchSaveResult(saved, batches, chunkSize, System.currentTimeMillis() - start);
+        log.debug("Saved {}: {}", getDomainClass().getSimpleName(), result);
+        return result;
+    }
+
+    @Override
+    @Transactional
+    @SuppressWarnings("rawtypes")
+    public int purgeDeletedBefore(LocalDate deletedBefore, int limit) {
+        invalidateCachedResults();
+        String idAttribute = getSingleIdAttribute();
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+
+        CriteriaQuery<Object> idQuery = builder.createQuery(Object.class);
+        Root<T> root = idQuery.from(getDomainClass());
+        ParameterExpression<LocalDate> dateParameter = builder.parameter(LocalDate.class);
+        idQuery.select(root.get(idAttribute))
+                .where(builder.lessThan(root.get(deletedDateAttribute), dateParameter))
+                .orderBy(builder.asc(root.get(idAttribute)));
+        List<Object> ids = em.createQuery(idQuery)
+                .setParameter(dateParameter, deletedBefore)
+                .setMaxResults(limit)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        CriteriaDelete<T> delete = builder.createCriteriaDelete(getDomainClass());
+        Root<T> deleteRoot = delete.from(getDomainClass());
+        ParameterExpression<Collection> idsParameter = builder.parameter(Collection.class);
+        delete.where(deleteRoot.get(idAttribute).in(idsParameter));
+        return em.createQuery(delete).setParameter(idsParameter, ids).executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public long restoreAll(@Nullable Specification<T> spec) {
+        invalidateCachedResults();
+        String idAttribute = getSingleIdAttribute();
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+
+        CriteriaQuery<Object> idQuery = builder.createQuery(Object.class);
+        Root<T> root = idQuery.from(getDomainClass());
+        Predicate deleted = builder.isNotNull(root.get(deletedDateAttribute));
+        idQuery.select(root.get(idAttribute))
+                .where(spec == null ? deleted : builder.and(deleted, spec.toPredicate(root, idQuery, builder)));
+        TypedQuery<Object> query = em.createQuery(idQuery).setMaxResults(ID_CHUNK_SIZE);
+
+        // restored rows do not match the query anymore, so the first chunk is always the next one
+        long restored = 0;
+        List<Object> ids;
+        while (!(ids = query.getResultList()).isEmpty()) {
+            int updated = restoreChunk(idAttribute, ids);
+            restored += updated;
+            if (updated == 0) {
+                break;
+            }
+        }
+        log.debug("Restored {} soft deleted {}", restored, getDomainClass().getSimpleName());
+        return restored;
+    }
+
+    @Override
+    @Transactional
+    public long restoreById(Iterable<ID> ids) {
+        invalidateCachedResults();
+        String idAttribute = getSingleIdAttribute();
+        long restored = 0;
+        List<Object> chunk = new ArrayList<>(ID_CHUNK_SIZE);
+        for (ID id : ids) {
+            chunk.add(id);
+            if (chunk.size() == ID_CHUNK_SIZE) {
+                restored += restoreChunk(idAttribute, chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            restored += restoreChunk(idAttribute, chunk);
+        }
+        return restored;
+    }
+
+    @Override
+    public Optional<LocalDate> findOldestDeletedDate() {
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaQuery<LocalDate> query = builder.createQuery(LocalDate.class);
+        Root<T> root = query.from(getDomainClass());
+        query.select(builder.least(root.<LocalDate>get(deletedDateAttribute)));
+        return Optional.ofNullable(em.createQuery(query).getSingleResult());
+    }
+
+    @Override
+    public Optional<T> findById(ID id) {
+        Optional<T> entity = super.findById(id);
+        switch (getDeletedRows()) {
+            case EXCLUDE:
+                return entity.filter(it -> metadata.getValue(it, deletedDateAttribute) == null && !isDeletePending(it));
+            case ONLY:
+                return entity.filter(it -> metadata.getValue(it, deletedDateAttribute) != null);
+            default:
+                return entity;
+        }
+    }
+
+    @Override
+    public boolean existsById(ID id) {
+        SingularAttribute<? super T, ?> idAttribute = entityInformation.getIdAttribute();
+        DeletedRows deletedRows = getDeletedRows();
+        if (deletedRows == DeletedRows.INCLUDE) {
+            return super.existsById(id);
+        }
+        if (deletedRows == DeletedRows.EXCLUDE && writeBehindQueue != null && writeBehindQueue.isPending(id)) {
+            return false;
+        }
+        if (idAttribute == null || entityInformation.hasCompositeId()) {
+            return findById(id).isPresent();
+        }
+
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaQuery<Object> query = builder.createQuery(Object.class);
+        Root<T> root = query.from(getDomainClass());
+        ParameterExpression<?> idParameter = builder.parameter(entityInformation.getIdType(), idAttribute.getName());
+        query.select(root.get(idAttribute.getName()))
+                .where(builder.equal(root.get(idAttribute.getName()), idParameter), getDeletedFilter(deletedRows).toPredicate(root, query, builder));
+
+        TypedQuery<Object> typedQuery = em.createQuery(query);
+        typedQuery.setParameter(idAttribute.getName(), id);
+        return !typedQuery.setMaxResults(1).getResultList().isEmpty();
+    }
+
+    @Override
+    public List<T> findAllById(Iterable<ID> ids) {
+        DeletedRows deletedRows = getDeletedRows();
+        if (deletedRows == DeletedRows.INCLUDE) {
+            return super.findAllById(ids);
+        }
+        if (!ids.iterator().hasNext()) {
+            return Collections.emptyList();
+        }
+        SingularAttribute<? super T, ?> idAttribute = entityInformation.getIdAttribute();
+        if (idAttribute == null || entityInformation.hasCompositeId()) {
+            List<T> results = new ArrayList<>();
+            for (ID id : ids) {
+                findById(id).ifPresent(results::add);
+            }
+            return results;
+        }
+
+        List<T> results = new ArrayList<>();
+        List<ID> chunk = new ArrayList<>(ID_CHUNK_SIZE);
+        for (ID id : ids) {
+            chunk.add(id);
+            if (chunk.size() == ID_CHUNK_SIZE) {
+                results.addAll(findChunkById(idAttribute.getName(), chunk, deletedRows));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(findChunkById(idAttribute.getName(), chunk, deletedRows));
+        }
+        return excludePendingDeletes(results);
+    }
+
+    @Override
+    public long count() {
+        DeletedRows deletedRows = getDeletedRows();
+        if (deletedRows == DeletedRows.INCLUDE) {
+            return super.count();
+        }
+        Specification<T> deletedFilter = getDeletedFilter(deletedRows);
+        return super.count(deletedFilter) - countPendingDeletes(deletedFilter);
+    }
+
+    @Override
+    public long count(@Nullable Specification<T> spec) {
+        Specification<T> filtered = withDeletedFilter(spec);
+        return super.count(filtered) - countPendingDeletes(filtered);
+    }
+
+    @Override
+    public Optional<T> findOne(@Nullable Specification<T> spec) {
+        return super.findOne(withDeletedFilter(spec));
+    }
+
+    @Override
+    public List<T> findAll(Sort sort) {
+        return findAll((Specification<T>) null, sort);
+    }
+
+    @Override
+    public Page<T> findAll(@Nullable Specification<T> spec, Pageable pageable) {
+        Page<T> page = super.findAll(withDeletedFilter(spec), pageable);
+        if (writeBehindQueue == null || !writeBehindQueue.hasPending() || getDeletedRows() != DeletedRows.EXCLUDE) {
+            return page;
+        }
+        List<T> content = excludePendingDeletes(page.getContent());
+        return new PageImpl<>(content, pageable, page.getTotalElements() - (page.getNumberOfElements() - content.size()));
+    }
+
     @Override
     public List<T> findAll() {
-        TypedQuery<T> typedQuery = getQuery(deletedFilter, Sort.unsorted());
+        TypedQuery<T> typedQuery = getQuery(getDeletedFilter(getDeletedRows()), Sort.unsorted());
         logQueryString(typedQuery);
-        return typedQuery.getResultList();
+        return excludePendingDeletes(typedQuery.getResultList());
     }
 
     @Override
     public List<T> findAll(Specification<T> spec, Sort sort) {
-        TypedQuery<T> typedQuery = getQuery(spec != null ? spec.and(deletedFilter) : deletedFilter, sort);
+        TypedQuery<T> typedQuery = getQuery(withDeletedFilter(spec), sort);
         logQueryString(typedQuery);
-        return typedQuery.getResultList();
+        return excludePendingDeletes(typedQuery.getResultList());
     }
 
     @Override
     public List<T> findAll(Specification<T> spec) {
-        TypedQuery<T> typedQuery = getQuery(spec != null ? spec.and(deletedFilter) : deletedFilter, Sort.unsorted());
+        TypedQuery<T> typedQuery = getQuery(withDeletedFilter(spec), Sort.unsorted());
         logQueryString(typedQuery);
-        return typedQuery.getResultList();
+        return excludePendingDeletes(typedQuery.getResultList());
+    }
+
+    @Override
+    public PartitionedScanResult scanPartitioned(@Nullable Specification<T> spec, int partitions, Consumer<? super T> consumer) {
+        return scanPartitioned(spec, null, partitions, false, consumer);
+    }
+
+    @Override
+    public PartitionedScanResult scanPartitioned(@Nullable Specification<T> spec, @Nullable String attribute, int partitions,
+                                                 boolean ordered, Consumer<? super T> consumer) {
+        boolean excludePending = writeBehindQueue != null && getDeletedRows() == DeletedRows.EXCLUDE;
+        PartitionedScanResult result = scanner.scan(withDeletedFilter(spec),
+                attribute != null ? attribute : getSingleIdAttribute(), partitions, ordered,
+                excludePending ? entity -> !isDeletePending(entity) : entity -> true, consumer);
+        log.debug("Scanned {}: {}", getDomainClass().getSimpleName(), result);
+        return result;
     }
 
-    private Field findDeletedMarkerField(Class<T> aClass) {
-        List<Field> fields = Arrays.stream(FieldUtils.getAllFields(aClass))
-                .filter(field -> field.isAnnotationPresent(DeletedDate.class))
-                .collect(Collectors.toList());
-        if (fields.size() != 1) {
-            throw new IllegalStateException("Entity should have exactly one deletedBy field, current amount is: "+fields.size());
+    @Override
+    public SpilledResult<T> findAllSpilled(@Nullable Specification<T> spec, Sort sort) {
+        boolean excludePending = writeBehindQueue != null && getDeletedRows() == DeletedRows.EXCLUDE;
+        SpilledResult<T> result = spiller.spill(withDeletedFilter(spec), sort,
+                excludePending ? entity -> !isDeletePending(entity) : entity -> true);
+        log.debug("Spilled {}: {}", getDomainClass().getSimpleName(), result);
+        return result;
+    }
+
+    @Override
+    public ColumnarExportResult exportColumnar(@Nullable Specification<T> spec, java.nio.file.Path target) {
+        return exportColumnar(spec, exporter.getBasicAttributes(), target);
+    }
+
+    @Override
+    public ColumnarExportResult exportColumnar(@Nullable Specification<T> spec, List<String> attributes,
+                                               java.nio.file.Path target) {
+        boolean excludePending = writeBehindQueue != null && writeBehindQueue.hasPending()
+                && getDeletedRows() == DeletedRows.EXCLUDE;
+        ColumnarExportResult result = exporter.export(withDeletedFilter(spec), attributes, target,
+                excludePending ? getSingleIdAttribute() : null, excludePending ? id -> !writeBehindQueue.isPending(id) : null);
+        log.debug("Exported {} to {}: {}", getDomainClass().getSimpleName(), target, result);
+        return result;
+    }
+
+    private String findDeletedMarkerAttribute(EntityMetadata metadata) {
+        String attribute = metadata.getDeletedDateAttribute();
+        if (attribute == null) {
+            throw new IllegalStateException("Entity should have exactly one deletedBy field, current amount is: 0");
         }
-        return fields.get(0);
+        return attribute;
     }
 
-    private Specification<T> createFilterSpecification(Field deleteDateField) {
-        if (softDeleteEnabled) {
-            return (Specification<T>) (root, query, criteriaBuilder) -> criteriaBuilder.isNull(root.get(deleteDateField.getName()));
+    /**
+     * Creates, but does not execute, the soft delete filtered {@code findAll} and {@code count} queries in the given
+     * {@link EntityManager} so that the persistence provider caches their plans.
+     */
+    public void warmUp(EntityManager em) {
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+
+        CriteriaQuery<T> query = builder.createQuery(getDomainClass());
+        Root<T> root = query.from(getDomainClass());
+        query.select(root).where(liveFilter.toPredicate(root, query, builder));
+        em.createQuery(query);
+
+        CriteriaQuery<Long> countQuery = builder.createQuery(Long.class);
+        Root<T> countRoot = countQuery.from(getDomainClass());
+        countQuery.select(builder.count(countRoot)).where(liveFilter.toPredicate(countRoot, countQuery, builder));
+        em.createQuery(countQuery);
+    }
+
+    @Nullable
+    private SoftDeleteArchiver<T> createArchiver() {
+        SoftDeleteArchive annotation = AnnotatedElementUtils.findMergedAnnotation(getDomainClass(), SoftDeleteArchive.class);
+        if (annotation == null) {
+            return null;
+        }
+        return new SoftDeleteArchiver<>(em, getDomainClass(), annotation, getSingleIdAttribute(), deletedDateAttribute);
+    }
+
+    @Nullable
+    private SoftDeleteWriteBehindQueue createWriteBehindQueue() {
+        SoftDeleteWriteBehind annotation = AnnotatedElementUtils.findMergedAnnotation(getDomainClass(), SoftDeleteWriteBehind.class);
+        if (annotation == null) {
+            return null;
+        }
+        if (archiver != null && archiver.isSynchronous()) {
+            throw new IllegalStateException("Entity " + getDomainClass().getName()
+                    + " cannot combine @SoftDeleteWriteBehind with synchronous @SoftDeleteArchive");
+        }
+        return new SoftDeleteWriteBehindQueue(em.getEntityManagerFactory(), getDomainClass(), annotation,
+                entityInformation.getEntityName(), getSingleIdAttribute(), deletedDateAttribute, cascader,
+                this::invalidateCachedResults);
+    }
+
+    private void enqueueDelete(T entity) {
+        Object id = entityInformation.getId(entity);
+        if (id != null) {
+            writeBehindQueue.add(id);
+        }
+    }
+
+    private boolean isDeletePending(T entity) {
+        return writeBehindQueue != null && writeBehindQueue.isPending(entityInformation.getId(entity));
+    }
+
+    /**
+     * Read-your-own-writes overlay: removes entities with queued, not yet flushed soft deletes.
+     */
+    private List<T> excludePendingDeletes(List<T> entities) {
+        if (writeBehindQueue == null || !writeBehindQueue.hasPending() || getDeletedRows() != DeletedRows.EXCLUDE) {
+            return entities;
+        }
+        List<T> result = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            if (!isDeletePending(entity)) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read-your-own-writes overlay of counts: returns the number of entities matching the specification with queued,
+     * not yet flushed soft deletes.
+     */
+    private long countPendingDeletes(Specification<T> spec) {
+        if (writeBehindQueue == null || !writeBehindQueue.hasPending() || getDeletedRows() != DeletedRows.EXCLUDE) {
+            return 0;
+        }
+        String idAttribute = getSingleIdAttribute();
+        List<Object> ids = writeBehindQueue.getPendingIds();
+        long count = 0;
+        for (int from = 0; from < ids.size(); from += ID_CHUNK_SIZE) {
+            ByIdsSpecification<T> byIds = new ByIdsSpecification<>(idAttribute);
+            TypedQuery<Long> query = getCountQuery(spec.and(byIds), getDomainClass());
+            query.setParameter(byIds.parameter, ids.subList(from, Math.min(from + ID_CHUNK_SIZE, ids.size())));
+            for (Long total : query.getResultList()) {
+                count += total == null ? 0 : total;
+            }
+        }
+        return count;
+    }
+
+    private SoftDeleteArchiver<T> getArchiver() {
+        if (archiver == null) {
+            throw new IllegalStateException("Entity " + getDomainClass().getName() + " is not annotated with @SoftDeleteArchive");
+        }
+        return archiver;
+    }
+
+    /**
+     * Soft deletes children of {@link io.jmix.data.config.CascadeSoftDelete} associations and moves just soft
+     * deleted entities to the archive table if it is enabled in synchronous mode.
+     *
+     * @param deleted managed instances of soft deleted entities
+     */
+    private void afterSoftDelete(List<T> deleted) {
+        boolean archive = archiver != null && archiver.isSynchronous();
+        if ((cascader == null && !archive) || deleted.isEmpty()) {
+            return;
+        }
+        em.flush();
+        List<Object> ids = new ArrayList<>(deleted.size());
+        deleted.forEach(entity -> ids.add(entityInformation.getId(entity)));
+        if (cascader != null) {
+            long cascaded = cascader.cascade(em, ids, LocalDate.now());
+            log.debug("Soft deleted {} children of {} {}", cascaded, ids.size(), getDomainClass().getSimpleName());
+        }
+        if (archive) {
+            archiver.archive(ids);
+            // rows are not in the entity table anymore
+            deleted.forEach(em::detach);
+        }
+    }
+
+    /**
+     * Invalidates {@link io.jmix.data.config.CachedQuery} results of the entity and of its cascaded children.
+     */
+    private void invalidateCachedResults() {
+        QueryResultCaches caches = queryResultCaches;
+        if (caches == null) {
+            return;
+        }
+        if (cascader != null) {
+            cascader.getEntityClasses().forEach(caches::invalidate);
         } else {
-            return (root, query, criteriaBuilder) -> criteriaBuilder.and();
+            caches.invalidate(getDomainClass());
         }
     }
 
+    private List<ID> toList(Iterable<ID> ids) {
+        List<ID> list = new ArrayList<>();
+        ids.forEach(list::add);
+        return list;
+    }
+
+    private String getSingleIdAttribute() {
+        SingularAttribute<? super T, ?> idAttribute = entityInformation.getIdAttribute();
+        if (idAttribute == null || entityInformation.hasCompositeId()) {
+            throw new IllegalStateException("Entity " + getDomainClass().getName() + " should have a single id attribute");
+        }
+        return idAttribute.getName();
+    }
+
+    @SuppressWarnings("rawtypes")
+    private int restoreChunk(String idAttribute, Collection<Object> ids) {
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaUpdate<T> update = builder.createCriteriaUpdate(getDomainClass());
+        Root<T> root = update.from(getDomainClass());
+        ParameterExpression<Collection> idsParameter = builder.parameter(Collection.class);
+        Path<LocalDate> deletedDate = root.get(deletedDateAttribute);
+        update.set(deletedDate, builder.nullLiteral(LocalDate.class))
+                .where(root.get(idAttribute).in(idsParameter), builder.isNotNull(deletedDate));
+        return em.createQuery(update).setParameter(idsParameter, ids).executeUpdate();
+    }
+
+    private List<T> findChunkById(String idAttribute, Collection<ID> ids, DeletedRows deletedRows) {
+        ByIdsSpecification<T> byIds = new ByIdsSpecification<>(idAttribute);
+        TypedQuery<T> query = getQuery(byIds.and(getDeletedFilter(deletedRows)), Sort.unsorted());
+        return query.setParameter(byIds.parameter, ids).getResultList();
+    }
+
+    /**
+     * Returns the number of entities saved between flushes: a multiple of the provider JDBC batch size, so that
+     * every flush produces only full JDBC batches.
+     */
+    private int getChunkSize(int batchSize) {
+        int jdbcBatchSize = 0;
+        Object property = em.getEntityManagerFactory().getProperties().get(JDBC_BATCH_SIZE_PROPERTY);
+        if (property != null) {
+            try {
+                jdbcBatchSize = Integer.parseInt(property.toString().trim());
+            } catch (NumberFormatException e) {
+                log.warn("Cannot parse {} value {}", JDBC_BATCH_SIZE_PROPERTY, property);
+            }
+        }
+        int size = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+        if (jdbcBatchSize > 0) {
+            size = Math.max(jdbcBatchSize, size / jdbcBatchSize * jdbcBatchSize);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the mode of the current read: the {@link SoftDeleteScope} mode, with {@link DeletedRows#EXCLUDE}
+     * turned into {@link DeletedRows#INCLUDE} while soft delete is disabled.
+     */
+    private DeletedRows getDeletedRows() {
+        DeletedRows deletedRows = SoftDeleteScope.current();
+        return deletedRows == DeletedRows.EXCLUDE && !softDeleteEnabled ? DeletedRows.INCLUDE : deletedRows;
+    }
+
+    private Specification<T> getDeletedFilter(DeletedRows deletedRows) {
+        switch (deletedRows) {
+            case EXCLUDE:
+                return liveFilter;
+            case ONLY:
+                return deletedOnlyFilter;
+            default:
+                return noFilter;
+        }
+    }
+
+    private Specification<T> withDeletedFilter(@Nullable Specification<T> spec) {
+        Specification<T> deletedFilter = getDeletedFilter(getDeletedRows());
+        return spec != null ? spec.and(deletedFilter) : deletedFilter;
+    }
+
+
+    /**
+     * Marks the entity as deleted, merging it only if it is detached.
+     *
+     * @return managed instance
+     */
+    private T softDelete(T entity) {
+        if (em.contains(entity)) {
+            markAsDeleted(entity);
+            return entity;
+        }
+        T managed = em.merge(entity);
+        markAsDeleted(managed);
+        // keep the deleted date of the detached argument in sync with the managed copy
+        metadata.setValue(entity, deletedDateAttribute, metadata.getValue(managed, deletedDateAttribute));
+        return managed;
+    }
+
+    /**
+     * Soft deletes the entities flushing the persistence context every {@link #getChunkSize(int)} entities.
+     *
+     * @param detachMerged whether to detach the managed copies merged from detached arguments after each flush, so
+     *                     that they do not accumulate in the persistence context; entities that were already managed
+     *                     stay managed
+     */
+    private void softDeleteAll(Iterable<? extends T> entities, boolean detachMerged) {
+        int chunkSize = getChunkSize(0);
+        List<T> deleted = new ArrayList<>();
+        List<T> merged = new ArrayList<>();
+        for (T entity : entities) {
+            T managed = softDelete(entity);
+            deleted.add(managed);
+            if (detachMerged && managed != entity) {
+                merged.add(managed);
+            }
+            if (deleted.size() == chunkSize) {
+                afterSoftDelete(deleted);
+                em.flush();
+                for (T copy : merged) {
+                    if (em.contains(copy)) {
+                        em.detach(copy);
+                    }
+                }
+                deleted = new ArrayList<>();
+                merged = new ArrayList<>();
+            }
+        }
+        afterSoftDelete(deleted);
+    }
 
     private void markAsDeleted(T entity) {
-        LocalDate now = LocalDate.now();
-        try {
-            deleteDateField.set(entity, now);
-        } catch (IllegalAccessException e) {
-            throw new IllegalStateException("Cannot set field "+deleteDateField.getName()+" value "+now);
+        metadata.setValue(entity, deletedDateAttribute, LocalDate.now());
+    }
+
+    /**
+     * {@link Specification} that restricts the id attribute with a collection parameter, so that the same query
+     * string is produced for every chunk of ids.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final class ByIdsSpecification<T> implements Specification<T> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String idAttribute;
+
+        private ParameterExpression<Collection> parameter;
+
+        ByIdsSpecification(String idAttribute) {
+            this.idAttribute = idAttribute;
+        }
+
+        @Override
+        public Predicate toPredicate(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+            parameter = criteriaBuilder.parameter(Collection.class);
+            return root.get(idAttribute).in(parameter);
         }
     }
 
@@ -209,11 +932,4 @@ public class JmixCrudRepositoryImpl<T, ID> extends SimpleJpaRepository<T, ID> im
         }
     }
 
-    private Field setupDeletedField(Class<T> javaType) {
-        Field deleteDateField = findDeletedMarkerField(javaType);
-        deleteDateField.setAccessible(true);
-        return deleteDateField;
-    }
-
-
 }
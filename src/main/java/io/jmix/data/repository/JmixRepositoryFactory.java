@@ -1,5 +1,7 @@
 package io.jmix.data.repository;
 
+import io.jmix.data.config.JmixDataProperties;
+import io.jmix.data.query.QueryResultCaches;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
@@ -7,15 +9,23 @@ import org.springframework.data.jpa.provider.PersistenceProvider;
 import org.springframework.data.jpa.provider.QueryExtractor;
 import org.springframework.data.jpa.repository.query.EscapeCharacter;
 import org.springframework.data.jpa.repository.query.JmixQueryLookupStrategy;
+import org.springframework.data.jpa.repository.query.JmixWarmableQuery;
 import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.jpa.repository.support.JpaRepositoryImplementation;
+import org.springframework.data.repository.core.RepositoryInformation;
 import org.springframework.data.repository.core.RepositoryMetadata;
 import org.springframework.data.repository.core.support.RepositoryComposition;
 import org.springframework.data.repository.query.QueryLookupStrategy;
 import org.springframework.data.repository.query.QueryMethodEvaluationContextProvider;
+import org.springframework.data.repository.query.RepositoryQuery;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.util.Assert;
 
 import javax.persistence.EntityManager;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 public class JmixRepositoryFactory extends JpaRepositoryFactory {
 
@@ -25,6 +35,11 @@ public class JmixRepositoryFactory extends JpaRepositoryFactory {
     private final QueryExtractor extractor;
     private EscapeCharacter escapeCharacter = EscapeCharacter.DEFAULT;
     private ApplicationContext applicationContext;
+    private final JmixDataProperties properties;
+    private JmixCrudRepositoryImpl<?, ?> targetRepository;
+    private Supplier<PlatformTransactionManager> transactionManager;
+    private QueryResultCaches queryResultCaches;
+    private SoftDeleteFlushScheduler flushScheduler;
 
 
     public JmixRepositoryFactory(EntityManager entityManager, ApplicationContext applicationContext) {
@@ -34,16 +49,32 @@ public class JmixRepositoryFactory extends JpaRepositoryFactory {
 
         this.entityManager = entityManager;
         this.extractor = PersistenceProvider.fromEntityManager(entityManager);
+        this.properties = new JmixDataProperties(applicationContext.getEnvironment());
 
     }
 
     @Override
     protected Optional<QueryLookupStrategy> getQueryLookupStrategy(QueryLookupStrategy.Key key, QueryMethodEvaluationContextProvider evaluationContextProvider) {
         Optional<QueryLookupStrategy> queryLookupStrategy =
-                Optional.of(JmixQueryLookupStrategy.create(entityManager, key, extractor, evaluationContextProvider, escapeCharacter, applicationContext));
+                Optional.of(JmixQueryLookupStrategy.create(entityManager, key, extractor, evaluationContextProvider, escapeCharacter, applicationContext,
+                        properties.getQueryBootstrapMode()));
         return queryLookupStrategy;
     }
 
+    @Override
+    protected JpaRepositoryImplementation<?, ?> getTargetRepository(RepositoryInformation information, EntityManager entityManager) {
+        JpaRepositoryImplementation<?, ?> repository = super.getTargetRepository(information, entityManager);
+        if (repository instanceof JmixCrudRepositoryImpl) {
+            targetRepository = (JmixCrudRepositoryImpl<?, ?>) repository;
+            if (transactionManager != null) {
+                targetRepository.setTransactionManager(transactionManager);
+            }
+            targetRepository.setQueryResultCaches(queryResultCaches);
+            targetRepository.setFlushScheduler(flushScheduler);
+        }
+        return repository;
+    }
+
     @Override
     protected Class<?> getRepositoryBaseClass(RepositoryMetadata metadata) {
         return JmixCrudRepositoryImpl.class;
@@ -59,6 +90,77 @@ public class JmixRepositoryFactory extends JpaRepositoryFactory {
         return repository;
     }
 
+    /**
+     * Sets the transaction manager of the repository transactions, it is resolved on first use.
+     */
+    public void setTransactionManager(Supplier<PlatformTransactionManager> transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * Sets the registry of the {@link io.jmix.data.config.CachedQuery} results of the application context.
+     */
+    public void setQueryResultCaches(@Nullable QueryResultCaches queryResultCaches) {
+        this.queryResultCaches = queryResultCaches;
+    }
+
+    /**
+     * Sets the scheduler of the background flushes of {@link io.jmix.data.config.SoftDeleteWriteBehind} entities.
+     */
+    public void setFlushScheduler(@Nullable SoftDeleteFlushScheduler flushScheduler) {
+        this.flushScheduler = flushScheduler;
+    }
+
+    public JmixDataProperties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Releases resources of the created repository, flushing its queued soft deletes.
+     */
+    public void shutdown() {
+        if (targetRepository != null) {
+            targetRepository.shutdown();
+        }
+    }
+
+    /**
+     * Creates, but does not execute, the CRUD queries of the repository and the given query method queries in a
+     * separate {@link EntityManager} so that the persistence provider caches their plans.
+     *
+     * @param repositoryName name used in the log
+     * @param queries        query methods of the repository
+     */
+    public void warmUp(String repositoryName, Collection<RepositoryQuery> queries) {
+        long start = System.currentTimeMillis();
+        int warmedUp = 0;
+        int failed = 0;
+
+        EntityManager warmUpEm = entityManager.getEntityManagerFactory().createEntityManager();
+        try {
+            if (targetRepository != null) {
+                targetRepository.warmUp(warmUpEm);
+            }
+            for (RepositoryQuery query : queries) {
+                if (!(query instanceof JmixWarmableQuery)) {
+                    continue;
+                }
+                try {
+                    ((JmixWarmableQuery) query).warmUp(warmUpEm);
+                    warmedUp++;
+                } catch (RuntimeException e) {
+                    failed++;
+                    log.warn("Warm-up of query for method {} failed", query.getQueryMethod(), e);
+                }
+            }
+        } finally {
+            warmUpEm.close();
+        }
+
+        log.info("Warm-up of repository {} finished in {} ms: {} queries prepared, {} failed",
+                repositoryName, System.currentTimeMillis() - start, warmedUp, failed);
+    }
+
     @Override
     public void setEscapeCharacter(EscapeCharacter escapeCharacter) {
         super.setEscapeCharacter(escapeCharacter);
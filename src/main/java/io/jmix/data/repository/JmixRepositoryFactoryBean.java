@@ -1,28 +1,73 @@
 package io.jmix.data.repository;
 
+import io.jmix.data.query.QueryResultCaches;
+import io.jmix.data.replica.ReadReplicaRouter;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.support.JpaRepositoryFactoryBean;
+import org.springframework.data.repository.core.support.QueryCreationListener;
 import org.springframework.data.repository.core.support.RepositoryFactorySupport;
+import org.springframework.data.repository.query.RepositoryQuery;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.persistence.EntityManager;
 import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class JmixRepositoryFactoryBean<T extends JpaRepository<S, ID>, S, ID extends Serializable>
-        extends JpaRepositoryFactoryBean<T, S, ID>  implements ApplicationContextAware {
+        extends JpaRepositoryFactoryBean<T, S, ID>  implements ApplicationContextAware, ApplicationListener<ContextRefreshedEvent>,
+        DisposableBean {
 
 
     private ApplicationContext applicationContext;
 
+    private JmixRepositoryFactory repositoryFactory;
+
+    private String transactionManagerName = "transactionManager";
+
+    private final List<RepositoryQuery> queries = new CopyOnWriteArrayList<>();
+
     public JmixRepositoryFactoryBean(Class<? extends T> repositoryInterface) {
         super(repositoryInterface);
     }
 
     @Override
     protected RepositoryFactorySupport createRepositoryFactory(EntityManager entityManager) {
-        return new JmixRepositoryFactory(entityManager, applicationContext);
+        ReadReplicaRouter router = applicationContext.getBeanProvider(ReadReplicaRouter.class).getIfAvailable();
+        boolean routing = router != null && router.isEnabled();
+        repositoryFactory = new JmixRepositoryFactory(
+                routing ? router.createRoutingEntityManager(entityManager) : entityManager, applicationContext);
+        // asynchronous methods run the routing and all other interceptors in the executor thread
+        AsyncRepositoryExecutor asyncExecutor = applicationContext.getBeanProvider(AsyncRepositoryExecutor.class).getIfAvailable();
+        if (asyncExecutor != null) {
+            repositoryFactory.addRepositoryProxyPostProcessor(
+                    asyncExecutor.createRepositoryProxyPostProcessor(entityManager.getEntityManagerFactory()));
+        }
+        if (routing) {
+            repositoryFactory.addRepositoryProxyPostProcessor(
+                    router.createRepositoryProxyPostProcessor(entityManager.getEntityManagerFactory()));
+        }
+        String transactionManager = transactionManagerName;
+        repositoryFactory.setTransactionManager(
+                () -> applicationContext.getBean(transactionManager, PlatformTransactionManager.class));
+        repositoryFactory.setQueryResultCaches(applicationContext.getBeanProvider(QueryResultCaches.class).getIfAvailable());
+        repositoryFactory.setFlushScheduler(applicationContext.getBeanProvider(SoftDeleteFlushScheduler.class).getIfAvailable());
+        repositoryFactory.addQueryCreationListener(new QueryCollector());
+        return repositoryFactory;
+    }
+
+    @Override
+    public void setTransactionManager(String transactionManager) {
+        super.setTransactionManager(transactionManager);
+        if (transactionManager != null) {
+            transactionManagerName = transactionManager;
+        }
     }
 
     @Override
@@ -30,6 +75,30 @@ public class JmixRepositoryFactoryBean<T extends JpaRepository<S, ID>, S, ID ext
         this.applicationContext = applicationContext;
     }
 
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (event.getApplicationContext() != applicationContext || repositoryFactory == null
+                || !repositoryFactory.getProperties().isQueryWarmUpEnabled()) {
+            return;
+        }
+        // make sure the repository and its queries are created for lazily initialized repositories
+        getObject();
+        repositoryFactory.warmUp(getObjectType().getName(), queries);
+    }
+
+    @Override
+    public void destroy() {
+        if (repositoryFactory != null) {
+            repositoryFactory.shutdown();
+        }
+    }
+
+    private class QueryCollector implements QueryCreationListener<RepositoryQuery> {
 
+        @Override
+        public void onCreation(RepositoryQuery query) {
+            queries.add(query);
+        }
+    }
 
 }
@@ -0,0 +1,170 @@
+package io.jmix.data.repository;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Temporary file of length-prefixed records, written and read through memory-mapped segments so that the
+ * records stay off the heap. The file is deleted on close.
+ */
+class MappedSpillFile implements Closeable {
+
+    static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private final Path path;
+    private final int segmentSize;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+
+    private long size;
+    private long recordCount;
+
+    private MappedSpillFile(Path path, int segmentSize) throws IOException {
+        this.path = path;
+        this.segmentSize = segmentSize;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    static MappedSpillFile create(String prefix) throws IOException {
+        return create(prefix, SEGMENT_SIZE);
+    }
+
+    /**
+     * @param segmentSize size of the mapped segments, records may span segments
+     */
+    static MappedSpillFile create(String prefix, int segmentSize) throws IOException {
+        Path path = Files.createTempFile("jmix-" + prefix + "-", ".spill");
+        try {
+            return new MappedSpillFile(path, segmentSize);
+        } catch (IOException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    void writeRecord(byte[] bytes, int length) throws IOException {
+        lengthBuffer.clear();
+        lengthBuffer.putInt(length);
+        write(lengthBuffer.array(), Integer.BYTES);
+        write(bytes, length);
+        recordCount++;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    long getRecordCount() {
+        return recordCount;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return reader positioned at the first record; readers are independent of each other
+     */
+    Reader reader() {
+        return new Reader();
+    }
+
+    @Override
+    public void close() throws IOException {
+        segments.clear();
+        try {
+            channel.close();
+        } finally {
+            // a still mapped file cannot be deleted on some platforms
+            if (!path.toFile().delete() && Files.exists(path)) {
+                path.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    private void write(byte[] bytes, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int segment = (int) (size / segmentSize);
+            if (segment == segments.size()) {
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) segment * segmentSize, segmentSize));
+            }
+            MappedByteBuffer buffer = segments.get(segment);
+            int position = (int) (size % segmentSize);
+            int chunk = Math.min(length - offset, segmentSize - position);
+            buffer.position(position);
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+            size += chunk;
+        }
+    }
+
+    class Reader {
+
+        private final ByteBuffer[] views = new ByteBuffer[segments.size()];
+
+        private long position;
+
+        boolean hasNext() {
+            return position < size;
+        }
+
+        /**
+         * @return the next record, a view of the mapped file unless the record spans two segments
+         */
+        ByteBuffer next() throws IOException {
+            byte[] lengthBytes = new byte[Integer.BYTES];
+            read(lengthBytes, Integer.BYTES);
+            int length = ByteBuffer.wrap(lengthBytes).getInt();
+            if (position + length > size) {
+                throw new EOFException("Unexpected end of spill file " + path);
+            }
+            int segmentPosition = (int) (position % segmentSize);
+            // an empty record at a segment boundary may have no mapped segment to view
+            if (length == 0 || segmentPosition + length > segmentSize) {
+                byte[] bytes = new byte[length];
+                read(bytes, length);
+                return ByteBuffer.wrap(bytes);
+            }
+            ByteBuffer record = view((int) (position / segmentSize)).duplicate();
+            record.limit(segmentPosition + length).position(segmentPosition);
+            position += length;
+            return record.slice();
+        }
+
+        private void read(byte[] bytes, int length) throws IOException {
+            if (position + length > size) {
+                throw new EOFException("Unexpected end of spill file " + path);
+            }
+            int offset = 0;
+            while (offset < length) {
+                ByteBuffer view = view((int) (position / segmentSize));
+                int segmentPosition = (int) (position % segmentSize);
+                int chunk = Math.min(length - offset, segmentSize - segmentPosition);
+                view.position(segmentPosition);
+                view.get(bytes, offset, chunk);
+                offset += chunk;
+                position += chunk;
+            }
+        }
+
+        private ByteBuffer view(int segment) {
+            ByteBuffer view = views[segment];
+            if (view == null) {
+                view = segments.get(segment).duplicate();
+                views[segment] = view;
+            }
+            return view;
+        }
+    }
+}
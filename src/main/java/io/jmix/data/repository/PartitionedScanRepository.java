@@ -0,0 +1,40 @@
+package io.jmix.data.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.lang.Nullable;
+
+import java.util.function.Consumer;
+
+/**
+ * Parallel scan API for batch jobs reading large numbers of entities. The value range of an integral number or
+ * date attribute is split into partitions, and every partition is read by its own thread with its own
+ * {@link javax.persistence.EntityManager} and connection. Read entities are passed to the consumer on the calling
+ * thread; partition readers block while the consumer falls behind, so memory consumption does not depend on the
+ * number of read entities.
+ * <p>
+ * Entities are read outside of the caller's transaction, with the soft delete filter of the current
+ * {@link SoftDeleteScope} mode. They are detached: associations needed by the consumer should be fetched by the
+ * specification.
+ */
+@NoRepositoryBean
+public interface PartitionedScanRepository<T> {
+
+    /**
+     * Scans entities matching the specification in no particular order, partitioning by the id attribute.
+     */
+    PartitionedScanResult scanPartitioned(@Nullable Specification<T> spec, int partitions, Consumer<? super T> consumer);
+
+    /**
+     * Scans entities matching the specification.
+     *
+     * @param spec       specification of scanned entities, may be {@literal null}
+     * @param attribute  integral number or date attribute to partition by, {@literal null} means the id attribute
+     * @param partitions number of partitions, and of concurrently used connections
+     * @param ordered    if {@literal true}, entities are passed in the ascending order of the attribute, otherwise
+     *                   as soon as they are read by any partition
+     * @param consumer   consumer of scanned entities, invoked on the calling thread
+     */
+    PartitionedScanResult scanPartitioned(@Nullable Specification<T> spec, @Nullable String attribute, int partitions,
+                                          boolean ordered, Consumer<? super T> consumer);
+}
@@ -0,0 +1,45 @@
+package io.jmix.data.repository;
+
+/**
+ * Statistics of a {@link PartitionedScanRepository#scanPartitioned} call.
+ */
+public class PartitionedScanResult {
+
+    private final long scannedCount;
+    private final int partitionCount;
+    private final long durationMillis;
+
+    public PartitionedScanResult(long scannedCount, int partitionCount, long durationMillis) {
+        this.scannedCount = scannedCount;
+        this.partitionCount = partitionCount;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * @return number of entities passed to the consumer
+     */
+    public long getScannedCount() {
+        return scannedCount;
+    }
+
+    /**
+     * @return number of actually scanned partitions, less than requested if the attribute range is narrower
+     */
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public double getEntitiesPerSecond() {
+        return durationMillis == 0 ? scannedCount * 1000.0 : scannedCount * 1000.0 / durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d entities in %d partitions, %d ms (%.1f entities/s)",
+                scannedCount, partitionCount, durationMillis, getEntitiesPerSecond());
+    }
+}
@@ -0,0 +1,359 @@
+package io.jmix.data.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Reads the value ranges of an attribute in parallel, each range with its own {@link EntityManager}, and passes
+ * read entities to a consumer on the calling thread through bounded queues.
+ */
+class PartitionedScanner<T> {
+
+    private static final int QUEUE_CAPACITY = 1000;
+
+    static final int FETCH_SIZE = 500;
+
+    static final String FETCH_SIZE_HINT = "org.hibernate.fetchSize";
+
+    static final String READ_ONLY_HINT = "org.hibernate.readOnly";
+
+    private static final long POLL_MILLIS = 100;
+
+    private static final Object END = new Object();
+
+    private static final List<Class<?>> SUPPORTED_TYPES = Arrays.asList(Long.class, Integer.class, Short.class,
+            Byte.class, BigInteger.class, LocalDate.class, LocalDateTime.class, Instant.class, Date.class);
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    private final EntityManager em;
+    private final Class<T> domainClass;
+
+    PartitionedScanner(EntityManager em, Class<T> domainClass) {
+        this.em = em;
+        this.domainClass = domainClass;
+    }
+
+    /**
+     * @param spec   specification of scanned entities including the soft delete filter
+     * @param filter filter applied to read entities before they are passed to the consumer
+     */
+    PartitionedScanResult scan(Specification<T> spec, String attribute, int partitions, boolean ordered,
+                               java.util.function.Predicate<? super T> filter, Consumer<? super T> consumer) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Number of partitions should be positive: " + partitions);
+        }
+        long start = System.currentTimeMillis();
+        Class<?> type = getAttributeType(attribute);
+        List<Object> bounds = getBounds(spec, attribute, type, partitions);
+        if (bounds == null) {
+            return new PartitionedScanResult(0, 0, System.currentTimeMillis() - start);
+        }
+        // resolved on the calling thread, so that all partitions read from the database the bounds are taken from
+        EntityManagerFactory emf = em.getEntityManagerFactory();
+        long scanned = new Scan(emf, spec, attribute, bounds, ordered).run(filter, consumer);
+        return new PartitionedScanResult(scanned, bounds.size() + 1, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Begins a resource-local transaction, so that a streamed cursor keeps a single connection and drivers honour
+     * the fetch size.
+     *
+     * @return the transaction or {@literal null} for JTA entity managers
+     */
+    @Nullable
+    static EntityTransaction beginReadTransaction(EntityManager em) {
+        try {
+            EntityTransaction transaction = em.getTransaction();
+            transaction.begin();
+            return transaction;
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private Class<?> getAttributeType(String attribute) {
+        Class<?> type;
+        try {
+            type = em.getMetamodel().entity(domainClass).getAttribute(attribute).getJavaType();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Entity " + domainClass.getName() + " has no attribute " + attribute, e);
+        }
+        type = ClassUtils.resolvePrimitiveIfNecessary(type);
+        if (!SUPPORTED_TYPES.contains(type) && !Date.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException(String.format("Attribute %s of %s has type %s, partitioned scan " +
+                    "requires an integral number or a date attribute", attribute, domainClass.getName(), type.getName()));
+        }
+        return type;
+    }
+
+    /**
+     * Splits the range of attribute values of matching entities into partitions.
+     *
+     * @return inner bounds of partitions or {@literal null} if there are no matching entities
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<Object> getBounds(Specification<T> spec, String attribute, Class<?> type, int partitions) {
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = builder.createQuery(Object[].class);
+        Root<T> root = query.from(domainClass);
+        Path path = root.get(attribute);
+        query.multiselect(builder.least(path), builder.greatest(path));
+        Predicate predicate = spec.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        Object[] range = em.createQuery(query).getSingleResult();
+        if (range[0] == null) {
+            return null;
+        }
+        long min = toLong(range[0]);
+        BigInteger span = BigInteger.valueOf(toLong(range[1])).subtract(BigInteger.valueOf(min)).add(BigInteger.ONE);
+        int count = span.compareTo(BigInteger.valueOf(partitions)) < 0 ? span.intValue() : partitions;
+
+        List<Object> bounds = new ArrayList<>(count - 1);
+        for (int i = 1; i < count; i++) {
+            BigInteger offset = span.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(count));
+            bounds.add(fromLong(min + offset.longValue(), type));
+        }
+        return bounds;
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof BigInteger) {
+            return ((BigInteger) value).longValueExact();
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof LocalDate) {
+            return ((LocalDate) value).toEpochDay();
+        }
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+        if (value instanceof Instant) {
+            return ((Instant) value).toEpochMilli();
+        }
+        return ((Date) value).getTime();
+    }
+
+    private static Object fromLong(long value, Class<?> type) {
+        if (type == Long.class) {
+            return value;
+        } else if (type == Integer.class) {
+            return (int) value;
+        } else if (type == Short.class) {
+            return (short) value;
+        } else if (type == Byte.class) {
+            return (byte) value;
+        } else if (type == BigInteger.class) {
+            return BigInteger.valueOf(value);
+        } else if (type == LocalDate.class) {
+            return LocalDate.ofEpochDay(value);
+        } else if (type == LocalDateTime.class) {
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(value, 1000L),
+                    (int) Math.floorMod(value, 1000L) * 1_000_000, ZoneOffset.UTC);
+        } else if (type == Instant.class) {
+            return Instant.ofEpochMilli(value);
+        } else if (type == Timestamp.class) {
+            return new Timestamp(value);
+        } else if (type == java.sql.Date.class) {
+            return new java.sql.Date(value);
+        }
+        return new Date(value);
+    }
+
+    private class Scan {
+
+        private final EntityManagerFactory emf;
+        private final Specification<T> spec;
+        private final String attribute;
+        private final List<Object> bounds;
+        private final boolean ordered;
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private volatile boolean cancelled;
+
+        Scan(EntityManagerFactory emf, Specification<T> spec, String attribute, List<Object> bounds, boolean ordered) {
+            this.emf = emf;
+            this.spec = spec;
+            this.attribute = attribute;
+            this.bounds = bounds;
+            this.ordered = ordered;
+        }
+
+        long run(java.util.function.Predicate<? super T> filter, Consumer<? super T> consumer) {
+            int partitions = bounds.size() + 1;
+            // ordered scans drain the partitions one by one, unordered ones share a single queue
+            List<BlockingQueue<Object>> queues = new ArrayList<>(partitions);
+            BlockingQueue<Object> shared = ordered ? null : new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            for (int i = 0; i < partitions; i++) {
+                queues.add(ordered ? new ArrayBlockingQueue<>(QUEUE_CAPACITY) : shared);
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(partitions, forkJoinPool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                thread.setName("jmix-partitioned-scan-" + threadCounter.incrementAndGet());
+                return thread;
+            }, null, false);
+            try {
+                for (int i = 0; i < partitions; i++) {
+                    int partition = i;
+                    pool.execute(() -> readPartition(partition, queues.get(partition)));
+                }
+                long scanned = 0;
+                int finished = 0;
+                for (int i = 0; finished < partitions; ) {
+                    Object item = take(queues.get(i));
+                    if (item == END) {
+                        finished++;
+                        checkFailure();
+                        i = ordered ? i + 1 : i;
+                        continue;
+                    }
+                    @SuppressWarnings("unchecked")
+                    T entity = (T) item;
+                    if (filter.test(entity)) {
+                        consumer.accept(entity);
+                        scanned++;
+                    }
+                }
+                checkFailure();
+                return scanned;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while scanning " + domainClass.getSimpleName(), e);
+            } finally {
+                cancelled = true;
+                pool.shutdownNow();
+            }
+        }
+
+        private void readPartition(int partition, BlockingQueue<Object> queue) {
+            try {
+                EntityManager partitionEm = emf.createEntityManager();
+                EntityTransaction transaction = beginReadTransaction(partitionEm);
+                try (Stream<T> stream = createQuery(partitionEm, partition).getResultStream()) {
+                    Iterator<T> iterator = stream.iterator();
+                    int read = 0;
+                    while (iterator.hasNext()) {
+                        put(queue, iterator.next());
+                        // passed entities are detached, so that the persistence context does not grow
+                        if (++read % FETCH_SIZE == 0) {
+                            partitionEm.clear();
+                        }
+                    }
+                } finally {
+                    if (transaction != null && transaction.isActive()) {
+                        transaction.rollback();
+                    }
+                    partitionEm.close();
+                }
+            } catch (Throwable e) {
+                if (!cancelled) {
+                    failure.compareAndSet(null, e);
+                }
+            } finally {
+                try {
+                    put(queue, END);
+                } catch (InterruptedException e) {
+                    // the scan is cancelled
+                }
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private TypedQuery<T> createQuery(EntityManager partitionEm, int partition) {
+            CriteriaBuilder builder = partitionEm.getCriteriaBuilder();
+            CriteriaQuery<T> query = builder.createQuery(domainClass);
+            Root<T> root = query.from(domainClass);
+            Path path = root.get(attribute);
+
+            List<Predicate> predicates = new ArrayList<>();
+            Predicate specPredicate = spec.toPredicate(root, query, builder);
+            if (specPredicate != null) {
+                predicates.add(specPredicate);
+            }
+            Predicate range = builder.and();
+            if (partition > 0) {
+                range = builder.and(range, builder.greaterThanOrEqualTo(path, (Comparable) bounds.get(partition - 1)));
+            }
+            if (partition < bounds.size()) {
+                range = builder.and(range, builder.lessThan(path, (Comparable) bounds.get(partition)));
+            }
+            // rows without a value belong to the first partition
+            predicates.add(partition == 0 ? builder.or(range, builder.isNull(path)) : range);
+
+            query.select(root).where(predicates.toArray(new Predicate[0]));
+            if (ordered) {
+                query.orderBy(builder.asc(path));
+            }
+            return partitionEm.createQuery(query)
+                    .setHint(FETCH_SIZE_HINT, FETCH_SIZE)
+                    .setHint(READ_ONLY_HINT, true);
+        }
+
+        private void put(BlockingQueue<Object> queue, Object item) throws InterruptedException {
+            while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (cancelled) {
+                    throw new InterruptedException("Scan is cancelled");
+                }
+            }
+        }
+
+        private Object take(BlockingQueue<Object> queue) throws InterruptedException {
+            Object item;
+            while ((item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                checkFailure();
+            }
+            return item;
+        }
+
+        private void checkFailure() {
+            Throwable e = failure.get();
+            if (e == null) {
+                return;
+            }
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            throw new IllegalStateException("Partitioned scan of " + domainClass.getSimpleName() + " failed", e);
+        }
+    }
+}
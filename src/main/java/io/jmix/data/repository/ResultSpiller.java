@@ -0,0 +1,124 @@
+package io.jmix.data.repository;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+/**
+ * Streams query results from the database into a {@link MappedSpillFile}.
+ */
+class ResultSpiller<T> {
+
+    private final EntityManager em;
+    private final Class<T> domainClass;
+
+    private volatile RowCodec<T> codec;
+
+    ResultSpiller(EntityManager em, Class<T> domainClass) {
+        this.em = em;
+        this.domainClass = domainClass;
+    }
+
+    /**
+     * @param spec   specification of read entities including the soft delete filter
+     * @param filter filter applied to read entities before they are written
+     */
+    SpilledResult<T> spill(Specification<T> spec, Sort sort, java.util.function.Predicate<? super T> filter) {
+        long start = System.currentTimeMillis();
+        RowCodec<T> rowCodec = getCodec();
+        MappedSpillFile file;
+        try {
+            file = MappedSpillFile.create(domainClass.getSimpleName());
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Cannot create spill file", e);
+        }
+
+        EntityManager readEm = em.getEntityManagerFactory().createEntityManager();
+        EntityTransaction transaction = PartitionedScanner.beginReadTransaction(readEm);
+        try (Stream<T> stream = createQuery(readEm, spec, sort)) {
+            RecordBuffer buffer = new RecordBuffer();
+            DataOutputStream out = new DataOutputStream(buffer);
+            Iterator<T> iterator = stream.iterator();
+            int read = 0;
+            while (iterator.hasNext()) {
+                T entity = iterator.next();
+                if (filter.test(entity)) {
+                    buffer.reset();
+                    rowCodec.encode(entity, out);
+                    file.writeRecord(buffer.array(), buffer.size());
+                }
+                if (++read % PartitionedScanner.FETCH_SIZE == 0) {
+                    readEm.clear();
+                }
+            }
+        } catch (IOException e) {
+            closeQuietly(file);
+            throw new DataAccessResourceFailureException("Cannot write spill file", e);
+        } catch (RuntimeException | Error e) {
+            closeQuietly(file);
+            throw e;
+        } finally {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            readEm.close();
+        }
+        return new SpilledResult<>(file, rowCodec, System.currentTimeMillis() - start);
+    }
+
+    private RowCodec<T> getCodec() {
+        RowCodec<T> rowCodec = codec;
+        if (rowCodec == null) {
+            rowCodec = RowCodec.create(em.getEntityManagerFactory(), domainClass);
+            codec = rowCodec;
+        }
+        return rowCodec;
+    }
+
+    private Stream<T> createQuery(EntityManager readEm, Specification<T> spec, Sort sort) {
+        CriteriaBuilder builder = readEm.getCriteriaBuilder();
+        CriteriaQuery<T> query = builder.createQuery(domainClass);
+        Root<T> root = query.from(domainClass);
+        Predicate predicate = spec.toPredicate(root, query, builder);
+        query.select(root);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (sort.isSorted()) {
+            query.orderBy(toOrders(sort, root, builder));
+        }
+        return readEm.createQuery(query)
+                .setHint(PartitionedScanner.FETCH_SIZE_HINT, PartitionedScanner.FETCH_SIZE)
+                .setHint(PartitionedScanner.READ_ONLY_HINT, true)
+                .getResultStream();
+    }
+
+    private static void closeQuietly(MappedSpillFile file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            // the original failure is reported
+        }
+    }
+
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
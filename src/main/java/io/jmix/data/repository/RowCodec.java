@@ -0,0 +1,343 @@
+package io.jmix.data.repository;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.beans.PropertyDescriptor;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compact binary form of entities: a null bitmap followed by the values of non-null attributes, without names or
+ * type tags. Basic attributes are kept; to-one associations are kept as their ids and restored as new instances
+ * of the associated entity with only the id set; collections are not kept. Embedded attributes are kept if they
+ * are {@link Serializable}.
+ */
+class RowCodec<T> {
+
+    private static final Map<Class<?>, ValueCodec> CODECS = new HashMap<>();
+
+    static {
+        CODECS.put(Long.class, codec((out, value) -> out.writeLong((Long) value), ByteBuffer::getLong));
+        CODECS.put(Integer.class, codec((out, value) -> out.writeInt((Integer) value), ByteBuffer::getInt));
+        CODECS.put(Short.class, codec((out, value) -> out.writeShort((Short) value), ByteBuffer::getShort));
+        CODECS.put(Byte.class, codec((out, value) -> out.writeByte((Byte) value), ByteBuffer::get));
+        CODECS.put(Boolean.class, codec((out, value) -> out.writeBoolean((Boolean) value), in -> in.get() != 0));
+        CODECS.put(Double.class, codec((out, value) -> out.writeDouble((Double) value), ByteBuffer::getDouble));
+        CODECS.put(Float.class, codec((out, value) -> out.writeFloat((Float) value), ByteBuffer::getFloat));
+        CODECS.put(Character.class, codec((out, value) -> out.writeChar((Character) value), ByteBuffer::getChar));
+        CODECS.put(String.class, codec((out, value) -> writeBytes(out, ((String) value).getBytes(StandardCharsets.UTF_8)),
+                in -> new String(readBytes(in), StandardCharsets.UTF_8)));
+        CODECS.put(byte[].class, codec((out, value) -> writeBytes(out, (byte[]) value), RowCodec::readBytes));
+        CODECS.put(BigInteger.class, codec((out, value) -> writeBytes(out, ((BigInteger) value).toByteArray()),
+                in -> new BigInteger(readBytes(in))));
+        CODECS.put(BigDecimal.class, codec((out, value) -> {
+            out.writeInt(((BigDecimal) value).scale());
+            writeBytes(out, ((BigDecimal) value).unscaledValue().toByteArray());
+        }, in -> {
+            int scale = in.getInt();
+            return new BigDecimal(new BigInteger(readBytes(in)), scale);
+        }));
+        CODECS.put(UUID.class, codec((out, value) -> {
+            out.writeLong(((UUID) value).getMostSignificantBits());
+            out.writeLong(((UUID) value).getLeastSignificantBits());
+        }, in -> new UUID(in.getLong(), in.getLong())));
+        CODECS.put(LocalDate.class, codec((out, value) -> out.writeLong(((LocalDate) value).toEpochDay()),
+                in -> LocalDate.ofEpochDay(in.getLong())));
+        CODECS.put(LocalTime.class, codec((out, value) -> out.writeLong(((LocalTime) value).toNanoOfDay()),
+                in -> LocalTime.ofNanoOfDay(in.getLong())));
+        CODECS.put(LocalDateTime.class, codec((out, value) -> {
+            out.writeLong(((LocalDateTime) value).toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(((LocalDateTime) value).getNano());
+        }, in -> LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC)));
+        CODECS.put(Instant.class, codec((out, value) -> {
+            out.writeLong(((Instant) value).getEpochSecond());
+            out.writeInt(((Instant) value).getNano());
+        }, in -> Instant.ofEpochSecond(in.getLong(), in.getInt())));
+        CODECS.put(Timestamp.class, codec((out, value) -> {
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        }, in -> {
+            Timestamp timestamp = new Timestamp(in.getLong());
+            timestamp.setNanos(in.getInt());
+            return timestamp;
+        }));
+        CODECS.put(java.sql.Date.class, codec((out, value) -> out.writeLong(((Date) value).getTime()),
+                in -> new java.sql.Date(in.getLong())));
+        CODECS.put(Time.class, codec((out, value) -> out.writeLong(((Date) value).getTime()), in -> new Time(in.getLong())));
+        CODECS.put(Date.class, codec((out, value) -> out.writeLong(((Date) value).getTime()), in -> new Date(in.getLong())));
+    }
+
+    private final Class<T> domainClass;
+    private final List<Column> columns = new ArrayList<>();
+
+    private RowCodec(Class<T> domainClass) {
+        this.domainClass = domainClass;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a basic attribute has a type that cannot be encoded
+     */
+    static <T> RowCodec<T> create(EntityManagerFactory emf, Class<T> domainClass) {
+        RowCodec<T> rowCodec = new RowCodec<>(domainClass);
+        EntityType<T> entityType = emf.getMetamodel().entity(domainClass);
+        for (SingularAttribute<? super T, ?> attribute : entityType.getSingularAttributes()) {
+            Accessor accessor = Accessor.create(attribute);
+            if (accessor == null) {
+                continue;
+            }
+            ValueCodec codec;
+            switch (attribute.getPersistentAttributeType()) {
+                case BASIC:
+                    codec = getCodec(attribute.getJavaType());
+                    if (codec == null) {
+                        throw new IllegalArgumentException(String.format("Attribute %s of %s has type %s that cannot be spilled",
+                                attribute.getName(), domainClass.getName(), attribute.getJavaType().getName()));
+                    }
+                    break;
+                case MANY_TO_ONE:
+                case ONE_TO_ONE:
+                    codec = getReferenceCodec(emf, attribute.getJavaType());
+                    break;
+                case EMBEDDED:
+                    codec = Serializable.class.isAssignableFrom(attribute.getJavaType())
+                            ? serializableCodec(attribute.getJavaType()) : null;
+                    break;
+                default:
+                    codec = null;
+            }
+            if (codec != null) {
+                rowCodec.columns.add(new Column(accessor, codec));
+            }
+        }
+        return rowCodec;
+    }
+
+    void encode(T entity, DataOutput out) throws IOException {
+        byte[] nulls = new byte[(columns.size() + 7) / 8];
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            values[i] = columns.get(i).accessor.get(entity);
+            if (values[i] == null) {
+                nulls[i / 8] |= 1 << (i % 8);
+            }
+        }
+        out.write(nulls);
+        for (int i = 0; i < columns.size(); i++) {
+            if (values[i] != null) {
+                columns.get(i).codec.write(out, values[i]);
+            }
+        }
+    }
+
+    T decode(ByteBuffer record) throws IOException {
+        T entity = BeanUtils.instantiateClass(domainClass);
+        byte[] nulls = new byte[(columns.size() + 7) / 8];
+        record.get(nulls);
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            if ((nulls[i / 8] & (1 << (i % 8))) == 0) {
+                column.accessor.set(entity, column.codec.read(record));
+            } else if (!column.accessor.primitive) {
+                // overrides defaults assigned by the constructor
+                column.accessor.set(entity, null);
+            }
+        }
+        return entity;
+    }
+
+    @Nullable
+    private static ValueCodec getCodec(Class<?> type) {
+        Class<?> valueType = ClassUtils.resolvePrimitiveIfNecessary(type);
+        ValueCodec codec = CODECS.get(valueType);
+        if (codec != null) {
+            return codec;
+        }
+        if (valueType.isEnum()) {
+            Object[] constants = valueType.getEnumConstants();
+            return codec((out, value) -> out.writeInt(((Enum<?>) value).ordinal()), in -> constants[in.getInt()]);
+        }
+        return Serializable.class.isAssignableFrom(valueType) ? serializableCodec(valueType) : null;
+    }
+
+    @Nullable
+    private static ValueCodec getReferenceCodec(EntityManagerFactory emf, Class<?> type) {
+        EntityType<?> entityType = emf.getMetamodel().entity(type);
+        if (!entityType.hasSingleIdAttribute()) {
+            return null;
+        }
+        SingularAttribute<?, ?> idAttribute = entityType.getSingularAttributes().stream()
+                .filter(SingularAttribute::isId)
+                .findFirst()
+                .orElse(null);
+        Accessor idAccessor = idAttribute != null ? Accessor.create(idAttribute) : null;
+        ValueCodec idCodec = idAttribute != null ? getCodec(idAttribute.getJavaType()) : null;
+        if (idAccessor == null || idCodec == null) {
+            return null;
+        }
+        PersistenceUnitUtil persistenceUnitUtil = emf.getPersistenceUnitUtil();
+        return codec((out, value) -> idCodec.write(out, persistenceUnitUtil.getIdentifier(value)), in -> {
+            Object reference = BeanUtils.instantiateClass(type);
+            idAccessor.set(reference, idCodec.read(in));
+            return reference;
+        });
+    }
+
+    private static ValueCodec serializableCodec(Class<?> type) {
+        ClassLoader classLoader = type.getClassLoader();
+        return codec((out, value) -> {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+                objects.writeObject(value);
+            }
+            writeBytes(out, bytes.toByteArray());
+        }, in -> {
+            try (ObjectInputStream objects = new ConfigurableObjectInputStream(new ByteArrayInputStream(readBytes(in)), classLoader)) {
+                return objects.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Cannot deserialize spilled value", e);
+            }
+        });
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static ValueCodec codec(Writer writer, Reader reader) {
+        return new ValueCodec(writer, reader);
+    }
+
+    private interface Writer {
+        void write(DataOutput out, Object value) throws IOException;
+    }
+
+    private interface Reader {
+        Object read(ByteBuffer in) throws IOException;
+    }
+
+    private static final class ValueCodec {
+
+        private final Writer writer;
+        private final Reader reader;
+
+        ValueCodec(Writer writer, Reader reader) {
+            this.writer = writer;
+            this.reader = reader;
+        }
+
+        void write(DataOutput out, Object value) throws IOException {
+            writer.write(out, value);
+        }
+
+        Object read(ByteBuffer in) throws IOException {
+            return reader.read(in);
+        }
+    }
+
+    private static final class Column {
+
+        private final Accessor accessor;
+        private final ValueCodec codec;
+
+        Column(Accessor accessor, ValueCodec codec) {
+            this.accessor = accessor;
+            this.codec = codec;
+        }
+    }
+
+    /**
+     * Reads and writes an attribute through its field or, for property access, its getter and setter.
+     */
+    private static final class Accessor {
+
+        @Nullable
+        private final Field field;
+        @Nullable
+        private final Method getter;
+        @Nullable
+        private final Method setter;
+        private final boolean primitive;
+
+        private Accessor(@Nullable Field field, @Nullable Method getter, @Nullable Method setter, boolean primitive) {
+            this.field = field;
+            this.getter = getter;
+            this.setter = setter;
+            this.primitive = primitive;
+        }
+
+        @Nullable
+        static Accessor create(SingularAttribute<?, ?> attribute) {
+            Member member = attribute.getJavaMember();
+            if (member instanceof Field) {
+                Field field = (Field) member;
+                ReflectionUtils.makeAccessible(field);
+                return new Accessor(field, null, null, field.getType().isPrimitive());
+            }
+            if (member instanceof Method) {
+                PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(member.getDeclaringClass(), attribute.getName());
+                if (descriptor == null || descriptor.getWriteMethod() == null) {
+                    return null;
+                }
+                Method getter = (Method) member;
+                Method setter = descriptor.getWriteMethod();
+                ReflectionUtils.makeAccessible(getter);
+                ReflectionUtils.makeAccessible(setter);
+                return new Accessor(null, getter, setter, getter.getReturnType().isPrimitive());
+            }
+            return null;
+        }
+
+        @Nullable
+        Object get(Object entity) {
+            return field != null ? ReflectionUtils.getField(field, entity) : ReflectionUtils.invokeMethod(getter, entity);
+        }
+
+        void set(Object entity, @Nullable Object value) {
+            if (field != null) {
+                ReflectionUtils.setField(field, entity, value);
+            } else {
+                ReflectionUtils.invokeMethod(setter, entity, value);
+            }
+        }
+    }
+}
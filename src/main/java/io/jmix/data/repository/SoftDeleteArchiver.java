@@ -0,0 +1,146 @@
+package io.jmix.data.repository;
+
+import io.jmix.data.config.SoftDeleteArchive;
+import io.jmix.data.metadata.PhysicalNames;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Moves rows between an entity table and its archive table with set-based native statements.
+ */
+class SoftDeleteArchiver<T> {
+
+    private static final int ID_CHUNK_SIZE = 1000;
+
+    private final EntityManager em;
+    private final Class<T> domainClass;
+    private final boolean synchronous;
+
+    private final String selectDeletedIdsSql;
+    private final String archiveSql;
+    private final String deleteArchivedSql;
+    private final String selectArchivedSql;
+    private final String restoreSql;
+    private final String deleteFromArchiveSql;
+    private final String clearDeletedDateSql;
+    private final String selectPurgeableIdsSql;
+
+    SoftDeleteArchiver(EntityManager em, Class<T> domainClass, SoftDeleteArchive annotation,
+                       String idAttribute, String deletedDateAttribute) {
+        this.em = em;
+        this.domainClass = domainClass;
+        this.synchronous = annotation.synchronous();
+
+        PhysicalNames names = PhysicalNames.of(em.getEntityManagerFactory(), domainClass);
+        if (names.isMultiTable()) {
+            throw new IllegalStateException("@SoftDeleteArchive is not supported by entity " + domainClass.getName()
+                    + " mapped to several tables");
+        }
+        String table = names.getTableName();
+        String archiveTable = StringUtils.hasText(annotation.table()) ? annotation.table() : getArchiveTableName(table);
+        String id = names.getColumnName(idAttribute);
+        String deletedDate = names.getColumnName(deletedDateAttribute);
+        String columns = String.join(", ", names.getColumnNames());
+
+        selectDeletedIdsSql = "SELECT " + id + " FROM " + table + " WHERE " + deletedDate + " IS NOT NULL ORDER BY " + id;
+        archiveSql = "INSERT INTO " + archiveTable + " (" + columns + ") SELECT " + columns + " FROM " + table
+                + " WHERE " + id + " IN (:ids) AND " + deletedDate + " IS NOT NULL";
+        deleteArchivedSql = "DELETE FROM " + table + " WHERE " + id + " IN (:ids) AND " + deletedDate + " IS NOT NULL";
+        selectArchivedSql = "SELECT " + columns + " FROM " + archiveTable + " WHERE " + id + " IN (:ids)";
+        restoreSql = "INSERT INTO " + table + " (" + columns + ") SELECT " + columns + " FROM " + archiveTable
+                + " WHERE " + id + " IN (:ids)";
+        deleteFromArchiveSql = "DELETE FROM " + archiveTable + " WHERE " + id + " IN (:ids)";
+        clearDeletedDateSql = "UPDATE " + table + " SET " + deletedDate + " = NULL WHERE " + id + " IN (:ids)";
+        selectPurgeableIdsSql = "SELECT " + id + " FROM " + archiveTable + " WHERE " + deletedDate + " < :deletedBefore"
+                + " ORDER BY " + id;
+    }
+
+    boolean isSynchronous() {
+        return synchronous;
+    }
+
+    /**
+     * Moves soft deleted rows with the given ids to the archive. Must be called in a transaction after the
+     * deleted dates have been flushed.
+     */
+    int archive(Collection<?> ids) {
+        return forEachChunk(ids, chunk -> {
+            int archived = em.createNativeQuery(archiveSql).setParameter("ids", chunk).executeUpdate();
+            em.createNativeQuery(deleteArchivedSql).setParameter("ids", chunk).executeUpdate();
+            return archived;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    int archiveDeleted(int limit) {
+        List<Object> ids = em.createNativeQuery(selectDeletedIdsSql).setMaxResults(limit).getResultList();
+        return ids.isEmpty() ? 0 : archive(ids);
+    }
+
+    @SuppressWarnings("unchecked")
+    List<T> findArchived(Collection<?> ids) {
+        List<T> result = new ArrayList<>();
+        forEachChunk(ids, chunk -> {
+            List<T> entities = em.createNativeQuery(selectArchivedSql, domainClass).setParameter("ids", chunk).getResultList();
+            // archived rows must not be flushed to the entity table
+            entities.forEach(em::detach);
+            result.addAll(entities);
+            return entities.size();
+        });
+        return result;
+    }
+
+    int restore(Collection<?> ids) {
+        return forEachChunk(ids, chunk -> {
+            int restored = em.createNativeQuery(restoreSql).setParameter("ids", chunk).executeUpdate();
+            em.createNativeQuery(deleteFromArchiveSql).setParameter("ids", chunk).executeUpdate();
+            em.createNativeQuery(clearDeletedDateSql).setParameter("ids", chunk).executeUpdate();
+            return restored;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    int purgeArchivedBefore(LocalDate deletedBefore, int limit) {
+        // a JDBC date is compared correctly with date and timestamp columns
+        List<Object> ids = em.createNativeQuery(selectPurgeableIdsSql)
+                .setParameter("deletedBefore", Date.valueOf(deletedBefore))
+                .setMaxResults(limit)
+                .getResultList();
+        return ids.isEmpty() ? 0 : forEachChunk(ids, chunk ->
+                em.createNativeQuery(deleteFromArchiveSql).setParameter("ids", chunk).executeUpdate());
+    }
+
+    private int forEachChunk(Collection<?> ids, Function<List<Object>, Integer> action) {
+        int count = 0;
+        List<Object> chunk = new ArrayList<>(Math.min(ids.size(), ID_CHUNK_SIZE));
+        for (Object id : ids) {
+            chunk.add(id);
+            if (chunk.size() == ID_CHUNK_SIZE) {
+                count += action.apply(chunk);
+                chunk = new ArrayList<>(ID_CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            count += action.apply(chunk);
+        }
+        return count;
+    }
+
+    /**
+     * Appends {@code _archive} to the table name, inside the quotes of a quoted name.
+     */
+    private static String getArchiveTableName(String table) {
+        char last = table.charAt(table.length() - 1);
+        if (last == '"' || last == '`' || last == ']') {
+            return table.substring(0, table.length() - 1) + "_archive" + last;
+        }
+        return table + "_archive";
+    }
+}
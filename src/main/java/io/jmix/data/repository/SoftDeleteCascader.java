@@ -0,0 +1,175 @@
+package io.jmix.data.repository;
+
+import io.jmix.data.config.CascadeSoftDelete;
+import io.jmix.data.metadata.EntityMetadataRegistry;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.OneToMany;
+import javax.persistence.OneToOne;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import java.lang.reflect.AnnotatedElement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Soft deletes children of {@link CascadeSoftDelete} associations with set-based JPQL updates, level by level.
+ */
+class SoftDeleteCascader {
+
+    private static final int ID_CHUNK_SIZE = 1000;
+
+    private final Class<?> rootClass;
+    private final Map<Class<?>, List<Cascade>> cascades;
+
+    private SoftDeleteCascader(Class<?> rootClass, Map<Class<?>, List<Cascade>> cascades) {
+        this.rootClass = rootClass;
+        this.cascades = cascades;
+    }
+
+    /**
+     * @return cascader for the given entity or {@literal null} if it has no {@link CascadeSoftDelete} attributes
+     */
+    @Nullable
+    static SoftDeleteCascader create(EntityManager em, Class<?> domainClass) {
+        Map<Class<?>, List<Cascade>> cascades = new HashMap<>();
+        collectCascades(em.getMetamodel(), domainClass, cascades);
+        return cascades.get(domainClass).isEmpty() ? null : new SoftDeleteCascader(domainClass, cascades);
+    }
+
+    /**
+     * @return root entity class and classes of cascaded children on all levels
+     */
+    Set<Class<?>> getEntityClasses() {
+        return cascades.keySet();
+    }
+
+    /**
+     * Soft deletes live children of the root entities with the given ids. Must be called in a transaction.
+     *
+     * @return number of soft deleted children on all levels
+     */
+    long cascade(EntityManager em, Collection<?> rootIds, LocalDate deletedDate) {
+        return cascade(em, rootClass, rootIds, deletedDate);
+    }
+
+    private long cascade(EntityManager em, Class<?> parentClass, Collection<?> parentIds, LocalDate deletedDate) {
+        long updated = 0;
+        for (Cascade cascade : cascades.get(parentClass)) {
+            boolean nested = !cascades.get(cascade.childClass).isEmpty();
+            List<Object> childIds = new ArrayList<>();
+            for (List<Object> chunk : chunks(parentIds)) {
+                // ids of children on the next level must be selected while they are still live
+                if (nested) {
+                    childIds.addAll(em.createQuery(cascade.selectLiveIdsJpql, Object.class)
+                            .setParameter("ids", chunk)
+                            .getResultList());
+                }
+                updated += em.createQuery(cascade.updateJpql)
+                        .setParameter("deletedDate", deletedDate)
+                        .setParameter("ids", chunk)
+                        .executeUpdate();
+            }
+            // rows are marked only once, so cyclic associations stop when no live children are left
+            if (!childIds.isEmpty()) {
+                updated += cascade(em, cascade.childClass, childIds, deletedDate);
+            }
+        }
+        return updated;
+    }
+
+    private static List<List<Object>> chunks(Collection<?> ids) {
+        List<List<Object>> chunks = new ArrayList<>();
+        List<Object> chunk = new ArrayList<>(Math.min(ids.size(), ID_CHUNK_SIZE));
+        for (Object id : ids) {
+            chunk.add(id);
+            if (chunk.size() == ID_CHUNK_SIZE) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(ID_CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private static void collectCascades(Metamodel metamodel, Class<?> parentClass, Map<Class<?>, List<Cascade>> result) {
+        if (result.containsKey(parentClass)) {
+            return;
+        }
+        List<Cascade> cascades = new ArrayList<>();
+        result.put(parentClass, cascades);
+
+        EntityType<?> parentType = metamodel.entity(parentClass);
+        for (Attribute<?, ?> attribute : parentType.getAttributes()) {
+            if (!(attribute.getJavaMember() instanceof AnnotatedElement)) {
+                continue;
+            }
+            AnnotatedElement element = (AnnotatedElement) attribute.getJavaMember();
+            if (!element.isAnnotationPresent(CascadeSoftDelete.class)) {
+                continue;
+            }
+            String attributeName = parentClass.getName() + "." + attribute.getName();
+            String mappedBy = getMappedBy(element);
+            if (!StringUtils.hasText(mappedBy)) {
+                throw new IllegalStateException("@CascadeSoftDelete attribute " + attributeName
+                        + " should be the inverse side of a @OneToMany or @OneToOne association");
+            }
+            Class<?> childClass = attribute instanceof PluralAttribute
+                    ? ((PluralAttribute<?, ?, ?>) attribute).getElementType().getJavaType()
+                    : attribute.getJavaType();
+            String childDeletedDate = EntityMetadataRegistry.getMetadata(childClass).getDeletedDateAttribute();
+            if (childDeletedDate == null) {
+                throw new IllegalStateException("@CascadeSoftDelete attribute " + attributeName
+                        + " refers to entity " + childClass.getName() + " without @DeletedDate attribute");
+            }
+            EntityType<?> childType = metamodel.entity(childClass);
+            cascades.add(new Cascade(childClass, childType.getName(), getIdAttribute(childType),
+                    mappedBy + "." + getIdAttribute(parentType), childDeletedDate));
+
+            collectCascades(metamodel, childClass, result);
+        }
+    }
+
+    @Nullable
+    private static String getMappedBy(AnnotatedElement element) {
+        OneToMany oneToMany = element.getAnnotation(OneToMany.class);
+        if (oneToMany != null) {
+            return oneToMany.mappedBy();
+        }
+        OneToOne oneToOne = element.getAnnotation(OneToOne.class);
+        return oneToOne != null ? oneToOne.mappedBy() : null;
+    }
+
+    private static String getIdAttribute(EntityType<?> entityType) {
+        if (!entityType.hasSingleIdAttribute()) {
+            throw new IllegalStateException("Entity " + entityType.getJavaType().getName() + " should have a single id attribute");
+        }
+        return entityType.getId(entityType.getIdType().getJavaType()).getName();
+    }
+
+    private static final class Cascade {
+
+        private final Class<?> childClass;
+        private final String selectLiveIdsJpql;
+        private final String updateJpql;
+
+        Cascade(Class<?> childClass, String childEntityName, String childIdAttribute, String parentIdPath,
+                String childDeletedDateAttribute) {
+            this.childClass = childClass;
+            String where = " where e." + parentIdPath + " in :ids and e." + childDeletedDateAttribute + " is null";
+            selectLiveIdsJpql = "select e." + childIdAttribute + " from " + childEntityName + " e" + where;
+            updateJpql = "update " + childEntityName + " e set e." + childDeletedDateAttribute + " = :deletedDate" + where;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.jmix.data.repository;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread of the application context flushing the queues of all {@link io.jmix.data.config.SoftDeleteWriteBehind}
+ * entities in the background. The thread is created on first use and stopped when the context is closed, queued
+ * deletes are flushed by the repositories themselves on shutdown.
+ */
+@Component
+public class SoftDeleteFlushScheduler implements DisposableBean {
+
+    private ScheduledExecutorService executor;
+
+    private boolean destroyed;
+
+    /**
+     * @throws RejectedExecutionException if the application context is closed
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long delayMillis) {
+        return getExecutor().scheduleWithFixedDelay(task, delayMillis, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException if the application context is closed
+     */
+    public void execute(Runnable task) {
+        getExecutor().execute(task);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        destroyed = true;
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private synchronized ScheduledExecutorService getExecutor() {
+        if (destroyed) {
+            throw new RejectedExecutionException("Application context is closed");
+        }
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "jmix-soft-delete-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+}
@@ -1,6 +1,11 @@
 package io.jmix.data.repository;
 
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.lang.Nullable;
+
+import java.time.LocalDate;
+import java.util.Optional;
 
 @NoRepositoryBean
 public interface SoftDeleteRepository<T, ID> {
@@ -16,4 +21,43 @@ public interface SoftDeleteRepository<T, ID> {
     void purgeAll(Iterable<? extends T> entities);
 
     void purgeAll();
+
+    /**
+     * Physically deletes up to {@code limit} soft deleted entities, the ones with the lowest ids first, whose
+     * deleted date is before the given date. Entities are deleted with a single bulk statement, so cascades
+     * are not applied.
+     *
+     * @return number of deleted rows
+     */
+    int purgeDeletedBefore(LocalDate deletedBefore, int limit);
+
+    /**
+     * @return the earliest deleted date of soft deleted entities or empty if there are no such entities
+     */
+    Optional<LocalDate> findOldestDeletedDate();
+
+    /**
+     * Clears the deleted date of all soft deleted entities matching the given specification. Ids of matching
+     * entities are selected in chunks and every chunk is restored with a single bulk update, so managed
+     * instances are not refreshed.
+     *
+     * @param spec restriction of restored entities, {@literal null} restores all soft deleted entities
+     * @return number of restored rows
+     */
+    long restoreAll(@Nullable Specification<T> spec);
+
+    /**
+     * Clears the deleted date of soft deleted entities with the given ids using chunked bulk updates.
+     * Ids of entities that are not deleted are ignored.
+     *
+     * @return number of restored rows
+     */
+    long restoreById(Iterable<ID> ids);
+
+    /**
+     * Executes soft deletes queued for an entity annotated with {@link io.jmix.data.config.SoftDeleteWriteBehind}.
+     *
+     * @return number of soft deleted rows, zero if write-behind is not enabled for the entity
+     */
+    int flushPendingDeletes();
 }
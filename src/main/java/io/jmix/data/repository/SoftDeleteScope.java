@@ -0,0 +1,92 @@
+package io.jmix.data.repository;
+
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.util.Assert;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.function.Supplier;
+
+/**
+ * Thread-bound {@link DeletedRows} mode of repository reads. Repositories select precomputed filters and query
+ * variants for the current mode on each call, so reads with different modes run concurrently without locks.
+ * <pre>
+ * List&lt;Order&gt; all = SoftDeleteScope.call(DeletedRows.INCLUDE, () -&gt; orderRepository.findByCustomer(customer));
+ * List&lt;Order&gt; deleted = SoftDeleteScope.onlyDeleted(orderRepository).findByCustomer(customer);
+ * </pre>
+ */
+public final class SoftDeleteScope {
+
+    private static final ThreadLocal<DeletedRows> CURRENT = new ThreadLocal<>();
+
+    private SoftDeleteScope() {
+    }
+
+    public static DeletedRows current() {
+        DeletedRows mode = CURRENT.get();
+        return mode != null ? mode : DeletedRows.EXCLUDE;
+    }
+
+    public static <R> R call(DeletedRows mode, Supplier<R> action) {
+        Assert.notNull(mode, "Mode must not be null!");
+        DeletedRows previous = CURRENT.get();
+        CURRENT.set(mode);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    public static void run(DeletedRows mode, Runnable action) {
+        call(mode, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return view of the repository that returns live and soft deleted rows
+     */
+    public static <R> R withDeleted(R repository) {
+        return view(repository, DeletedRows.INCLUDE);
+    }
+
+    /**
+     * @return view of the repository that returns soft deleted rows only
+     */
+    public static <R> R onlyDeleted(R repository) {
+        return view(repository, DeletedRows.ONLY);
+    }
+
+    /**
+     * Creates a proxy implementing the repository interfaces that invokes every method of the repository in the
+     * given mode. The view holds no other state and can be shared between threads.
+     */
+    @SuppressWarnings("unchecked")
+    public static <R> R view(R repository, DeletedRows mode) {
+        Assert.notNull(repository, "Repository must not be null!");
+        Assert.notNull(mode, "Mode must not be null!");
+        Class<?>[] interfaces = AopProxyUtils.proxiedUserInterfaces(repository);
+        return (R) Proxy.newProxyInstance(interfaces[0].getClassLoader(), interfaces,
+                (proxy, method, args) -> {
+                    DeletedRows previous = CURRENT.get();
+                    CURRENT.set(mode);
+                    try {
+                        return method.invoke(repository, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    } finally {
+                        if (previous != null) {
+                            CURRENT.set(previous);
+                        } else {
+                            CURRENT.remove();
+                        }
+                    }
+                });
+    }
+}
@@ -0,0 +1,225 @@
+package io.jmix.data.repository;
+
+import io.jmix.data.config.SoftDeleteWriteBehind;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process queue of soft deleted ids, flushed with chunked bulk updates in its own transaction of the
+ * repository transaction manager. The capacity bounds the queued and in-flight ids together, ids of failed flushes
+ * included, so that deletes fail instead of piling up while the database rejects the updates.
+ */
+class SoftDeleteWriteBehindQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(SoftDeleteWriteBehindQueue.class);
+
+    private final EntityManagerFactory emf;
+    private final Class<?> domainClass;
+    private final SoftDeleteCascader cascader;
+    private final Runnable afterFlush;
+    private final String updateJpql;
+    private final int capacity;
+    private final int batchSize;
+    private final int flushInterval;
+
+    // queued and in-flight ids, removed after the flush transaction is committed
+    private final Set<Object> pending = ConcurrentHashMap.newKeySet();
+    private final Object queueLock = new Object();
+    private final Object flushLock = new Object();
+
+    private List<Object> queue = new ArrayList<>();
+
+    private volatile Supplier<PlatformTransactionManager> transactionManager;
+
+    private volatile TransactionTemplate transactionTemplate;
+
+    private volatile SoftDeleteFlushScheduler scheduler;
+
+    private volatile ScheduledFuture<?> scheduledFlush;
+
+    SoftDeleteWriteBehindQueue(EntityManagerFactory emf, Class<?> domainClass, SoftDeleteWriteBehind annotation,
+                               String entityName, String idAttribute, String deletedDateAttribute,
+                               @Nullable SoftDeleteCascader cascader, Runnable afterFlush) {
+        this.emf = emf;
+        this.transactionManager = () -> new JpaTransactionManager(emf);
+        this.domainClass = domainClass;
+        this.cascader = cascader;
+        this.afterFlush = afterFlush;
+        this.capacity = Math.max(1, annotation.capacity());
+        this.batchSize = Math.max(1, Math.min(annotation.batchSize(), capacity));
+        this.updateJpql = "update " + entityName + " e set e." + deletedDateAttribute + " = :deletedDate where e."
+                + idAttribute + " in :ids and e." + deletedDateAttribute + " is null";
+        this.flushInterval = Math.max(1, annotation.flushIntervalMillis());
+    }
+
+    /**
+     * Starts the periodic background flushes.
+     */
+    void start(SoftDeleteFlushScheduler scheduler) {
+        this.scheduler = scheduler;
+        scheduledFlush = scheduler.scheduleWithFixedDelay(this::flushQuietly, flushInterval);
+    }
+
+    /**
+     * Sets the transaction manager of the flushes, a {@link JpaTransactionManager} of the entity manager factory by
+     * default.
+     */
+    void setTransactionManager(Supplier<PlatformTransactionManager> transactionManager) {
+        this.transactionManager = transactionManager;
+        this.transactionTemplate = null;
+    }
+
+    /**
+     * Queues the id. When the queue is full, it is flushed in the calling thread first, and the exception of a
+     * failed flush is thrown without queueing the id.
+     */
+    void add(Object id) {
+        int size;
+        while (true) {
+            synchronized (queueLock) {
+                if (pending.contains(id)) {
+                    return;
+                }
+                if (pending.size() < capacity) {
+                    pending.add(id);
+                    queue.add(id);
+                    size = queue.size();
+                    break;
+                }
+            }
+            flush();
+        }
+        if (size == batchSize) {
+            SoftDeleteFlushScheduler flushScheduler = scheduler;
+            try {
+                if (flushScheduler == null) {
+                    throw new RejectedExecutionException("Write-behind queue is not started");
+                }
+                flushScheduler.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                flush();
+            }
+        }
+    }
+
+    boolean isPending(Object id) {
+        return pending.contains(id);
+    }
+
+    boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    List<Object> getPendingIds() {
+        return new ArrayList<>(pending);
+    }
+
+    /**
+     * Marks all queued ids as deleted. Failed ids are returned to the queue and the exception is rethrown, they
+     * still count against the capacity.
+     *
+     * @return number of updated rows
+     */
+    int flush() {
+        synchronized (flushLock) {
+            List<Object> ids;
+            synchronized (queueLock) {
+                ids = queue;
+                queue = new ArrayList<>();
+            }
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            try {
+                int updated = write(ids);
+                pending.removeAll(ids);
+                afterFlush.run();
+                log.debug("Soft deleted {} {} from the write-behind queue", updated, domainClass.getSimpleName());
+                return updated;
+            } catch (RuntimeException e) {
+                synchronized (queueLock) {
+                    ids.addAll(queue);
+                    queue = ids;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Stops the background flushes and flushes the queued ids in the calling thread.
+     */
+    void shutdown() {
+        ScheduledFuture<?> flushes = scheduledFlush;
+        if (flushes != null) {
+            flushes.cancel(false);
+        }
+        scheduler = null;
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Cannot flush soft deletes of {} on shutdown, {} ids are lost",
+                    domainClass.getSimpleName(), pending.size(), e);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Write-behind soft delete of {} failed, will retry", domainClass.getSimpleName(), e);
+        }
+    }
+
+    private int write(List<Object> ids) {
+        LocalDate deletedDate = LocalDate.now();
+        Integer updated = getTransactionTemplate().execute(status -> {
+            EntityManager em = EntityManagerFactoryUtils.getTransactionalEntityManager(emf);
+            if (em == null) {
+                throw new IllegalStateException("No transactional EntityManager for write-behind soft delete of "
+                        + domainClass.getSimpleName());
+            }
+            int count = 0;
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<Object> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                count += em.createQuery(updateJpql)
+                        .setParameter("deletedDate", deletedDate)
+                        .setParameter("ids", chunk)
+                        .executeUpdate();
+                if (cascader != null) {
+                    cascader.cascade(em, chunk, deletedDate);
+                }
+            }
+            return count;
+        });
+        return updated != null ? updated : 0;
+    }
+
+    private TransactionTemplate getTransactionTemplate() {
+        TransactionTemplate template = transactionTemplate;
+        if (template == null) {
+            // flushes triggered by a full queue must not join the caller's transaction
+            template = new TransactionTemplate(transactionManager.get());
+            template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            transactionTemplate = template;
+        }
+        return template;
+    }
+}
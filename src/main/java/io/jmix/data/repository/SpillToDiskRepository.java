@@ -0,0 +1,20 @@
+package io.jmix.data.repository;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.lang.Nullable;
+
+/**
+ * Query results written to a temporary file instead of the heap, for callers that need a complete result for
+ * several passes. Rows are streamed from the database and serialized one by one, so heap consumption does not depend
+ * on the number of rows. Entities are read outside of the caller's transaction, with the soft delete filter of the
+ * current {@link SoftDeleteScope} mode.
+ * <p>
+ * The returned {@link SpilledResult} must be closed. See {@link SpilledResult} for the restored attributes.
+ */
+@NoRepositoryBean
+public interface SpillToDiskRepository<T> {
+
+    SpilledResult<T> findAllSpilled(@Nullable Specification<T> spec, Sort sort);
+}
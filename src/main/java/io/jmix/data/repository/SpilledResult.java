@@ -0,0 +1,111 @@
+package io.jmix.data.repository;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Result of a {@link SpillToDiskRepository} query kept in a temporary file. The result can be iterated any number
+ * of times, also concurrently; every iteration deserializes entities one by one, returning new detached instances.
+ * Closing the result deletes the file.
+ * <p>
+ * Restored entities keep basic attributes and {@link java.io.Serializable} embedded attributes. To-one
+ * associations are restored as new instances of the associated entity with only the id set, collections are not
+ * restored.
+ */
+public class SpilledResult<T> implements Iterable<T>, Closeable {
+
+    private final MappedSpillFile file;
+    private final RowCodec<T> codec;
+    private final long durationMillis;
+
+    private volatile boolean closed;
+
+    SpilledResult(MappedSpillFile file, RowCodec<T> codec, long durationMillis) {
+        this.file = file;
+        this.codec = codec;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * @return number of entities
+     */
+    public long size() {
+        return file.getRecordCount();
+    }
+
+    /**
+     * @return size of the file in bytes
+     */
+    public long getFileSize() {
+        return file.getSize();
+    }
+
+    /**
+     * @return time taken to read the query result and write the file
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        checkOpen();
+        MappedSpillFile.Reader reader = file.reader();
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return reader.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!reader.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                checkOpen();
+                try {
+                    return codec.decode(reader.next());
+                } catch (IOException e) {
+                    throw new DataAccessResourceFailureException("Cannot read spilled result", e);
+                }
+            }
+        };
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliterator(iterator(), size(),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Cannot delete spilled result", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d entities, %d bytes, %d ms", size(), getFileSize(), durationMillis);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Spilled result is closed");
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package io.jmix.data.schema;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Index that serves queries filtered by {@code <deleted date column> IS NULL}.
+ */
+public class IndexRecommendation {
+
+    private static final int MAX_NAME_LENGTH = 60;
+
+    private final Class<?> entityClass;
+    private final String table;
+    private final List<String> columns;
+    private final String deletedDateColumn;
+
+    public IndexRecommendation(Class<?> entityClass, String table, List<String> columns, String deletedDateColumn) {
+        this.entityClass = entityClass;
+        this.table = table;
+        this.columns = Collections.unmodifiableList(columns);
+        this.deletedDateColumn = deletedDateColumn;
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public String getDeletedDateColumn() {
+        return deletedDateColumn;
+    }
+
+    public String getIndexName() {
+        String name = "ix_" + table + "_" + String.join("_", columns) + "_live";
+        if (name.length() > MAX_NAME_LENGTH) {
+            String hash = Integer.toHexString(name.hashCode());
+            name = name.substring(0, MAX_NAME_LENGTH - hash.length() - 1) + "_" + hash;
+        }
+        return name;
+    }
+
+    /**
+     * @return partial (filtered) index DDL, supported by PostgreSQL, SQL Server and SQLite
+     */
+    public String getPartialIndexDdl() {
+        return "CREATE INDEX " + getIndexName() + " ON " + table + " (" + String.join(", ", columns) + ") WHERE "
+                + deletedDateColumn + " IS NULL";
+    }
+
+    /**
+     * @return composite index DDL with the deleted date column first, for databases without partial indexes
+     */
+    public String getCompositeIndexDdl() {
+        return "CREATE INDEX " + getIndexName() + " ON " + table + " (" + deletedDateColumn + ", " + String.join(", ", columns) + ")";
+    }
+
+    /**
+     * @param databaseProductName as returned by {@link java.sql.DatabaseMetaData#getDatabaseProductName()}
+     */
+    public String getDdl(String databaseProductName) {
+        String product = databaseProductName.toLowerCase();
+        boolean partialIndexes = product.contains("postgres") || product.contains("sql server") || product.contains("sqlite");
+        return partialIndexes ? getPartialIndexDdl() : getCompositeIndexDdl();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        IndexRecommendation that = (IndexRecommendation) o;
+        return table.equals(that.table) && columns.equals(that.columns) && deletedDateColumn.equals(that.deletedDateColumn);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(table, columns, deletedDateColumn);
+    }
+
+    @Override
+    public String toString() {
+        return getPartialIndexDdl();
+    }
+}
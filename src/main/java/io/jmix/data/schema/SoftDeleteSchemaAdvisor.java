@@ -0,0 +1,252 @@
+package io.jmix.data.schema;
+
+import io.jmix.data.config.JmixDataProperties;
+import io.jmix.data.metadata.EntityMetadataRegistry;
+import io.jmix.data.metadata.PhysicalNames;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.mapping.PropertyPath;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.EntityType;
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Recommends indexes serving the {@code <deleted date column> IS NULL} predicate that is added to every query
+ * of a soft deletable entity. Recommendations are built from the id attribute of each {@link io.jmix.data.config.DeletedDate}
+ * entity and from the WHERE attributes of the derived finders of its repositories. Table and column names are taken
+ * from the Hibernate mapping; entities mapped to several tables are skipped.
+ * <p>
+ * If {@code jmix.data.schema-advisor.enabled} is set, soft deletable tables are checked on startup and a warning
+ * with the recommended DDL is logged for each table that has no index including the deleted date column.
+ */
+@Component
+public class SoftDeleteSchemaAdvisor implements ApplicationContextAware, ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(SoftDeleteSchemaAdvisor.class);
+
+    private ApplicationContext applicationContext;
+
+    private JmixDataProperties properties;
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+        this.properties = new JmixDataProperties(applicationContext.getEnvironment());
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (event.getApplicationContext() != applicationContext || !properties.isSchemaAdvisorEnabled()) {
+            return;
+        }
+        Map<String, DataSource> dataSources = applicationContext.getBeansOfType(DataSource.class);
+        if (dataSources.size() != 1) {
+            log.info("Soft delete index check skipped: expected a single DataSource, found {}", dataSources.size());
+            return;
+        }
+        try {
+            checkIndexes(dataSources.values().iterator().next());
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Soft delete index check failed", e);
+        }
+    }
+
+    /**
+     * @return index recommendations for all soft deletable entities, duplicates removed
+     */
+    public List<IndexRecommendation> getRecommendations() {
+        Set<IndexRecommendation> result = new LinkedHashSet<>();
+        Repositories repositories = new Repositories(applicationContext);
+        getEntityTypes().forEach((entityType, emf) -> {
+            Class<?> entityClass = entityType.getJavaType();
+            String deletedDateAttribute = EntityMetadataRegistry.getMetadata(entityClass).getDeletedDateAttribute();
+            if (deletedDateAttribute == null) {
+                return;
+            }
+            PhysicalNames names = PhysicalNames.of(emf, entityClass);
+            if (names.isMultiTable()) {
+                log.debug("Soft delete indexes of {} skipped: the entity is mapped to several tables", entityClass.getName());
+                return;
+            }
+            String table = names.getTableName();
+            String deletedDateColumn = names.getColumnName(deletedDateAttribute);
+            if (entityType.hasSingleIdAttribute()) {
+                String idAttribute = entityType.getId(entityType.getIdType().getJavaType()).getName();
+                result.add(new IndexRecommendation(entityClass, table,
+                        Collections.singletonList(names.getColumnName(idAttribute)), deletedDateColumn));
+            }
+            Optional<RepositoryInformation> information = repositories.getRepositoryInformationFor(entityClass);
+            if (!information.isPresent()) {
+                return;
+            }
+            for (Method method : information.get().getQueryMethods()) {
+                for (List<String> attributes : getWhereAttributes(method, entityClass)) {
+                    List<String> columns = getColumnNames(names, attributes);
+                    if (columns != null) {
+                        result.add(new IndexRecommendation(entityClass, table, columns, deletedDateColumn));
+                    }
+                }
+            }
+        });
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * @param databaseProductName as returned by {@link DatabaseMetaData#getDatabaseProductName()}
+     * @return DDL script creating all recommended indexes
+     */
+    public String generateDdl(String databaseProductName) {
+        return getRecommendations().stream()
+                .map(recommendation -> recommendation.getDdl(databaseProductName) + ";")
+                .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Logs a warning for each soft deletable table that has no index including the deleted date column,
+     * neither as a key column nor in the filter condition of a partial index.
+     */
+    public void checkIndexes(DataSource dataSource) throws SQLException {
+        Map<String, List<IndexRecommendation>> byTable = getRecommendations().stream()
+                .collect(Collectors.groupingBy(IndexRecommendation::getTable, LinkedHashMap::new, Collectors.toList()));
+        if (byTable.isEmpty()) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String productName = metaData.getDatabaseProductName();
+            byTable.forEach((table, recommendations) -> {
+                String deletedDateColumn = recommendations.get(0).getDeletedDateColumn();
+                try {
+                    if (!hasSoftDeleteIndex(metaData, table, deletedDateColumn)) {
+                        String ddl = recommendations.stream()
+                                .map(recommendation -> recommendation.getDdl(productName) + ";")
+                                .collect(Collectors.joining("\n"));
+                        log.warn("Table {} has no index on soft delete column {}, recommended indexes:\n{}",
+                                table, deletedDateColumn, ddl);
+                    }
+                } catch (SQLException e) {
+                    log.warn("Cannot read indexes of table {}", table, e);
+                }
+            });
+        }
+    }
+
+    private Map<EntityType<?>, EntityManagerFactory> getEntityTypes() {
+        Map<EntityType<?>, EntityManagerFactory> result = new LinkedHashMap<>();
+        Set<Class<?>> seen = new LinkedHashSet<>();
+        for (EntityManagerFactory emf : applicationContext.getBeansOfType(EntityManagerFactory.class).values()) {
+            for (EntityType<?> entityType : emf.getMetamodel().getEntities()) {
+                if (seen.add(entityType.getJavaType())) {
+                    result.put(entityType, emf);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return distinct columns of the attributes or {@literal null} if an attribute is not mapped to a single column
+     */
+    @Nullable
+    private static List<String> getColumnNames(PhysicalNames names, List<String> attributes) {
+        Set<String> columns = new LinkedHashSet<>();
+        for (String attribute : attributes) {
+            try {
+                columns.add(names.getColumnName(attribute));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return new ArrayList<>(columns);
+    }
+
+    /**
+     * Returns top-level attributes of each OR branch of a derived query, equality attributes first.
+     * Declared queries and nested property paths are skipped.
+     */
+    private List<List<String>> getWhereAttributes(Method method, Class<?> entityClass) {
+        if (AnnotatedElementUtils.hasAnnotation(method, Query.class)) {
+            return Collections.emptyList();
+        }
+        PartTree tree;
+        try {
+            tree = new PartTree(method.getName(), entityClass);
+        } catch (RuntimeException e) {
+            return Collections.emptyList();
+        }
+        List<List<String>> result = new ArrayList<>();
+        for (PartTree.OrPart orPart : tree) {
+            List<String> equality = new ArrayList<>();
+            List<String> range = new ArrayList<>();
+            for (Part part : orPart) {
+                PropertyPath property = part.getProperty();
+                if (property.hasNext()) {
+                    continue;
+                }
+                if (part.getType() == Part.Type.SIMPLE_PROPERTY) {
+                    equality.add(property.getSegment());
+                } else {
+                    range.add(property.getSegment());
+                }
+            }
+            equality.addAll(range);
+            if (!equality.isEmpty()) {
+                result.add(equality);
+            }
+        }
+        return result;
+    }
+
+    private boolean hasSoftDeleteIndex(DatabaseMetaData metaData, String qualifiedTable, String qualifiedDeletedDateColumn)
+            throws SQLException {
+        String table = PhysicalNames.toMetadataName(qualifiedTable);
+        String deletedDateColumn = PhysicalNames.toMetadataName(qualifiedDeletedDateColumn);
+        for (String name : new LinkedHashSet<>(Arrays.asList(table, table.toUpperCase(), table.toLowerCase()))) {
+            boolean tableFound = false;
+            try (ResultSet indexes = metaData.getIndexInfo(null, null, name, false, true)) {
+                while (indexes.next()) {
+                    tableFound = true;
+                    String column = indexes.getString("COLUMN_NAME");
+                    String filter = indexes.getString("FILTER_CONDITION");
+                    if (deletedDateColumn.equalsIgnoreCase(column)
+                            || (filter != null && filter.toLowerCase().contains(deletedDateColumn.toLowerCase()))) {
+                        return true;
+                    }
+                }
+            }
+            if (tableFound) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
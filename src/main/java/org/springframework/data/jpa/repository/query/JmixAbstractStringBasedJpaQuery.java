@@ -8,14 +8,16 @@ import org.springframework.data.repository.query.QueryMethodEvaluationContextPro
 import org.springframework.data.repository.query.ResultProcessor;
 import org.springframework.data.repository.query.ReturnedType;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
+import java.util.function.Supplier;
 
 import static org.springframework.data.jpa.repository.query.QueryParameterSetter.ErrorHandling.LENIENT;
 
-public class JmixAbstractStringBasedJpaQuery extends AbstractJpaQuery {
+public class JmixAbstractStringBasedJpaQuery extends AbstractJpaQuery implements JmixWarmableQuery, JmixEntityManagerScoped {
 
     private static final Logger log = LoggerFactory.getLogger(JmixAbstractStringBasedJpaQuery.class);
 
@@ -24,6 +26,11 @@ public class JmixAbstractStringBasedJpaQuery extends AbstractJpaQuery {
     private final DeclaredQuery countQuery;
     private final QueryMethodEvaluationContextProvider evaluationContextProvider;
     private final SpelExpressionParser parser;
+    private final JmixPagedExecution pagedExecution;
+    private final JmixResultCaching resultCaching;
+    private final JmixSingleFlight singleFlight;
+    private final JmixQueryLimits limits;
+    private final JmixEntityManagerScope entityManagerScope = new JmixEntityManagerScope();
 
 
     public JmixAbstractStringBasedJpaQuery(JpaQueryMethod method, EntityManager em, String queryString,
@@ -46,11 +53,60 @@ public class JmixAbstractStringBasedJpaQuery extends AbstractJpaQuery {
         this.countQuery = ExpressionBasedStringQuery.from(countQuery, method.getEntityInformation(), parser);
 
         this.parser = parser;
+        this.pagedExecution = JmixPagedExecution.create(method);
+        this.resultCaching = JmixResultCaching.create(method);
+        this.singleFlight = JmixSingleFlight.create(method);
+        this.limits = JmixQueryLimits.create(method);
 
         Assert.isTrue(method.isNativeQuery() || !query.usesJdbcStyleParameters(),
                 "JDBC style parameters (?) are not supported for JPA queries.");
     }
 
+    @Override
+    protected JpaQueryExecution getExecution() {
+        return pagedExecution != null ? pagedExecution : super.getExecution();
+    }
+
+    @Nullable
+    @Override
+    public Object execute(Object[] parameters) {
+        if (resultCaching == null) {
+            return executeShared(parameters);
+        }
+        return resultCaching.execute(getEntityManager().getEntityManagerFactory(), parameters,
+                () -> executeShared(parameters));
+    }
+
+    @Nullable
+    private Object executeShared(Object[] parameters) {
+        if (singleFlight == null) {
+            return executeLimited(parameters);
+        }
+        return singleFlight.execute(getEntityManager().getEntityManagerFactory(), parameters,
+                () -> executeLimited(parameters));
+    }
+
+    @Nullable
+    private Object executeLimited(Object[] parameters) {
+        return limits != null ? limits.execute(() -> super.execute(parameters)) : super.execute(parameters);
+    }
+
+    @Override
+    protected <T extends Query> T applyHints(T query, JpaQueryMethod method) {
+        T result = super.applyHints(query, method);
+        return limits != null ? limits.apply(result) : result;
+    }
+
+    @Override
+    protected EntityManager getEntityManager() {
+        return entityManagerScope.resolve(super.getEntityManager());
+    }
+
+    @Override
+    public <R> R withEntityManager(EntityManager em, Supplier<R> action) {
+        return entityManagerScope.call(em, action);
+    }
+
     /*
      * (non-Javadoc)
      * @see org.springframework.data.jpa.repository.query.AbstractJpaQuery#doCreateQuery(java.lang.Object[])
@@ -97,6 +153,21 @@ public class JmixAbstractStringBasedJpaQuery extends AbstractJpaQuery {
         return parameterBinder.get().bind(query, values, LENIENT);
     }
 
+    @Override
+    public void warmUp(EntityManager em) {
+
+        // native queries are not parsed by the persistence provider
+        if (getQueryMethod().isNativeQuery()) {
+            return;
+        }
+
+        em.createQuery(query.getQueryString());
+
+        if (getQueryMethod().isPageQuery()) {
+            em.createQuery(countQuery.getQueryString());
+        }
+    }
+
     /**
      * @return the query
      */
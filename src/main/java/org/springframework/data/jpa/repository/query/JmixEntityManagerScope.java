@@ -0,0 +1,31 @@
+package org.springframework.data.jpa.repository.query;
+
+import javax.persistence.EntityManager;
+import java.util.function.Supplier;
+
+/**
+ * Thread-bound {@link EntityManager} that replaces the query's own one, see {@link JmixEntityManagerScoped}.
+ */
+final class JmixEntityManagerScope {
+
+    private final ThreadLocal<EntityManager> current = new ThreadLocal<>();
+
+    EntityManager resolve(EntityManager defaultEm) {
+        EntityManager em = current.get();
+        return em != null ? em : defaultEm;
+    }
+
+    <R> R call(EntityManager em, Supplier<R> action) {
+        EntityManager previous = current.get();
+        current.set(em);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                current.set(previous);
+            } else {
+                current.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.springframework.data.jpa.repository.query;
+
+import javax.persistence.EntityManager;
+import java.util.function.Supplier;
+
+/**
+ * Query that can create its JPA queries in an {@link EntityManager} other than the one it was created with, e.g. to
+ * execute them in another thread.
+ */
+interface JmixEntityManagerScoped {
+
+    /**
+     * Runs the action with the given {@link EntityManager} used by the query in the current thread.
+     */
+    <R> R withEntityManager(EntityManager em, Supplier<R> action);
+}
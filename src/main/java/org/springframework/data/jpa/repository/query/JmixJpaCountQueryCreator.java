@@ -1,5 +1,6 @@
 package org.springframework.data.jpa.repository.query;
 
+import io.jmix.data.repository.DeletedRows;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.repository.query.ReturnedType;
 import org.springframework.data.repository.query.parser.PartTree;
@@ -17,6 +18,11 @@ public class JmixJpaCountQueryCreator extends JmixJpaQueryCreator {
         super(tree, type, builder, provider);
     }
 
+    public JmixJpaCountQueryCreator(PartTree tree, ReturnedType type, CriteriaBuilder builder, ParameterMetadataProvider provider,
+                                    DeletedRows deletedRows) {
+        super(tree, type, builder, provider, deletedRows);
+    }
+
     /*
      * (non-Javadoc)
      * @see org.springframework.data.jpa.repository.query.JpaQueryCreator#createCriteriaQuery(javax.persistence.criteria.CriteriaBuilder, org.springframework.data.repository.query.ReturnedType)
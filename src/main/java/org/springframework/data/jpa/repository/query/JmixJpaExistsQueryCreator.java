@@ -0,0 +1,58 @@
+package org.springframework.data.jpa.repository.query;
+
+import io.jmix.data.repository.DeletedRows;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.ReturnedType;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.lang.Nullable;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.IdentifiableType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Creates {@code existsBy} queries that select only the id, so that no entity is loaded to check the existence.
+ */
+public class JmixJpaExistsQueryCreator extends JmixJpaQueryCreator {
+
+    public JmixJpaExistsQueryCreator(PartTree tree, ReturnedType type, CriteriaBuilder builder, ParameterMetadataProvider provider) {
+        super(tree, type, builder, provider);
+    }
+
+    public JmixJpaExistsQueryCreator(PartTree tree, ReturnedType type, CriteriaBuilder builder, ParameterMetadataProvider provider,
+                                     DeletedRows deletedRows) {
+        super(tree, type, builder, provider, deletedRows);
+    }
+
+    @Override
+    protected CriteriaQuery<? extends Object> createCriteriaQuery(CriteriaBuilder builder, ReturnedType type) {
+        return builder.createQuery(Object.class);
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected CriteriaQuery<? extends Object> complete(@Nullable Predicate predicate, Sort sort,
+                                                       CriteriaQuery<? extends Object> query, CriteriaBuilder builder, Root<?> root) {
+        IdentifiableType<?> model = root.getModel();
+        CriteriaQuery<Object> select = (CriteriaQuery<Object>) query;
+        if (model.hasSingleIdAttribute()) {
+            SingularAttribute id = model.getId(model.getIdType().getJavaType());
+            select = select.select(root.get(id));
+        } else {
+            List<Selection<?>> ids = model.getIdClassAttributes().stream()
+                    .map(it -> (Selection<?>) root.get((SingularAttribute) it))
+                    .collect(Collectors.toList());
+            select = select.multiselect(ids);
+        }
+
+        predicate = addSoftDelete(predicate, query, builder, root);
+
+        return predicate == null ? select : select.where(predicate);
+    }
+}
@@ -1,7 +1,7 @@
 package org.springframework.data.jpa.repository.query;
 
-import io.jmix.data.config.DeletedDate;
-import org.apache.commons.lang3.reflect.FieldUtils;
+import io.jmix.data.metadata.EntityMetadataRegistry;
+import io.jmix.data.repository.DeletedRows;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.repository.query.ReturnedType;
 import org.springframework.data.repository.query.parser.PartTree;
@@ -11,19 +11,22 @@ import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
-import java.lang.reflect.Field;
-import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
 
 public class JmixJpaQueryCreator extends JpaQueryCreator {
 
     private final ReturnedType type;
+    private final DeletedRows deletedRows;
 
 
     public JmixJpaQueryCreator(PartTree tree, ReturnedType type, CriteriaBuilder builder, ParameterMetadataProvider provider) {
+        this(tree, type, builder, provider, DeletedRows.EXCLUDE);
+    }
+
+    public JmixJpaQueryCreator(PartTree tree, ReturnedType type, CriteriaBuilder builder, ParameterMetadataProvider provider,
+                               DeletedRows deletedRows) {
         super(tree, type, builder, provider);
         this.type = type;
+        this.deletedRows = deletedRows;
     }
 
     @Override
@@ -35,22 +38,34 @@ public class JmixJpaQueryCreator extends JpaQueryCreator {
     protected Predicate addSoftDelete(@Nullable Predicate predicate, CriteriaQuery<?> query, CriteriaBuilder builder, Root<?> root) {
         //TODO Refining query by adding soft delete - we also need to add row-based security expressions here
         Predicate queryRestriction = query.getRestriction();
-        Field deletedBy = findDeletedMarkerField(type.getDomainType());
-        Predicate isNotDeleted = builder.isNull(root.get(deletedBy.getName()));
+        Predicate deletedRestriction = getDeletedRestriction(builder, root);
         if (queryRestriction != null) {
             predicate = builder.and(queryRestriction);
         }
-        return builder.and(isNotDeleted, predicate);
+        if (deletedRestriction == null) {
+            return predicate;
+        }
+        return predicate == null ? deletedRestriction : builder.and(deletedRestriction, predicate);
+    }
+
+    @Nullable
+    private Predicate getDeletedRestriction(CriteriaBuilder builder, Root<?> root) {
+        switch (deletedRows) {
+            case EXCLUDE:
+                return builder.isNull(root.get(findDeletedMarkerAttribute(type.getDomainType())));
+            case ONLY:
+                return builder.isNotNull(root.get(findDeletedMarkerAttribute(type.getDomainType())));
+            default:
+                return null;
+        }
     }
 
-    private Field findDeletedMarkerField(Class<?> aClass) {
-        List<Field> fields = Arrays.stream(FieldUtils.getAllFields(aClass))
-                .filter(field -> field.isAnnotationPresent(DeletedDate.class))
-                .collect(Collectors.toList());
-        if (fields.size() != 1) {
-            throw new IllegalStateException("Entity should have exactly one deletedBy field, now it is: "+fields.size());
+    private String findDeletedMarkerAttribute(Class<?> aClass) {
+        String attribute = EntityMetadataRegistry.getMetadata(aClass).getDeletedDateAttribute();
+        if (attribute == null) {
+            throw new IllegalStateException("Entity should have exactly one deletedBy field, now it is: 0");
         }
-        return fields.get(0);
+        return attribute;
     }
 
 }
@@ -0,0 +1,89 @@
+package org.springframework.data.jpa.repository.query;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.repository.query.QueryMethod;
+import org.springframework.data.repository.query.RepositoryQuery;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * {@link RepositoryQuery} that defers creation of the actual query until the first invocation. Query parsing,
+ * criteria building and validation are moved out of the repository initialization this way.
+ */
+public class JmixLazyRepositoryQuery implements RepositoryQuery, JmixWarmableQuery {
+
+    private static final Logger log = LoggerFactory.getLogger(JmixLazyRepositoryQuery.class);
+
+    private final JpaQueryMethod method;
+    private final Supplier<RepositoryQuery> queryFactory;
+
+    private volatile RepositoryQuery delegate;
+
+    public JmixLazyRepositoryQuery(JpaQueryMethod method, Supplier<RepositoryQuery> queryFactory) {
+        Assert.notNull(method, "Query method must not be null!");
+        Assert.notNull(queryFactory, "Query factory must not be null!");
+        this.method = method;
+        this.queryFactory = queryFactory;
+    }
+
+    @Override
+    public Object execute(Object[] parameters) {
+        return getDelegate().execute(parameters);
+    }
+
+    @Override
+    public QueryMethod getQueryMethod() {
+        return method;
+    }
+
+    @Override
+    public void warmUp(EntityManager em) {
+        RepositoryQuery query = getDelegate();
+        if (query instanceof JmixWarmableQuery) {
+            ((JmixWarmableQuery) query).warmUp(em);
+        }
+    }
+
+    public boolean isInitialized() {
+        return delegate != null;
+    }
+
+    /**
+     * Creates the actual query if it has not been created yet.
+     *
+     * @return the actual query, never {@literal null}.
+     */
+    public RepositoryQuery getDelegate() {
+        RepositoryQuery query = delegate;
+        if (query == null) {
+            synchronized (this) {
+                query = delegate;
+                if (query == null) {
+                    long start = System.nanoTime();
+                    query = queryFactory.get();
+                    delegate = query;
+                    log.debug("Query for method {} created in {} us", method, (System.nanoTime() - start) / 1000);
+                }
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Schedules creation of the actual query on the given executor. Failures are logged and reported again on the
+     * first invocation of the method.
+     */
+    public void initializeInBackground(Executor executor) {
+        executor.execute(() -> {
+            try {
+                getDelegate();
+            } catch (RuntimeException e) {
+                log.warn("Background creation of query for method {} failed", method, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,207 @@
+package org.springframework.data.jpa.repository.query;
+
+import io.jmix.data.config.CountStrategy;
+import io.jmix.data.query.CountEstimator;
+import io.jmix.data.query.QueryBackgroundExecutor;
+import io.jmix.data.repository.DeletedRows;
+import io.jmix.data.repository.SoftDeleteScope;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.query.JmixJpaQueryMethod;
+import org.springframework.data.repository.query.ParametersParameterAccessor;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.data.util.Lazy;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes a {@link org.springframework.data.domain.Page} query according to the {@link CountStrategy} of the
+ * query method.
+ */
+class JmixPagedExecution extends JpaQueryExecution {
+
+    private static final int MAX_CACHED_COUNTS = 1000;
+
+    private final JpaQueryMethod method;
+    private final JpaParameters parameters;
+    private final CountStrategy strategy;
+    private final Lazy<CountEstimator> estimator;
+    private final Lazy<QueryBackgroundExecutor> countExecutor;
+    private final Map<JmixQueryKey, CachedCount> counts = new ConcurrentHashMap<>();
+
+    private JmixPagedExecution(JmixJpaQueryMethod method, CountStrategy strategy) {
+        this.method = method;
+        this.parameters = method.getParameters();
+        this.strategy = strategy;
+        this.estimator = Lazy.of(() -> method.getApplicationContext().getBeanProvider(CountEstimator.class).getIfUnique());
+        this.countExecutor = Lazy.of(() -> method.getApplicationContext().getBeanProvider(QueryBackgroundExecutor.class).getIfAvailable());
+    }
+
+    /**
+     * @return execution for a page query method annotated with {@link CountStrategy} or {@literal null}
+     */
+    @Nullable
+    static JmixPagedExecution create(JpaQueryMethod method) {
+        if (!method.isPageQuery() || !(method instanceof JmixJpaQueryMethod)) {
+            return null;
+        }
+        CountStrategy strategy = ((JmixJpaQueryMethod) method).findAnnotation(CountStrategy.class);
+        return strategy != null ? new JmixPagedExecution((JmixJpaQueryMethod) method, strategy) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Object doExecute(AbstractJpaQuery query, Object[] values) {
+        Pageable pageable = new ParametersParameterAccessor(parameters, values).getPageable();
+        Query contentQuery = query.createQuery(values);
+
+        if (strategy.value() == CountStrategy.Mode.SKIP) {
+            return executeWithoutCount(contentQuery, pageable);
+        }
+
+        JmixQueryKey key = strategy.value() == CountStrategy.Mode.CACHED ? JmixQueryKey.withoutPaging(values, parameters) : null;
+        Long knownTotal = key != null ? getCachedCount(key)
+                : strategy.value() == CountStrategy.Mode.ESTIMATED ? getEstimate() : null;
+        if (knownTotal != null) {
+            return PageableExecutionUtils.getPage(contentQuery.getResultList(), pageable, () -> knownTotal);
+        }
+
+        Future<Long> parallelCount = isParallel(query) ? submitCount(query, values) : null;
+        List<Object> content;
+        try {
+            content = contentQuery.getResultList();
+        } catch (RuntimeException e) {
+            if (parallelCount != null) {
+                parallelCount.cancel(true);
+            }
+            throw e;
+        }
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            long total = parallelCount != null ? await(parallelCount) : count(query, values);
+            if (key != null) {
+                cacheCount(key, total);
+            }
+            return total;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object executeWithoutCount(Query contentQuery, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(contentQuery.getResultList());
+        }
+        int pageSize = pageable.getPageSize();
+        // a First/Top limit smaller than the page size is kept
+        if (contentQuery.getMaxResults() == pageSize) {
+            contentQuery.setMaxResults(pageSize + 1);
+        }
+        List<Object> result = contentQuery.getResultList();
+        boolean hasNext = result.size() > pageSize;
+        List<Object> content = hasNext ? result.subList(0, pageSize) : result;
+        return new PageImpl<>(content, pageable, pageable.getOffset() + content.size() + (hasNext ? 1 : 0));
+    }
+
+    private boolean isParallel(AbstractJpaQuery query) {
+        return strategy.parallel()
+                && query instanceof JmixEntityManagerScoped
+                && method.getLockModeType() == null
+                && !TransactionSynchronizationManager.isActualTransactionActive()
+                && countExecutor.getOptional().isPresent();
+    }
+
+    private Future<Long> submitCount(AbstractJpaQuery query, Object[] values) {
+        DeletedRows deletedRows = SoftDeleteScope.current();
+        // resolved on the calling thread, so that the count reads from the database the content is read from
+        EntityManagerFactory emf = query.getEntityManager().getEntityManagerFactory();
+        return countExecutor.get().submit(
+                () -> SoftDeleteScope.call(deletedRows, () -> countInNewEntityManager(emf, query, values)));
+    }
+
+    private long countInNewEntityManager(EntityManagerFactory emf, AbstractJpaQuery query, Object[] values) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return ((JmixEntityManagerScoped) query).withEntityManager(em, () -> count(query, values));
+        } finally {
+            em.close();
+        }
+    }
+
+    private static long count(AbstractJpaQuery query, Object[] values) {
+        List<?> totals = query.createCountQuery(values).getResultList();
+        return totals.size() == 1 ? ((Number) totals.get(0)).longValue() : totals.size();
+    }
+
+    private static long await(Future<Long> count) {
+        try {
+            return count.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            count.cancel(true);
+            throw new IllegalStateException("Interrupted while waiting for the count query", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Count query failed", e.getCause());
+        }
+    }
+
+    @Nullable
+    private Long getEstimate() {
+        CountEstimator countEstimator = estimator.getOptional().orElse(null);
+        if (countEstimator == null) {
+            return null;
+        }
+        Long estimate = countEstimator.estimate(method.getEntityInformation().getJavaType());
+        return estimate != null && estimate > strategy.estimateThreshold() ? estimate : null;
+    }
+
+    @Nullable
+    private Long getCachedCount(JmixQueryKey key) {
+        CachedCount cached = counts.get(key);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.isExpired(System.nanoTime())) {
+            counts.remove(key, cached);
+            return null;
+        }
+        return cached.count;
+    }
+
+    private void cacheCount(JmixQueryKey key, long count) {
+        long now = System.nanoTime();
+        if (counts.size() >= MAX_CACHED_COUNTS) {
+            counts.values().removeIf(cached -> cached.isExpired(now));
+            if (counts.size() >= MAX_CACHED_COUNTS) {
+                counts.clear();
+            }
+        }
+        counts.put(key, new CachedCount(count, now + TimeUnit.SECONDS.toNanos(strategy.ttlSeconds())));
+    }
+
+    private static final class CachedCount {
+
+        private final long count;
+        private final long expiresAt;
+
+        CachedCount(long count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
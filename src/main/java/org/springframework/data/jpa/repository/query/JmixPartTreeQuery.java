@@ -1,9 +1,12 @@
 package org.springframework.data.jpa.repository.query;
 
+import io.jmix.data.repository.DeletedRows;
+import io.jmix.data.repository.SoftDeleteScope;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.provider.PersistenceProvider;
+import org.springframework.data.repository.query.JmixResultProcessor;
 import org.springframework.data.repository.query.ParametersParameterAccessor;
 import org.springframework.data.repository.query.ResultProcessor;
 import org.springframework.data.repository.query.ReturnedType;
@@ -16,9 +19,12 @@ import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
-public class JmixPartTreeQuery extends AbstractJpaQuery {
+public class JmixPartTreeQuery extends AbstractJpaQuery implements JmixWarmableQuery, JmixEntityManagerScoped {
 
     private static final Logger log = LoggerFactory.getLogger(JmixPartTreeQuery.class);
 
@@ -27,7 +33,17 @@ public class JmixPartTreeQuery extends AbstractJpaQuery {
 
     private final QueryPreparer query;
     private final QueryPreparer countQuery;
+    // preparers for the deleted rows modes other than EXCLUDE, created on first use
+    private final Map<DeletedRows, QueryPreparer> scopedQueries = new ConcurrentHashMap<>();
+    private final Map<DeletedRows, QueryPreparer> scopedCountQueries = new ConcurrentHashMap<>();
+    private final PersistenceProvider persistenceProvider;
+    private final boolean recreationRequired;
     private final EscapeCharacter escape;
+    private final JmixPagedExecution pagedExecution;
+    private final JmixResultCaching resultCaching;
+    private final JmixSingleFlight singleFlight;
+    private final JmixQueryLimits limits;
+    private final JmixEntityManagerScope entityManagerScope = new JmixEntityManagerScope();
 
     /**
      * Creates a new {@link PartTreeJpaQuery}.
@@ -43,16 +59,21 @@ public class JmixPartTreeQuery extends AbstractJpaQuery {
         super(method, em);
 
         this.escape = escape;
+        this.persistenceProvider = persistenceProvider;
         Class<?> domainClass = method.getEntityInformation().getJavaType();
         this.parameters = method.getParameters();
+        this.pagedExecution = JmixPagedExecution.create(method);
+        this.resultCaching = JmixResultCaching.create(method);
+        this.singleFlight = JmixSingleFlight.create(method);
+        this.limits = JmixQueryLimits.create(method);
 
-        boolean recreationRequired = parameters.hasDynamicProjection() || parameters.potentiallySortsDynamically();
+        this.recreationRequired = parameters.hasDynamicProjection() || parameters.potentiallySortsDynamically();
 
         try {
 
             this.tree = new PartTree(method.getName(), domainClass);
-            this.countQuery = new CountQueryPreparer(persistenceProvider, recreationRequired);
-            this.query = tree.isCountProjection() ? countQuery : new QueryPreparer(persistenceProvider, recreationRequired);
+            this.countQuery = new CountQueryPreparer(persistenceProvider, recreationRequired, DeletedRows.EXCLUDE);
+            this.query = tree.isCountProjection() ? countQuery : createQueryPreparer(DeletedRows.EXCLUDE);
 
         } catch (Exception o_O) {
             throw new IllegalArgumentException(
@@ -60,16 +81,87 @@ public class JmixPartTreeQuery extends AbstractJpaQuery {
         }
     }
 
+    @Override
+    protected JpaQueryExecution getExecution() {
+        if (tree.isExistsProjection()) {
+            return new JpaQueryExecution.ExistsExecution();
+        }
+        return pagedExecution != null ? pagedExecution : super.getExecution();
+    }
+
+    @Nullable
+    @Override
+    public Object execute(Object[] parameters) {
+        if (resultCaching == null) {
+            return executeShared(parameters);
+        }
+        return resultCaching.execute(getEntityManager().getEntityManagerFactory(), parameters,
+                () -> executeShared(parameters));
+    }
+
+    @Nullable
+    private Object executeShared(Object[] parameters) {
+        if (singleFlight == null) {
+            return executeLimited(parameters);
+        }
+        return singleFlight.execute(getEntityManager().getEntityManagerFactory(), parameters,
+                () -> executeLimited(parameters));
+    }
+
+    @Nullable
+    private Object executeLimited(Object[] parameters) {
+        return limits != null ? limits.execute(() -> super.execute(parameters)) : super.execute(parameters);
+    }
+
+    @Override
+    protected <T extends Query> T applyHints(T query, JpaQueryMethod method) {
+        T result = super.applyHints(query, method);
+        return limits != null ? limits.apply(result) : result;
+    }
+
+    @Override
+    protected EntityManager getEntityManager() {
+        return entityManagerScope.resolve(super.getEntityManager());
+    }
+
+    @Override
+    public <R> R withEntityManager(EntityManager em, Supplier<R> action) {
+        return entityManagerScope.call(em, action);
+    }
+
     @Override
     public Query doCreateQuery(Object[] values) {
-        return query.createQuery(values);
+        DeletedRows deletedRows = SoftDeleteScope.current();
+        QueryPreparer preparer = deletedRows == DeletedRows.EXCLUDE ? query
+                : scopedQueries.computeIfAbsent(deletedRows, this::createQueryPreparer);
+        return preparer.createQuery(values);
     }
 
 
     @Override
     @SuppressWarnings("unchecked")
     public TypedQuery<Long> doCreateCountQuery(Object[] values) {
-        return (TypedQuery<Long>) countQuery.createQuery(values);
+        DeletedRows deletedRows = SoftDeleteScope.current();
+        QueryPreparer preparer = deletedRows == DeletedRows.EXCLUDE ? countQuery
+                : scopedCountQueries.computeIfAbsent(deletedRows,
+                mode -> new CountQueryPreparer(persistenceProvider, recreationRequired, mode));
+        return (TypedQuery<Long>) preparer.createQuery(values);
+    }
+
+    private QueryPreparer createQueryPreparer(DeletedRows deletedRows) {
+        if (tree.isCountProjection()) {
+            return new CountQueryPreparer(persistenceProvider, recreationRequired, deletedRows);
+        }
+        return tree.isExistsProjection() ? new ExistsQueryPreparer(persistenceProvider, recreationRequired, deletedRows)
+                : new QueryPreparer(persistenceProvider, recreationRequired, deletedRows);
+    }
+
+    @Override
+    public void warmUp(EntityManager em) {
+        query.warmUp(em);
+        if (query != countQuery && getQueryMethod().isPageQuery()) {
+            countQuery.warmUp(em);
+        }
     }
 
 
@@ -86,10 +178,12 @@ public class JmixPartTreeQuery extends AbstractJpaQuery {
         private final @Nullable
         ParameterBinder cachedParameterBinder;
         private final PersistenceProvider persistenceProvider;
+        protected final DeletedRows deletedRows;
 
-        QueryPreparer(PersistenceProvider persistenceProvider, boolean recreateQueries) {
+        QueryPreparer(PersistenceProvider persistenceProvider, boolean recreateQueries, DeletedRows deletedRows) {
 
             this.persistenceProvider = persistenceProvider;
+            this.deletedRows = deletedRows;
 
             JmixJpaQueryCreator creator = createCreator(persistenceProvider, Optional.empty());
 
@@ -127,6 +221,20 @@ public class JmixPartTreeQuery extends AbstractJpaQuery {
             return restrictMaxResultsIfNecessary(invokeBinding(parameterBinder, createQuery(criteriaQuery), values));
         }
 
+        /**
+         * Creates the {@link TypedQuery} in the given {@link EntityManager} without binding and executing it.
+         */
+        void warmUp(EntityManager em) {
+
+            if (cachedCriteriaQuery != null) {
+                synchronized (cachedCriteriaQuery) {
+                    em.createQuery(cachedCriteriaQuery);
+                }
+            } else {
+                em.createQuery(createCreator(persistenceProvider, Optional.empty()).createQuery());
+            }
+        }
+
         /**
          * Restricts the max results of the given {@link Query} if the current {@code tree} marks this {@code query} as
          * limited.
@@ -168,7 +276,9 @@ public class JmixPartTreeQuery extends AbstractJpaQuery {
 
             TypedQuery<?> result;
 
-             log.info(criteriaQuery.getRestriction().getExpressions().toString());
+            if (criteriaQuery.getRestriction() != null) {
+                log.info(criteriaQuery.getRestriction().getExpressions().toString());
+            }
 
             if (this.cachedCriteriaQuery != null) {
                 synchronized (this.cachedCriteriaQuery) {
@@ -196,8 +306,11 @@ public class JmixPartTreeQuery extends AbstractJpaQuery {
 
             ReturnedType returnedType = accessor.map(processor::withDynamicProjection)//
                     .orElse(processor).getReturnedType();
+            if (processor instanceof JmixResultProcessor) {
+                returnedType = ((JmixResultProcessor) processor).getQueryType(returnedType);
+            }
 
-            return new JmixJpaQueryCreator(tree, returnedType, builder, provider);
+            return new JmixJpaQueryCreator(tree, returnedType, builder, provider, deletedRows);
         }
 
         /**
@@ -227,8 +340,8 @@ public class JmixPartTreeQuery extends AbstractJpaQuery {
      */
     private class CountQueryPreparer extends QueryPreparer {
 
-        CountQueryPreparer(PersistenceProvider persistenceProvider, boolean recreateQueries) {
-            super(persistenceProvider, recreateQueries);
+        CountQueryPreparer(PersistenceProvider persistenceProvider, boolean recreateQueries, DeletedRows deletedRows) {
+            super(persistenceProvider, recreateQueries, deletedRows);
         }
 
         /*
@@ -246,7 +359,8 @@ public class JmixPartTreeQuery extends AbstractJpaQuery {
                     .map(it -> new ParameterMetadataProvider(builder, it, persistenceProvider, escape))//
                     .orElseGet(() -> new ParameterMetadataProvider(builder, parameters, persistenceProvider, escape));
 
-            return new JmixJpaCountQueryCreator(tree, getQueryMethod().getResultProcessor().getReturnedType(), builder, provider);
+            return new JmixJpaCountQueryCreator(tree, getQueryMethod().getResultProcessor().getReturnedType(), builder, provider,
+                    deletedRows);
         }
 
         /**
@@ -260,5 +374,28 @@ public class JmixPartTreeQuery extends AbstractJpaQuery {
         }
     }
 
+    /**
+     * {@link QueryPreparer} for exists projections selecting the id only.
+     */
+    private class ExistsQueryPreparer extends QueryPreparer {
 
+        ExistsQueryPreparer(PersistenceProvider persistenceProvider, boolean recreateQueries, DeletedRows deletedRows) {
+            super(persistenceProvider, recreateQueries, deletedRows);
+        }
+
+        @Override
+        protected JmixJpaQueryCreator createCreator(PersistenceProvider persistenceProvider,
+                                                    Optional<ParametersParameterAccessor> accessor) {
+
+            EntityManager entityManager = getEntityManager();
+            CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+            ParameterMetadataProvider provider = accessor
+                    .map(it -> new ParameterMetadataProvider(builder, it, persistenceProvider, escape))//
+                    .orElseGet(() -> new ParameterMetadataProvider(builder, parameters, persistenceProvider, escape));
+
+            return new JmixJpaExistsQueryCreator(tree, getQueryMethod().getResultProcessor().getReturnedType(), builder, provider,
+                    deletedRows);
+        }
+    }
 }
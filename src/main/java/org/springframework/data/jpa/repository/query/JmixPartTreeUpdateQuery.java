@@ -0,0 +1,367 @@
+package org.springframework.data.jpa.repository.query;
+
+import io.jmix.data.config.AccessGroupSecurityProvider;
+import io.jmix.data.metadata.EntityMetadataRegistry;
+import io.jmix.data.query.QueryResultCaches;
+import io.jmix.data.repository.DeletedRows;
+import io.jmix.data.repository.SoftDeleteScope;
+import org.springframework.data.mapping.PropertyPath;
+import org.springframework.data.repository.query.JmixJpaQueryMethod;
+import org.springframework.data.repository.query.ParametersParameterAccessor;
+import org.springframework.data.repository.query.RepositoryQuery;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Derived bulk modifying query executed as a single {@link CriteriaUpdate}:
+ * <ul>
+ * <li>{@code updateStatusAndPriorityByRegion(status, priority, region)} sets the listed attributes, their values are
+ * the first parameters of the method;</li>
+ * <li>{@code softDeleteByCreatedBefore(date)} sets the deleted date of live rows to the current date.</li>
+ * </ul>
+ * Criteria after {@code By} are parsed as for {@code findBy} methods and are combined with the soft delete restriction
+ * of the current {@link SoftDeleteScope} mode (live rows only for {@code softDeleteBy}) and the update or delete
+ * predicate of {@link AccessGroupSecurityProvider}, if any. The method returns the number of updated rows as
+ * {@code int}, {@code long} or {@code void} and must be invoked in a transaction. Rows are updated in the database
+ * only: loaded entities are not refreshed, and {@link io.jmix.data.config.CascadeSoftDelete} associations and
+ * archive tables are not processed.
+ */
+public class JmixPartTreeUpdateQuery implements RepositoryQuery {
+
+    private static final Pattern UPDATE = Pattern.compile("^update(\\p{Lu}.*?)By(\\p{Lu}.*)$");
+    private static final Pattern SOFT_DELETE = Pattern.compile("^softDeleteBy(\\p{Lu}.*)$");
+
+    private static final Set<Part.Type> SUPPORTED_TYPES = EnumSet.of(Part.Type.BETWEEN, Part.Type.IS_NOT_NULL,
+            Part.Type.IS_NULL, Part.Type.LESS_THAN, Part.Type.LESS_THAN_EQUAL, Part.Type.GREATER_THAN,
+            Part.Type.GREATER_THAN_EQUAL, Part.Type.BEFORE, Part.Type.AFTER, Part.Type.NOT_LIKE, Part.Type.LIKE,
+            Part.Type.STARTING_WITH, Part.Type.ENDING_WITH, Part.Type.NOT_CONTAINING, Part.Type.CONTAINING,
+            Part.Type.NOT_IN, Part.Type.IN, Part.Type.TRUE, Part.Type.FALSE, Part.Type.NEGATING_SIMPLE_PROPERTY,
+            Part.Type.SIMPLE_PROPERTY);
+
+    private final JpaQueryMethod method;
+    private final EntityManager em;
+    private final EscapeCharacter escape;
+    private final Class<?> domainClass;
+    private final JpaParameters parameters;
+    private final PartTree tree;
+    // attributes set by update methods, empty for soft delete methods
+    private final List<PropertyPath> setProperties = new ArrayList<>();
+    private final String deletedDateAttribute;
+    private final boolean softDelete;
+    @Nullable
+    private final QueryResultCaches queryResultCaches;
+
+    public JmixPartTreeUpdateQuery(JpaQueryMethod method, EntityManager em, EscapeCharacter escape) {
+        this.method = method;
+        this.em = em;
+        this.escape = escape;
+        this.domainClass = method.getEntityInformation().getJavaType();
+        this.parameters = method.getParameters();
+        this.queryResultCaches = method instanceof JmixJpaQueryMethod
+                ? ((JmixJpaQueryMethod) method).getApplicationContext().getBeanProvider(QueryResultCaches.class).getIfAvailable()
+                : null;
+        this.deletedDateAttribute = EntityMetadataRegistry.getMetadata(domainClass).getDeletedDateAttribute();
+        if (deletedDateAttribute == null) {
+            throw new IllegalStateException("Entity " + domainClass.getName() + " should have a deleted date attribute");
+        }
+
+        Matcher softDeleteMatcher = SOFT_DELETE.matcher(method.getName());
+        Matcher updateMatcher = UPDATE.matcher(method.getName());
+        String criteria;
+        try {
+            if (softDeleteMatcher.matches()) {
+                softDelete = true;
+                criteria = softDeleteMatcher.group(1);
+            } else if (updateMatcher.matches()) {
+                softDelete = false;
+                for (String property : updateMatcher.group(1).split("And(?=\\p{Lu})")) {
+                    setProperties.add(PropertyPath.from(StringUtils.uncapitalize(property), domainClass));
+                }
+                criteria = updateMatcher.group(2);
+            } else {
+                throw new IllegalArgumentException("Method name should start with updateXBy or softDeleteBy");
+            }
+            tree = new PartTree("findBy" + criteria, domainClass);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(
+                    String.format("Failed to create query for method %s! %s", method, e.getMessage()), e);
+        }
+        validate();
+    }
+
+    /**
+     * @return whether the method name declares a derived update or soft delete
+     */
+    public static boolean isUpdateMethod(String methodName) {
+        return UPDATE.matcher(methodName).matches() || SOFT_DELETE.matcher(methodName).matches();
+    }
+
+    @Nullable
+    @Override
+    public Object execute(Object[] values) {
+        ParametersParameterAccessor accessor = new ParametersParameterAccessor(parameters, values);
+        Bindings bindings = new Bindings(em.getCriteriaBuilder(), accessor);
+        CriteriaUpdate<?> update = createUpdate(bindings);
+
+        Query query = em.createQuery(update);
+        bindings.bind(query);
+        int updated = query.executeUpdate();
+        if (queryResultCaches != null) {
+            queryResultCaches.invalidate(domainClass);
+        }
+
+        Class<?> returnType = method.getReturnedObjectType();
+        if (returnType == long.class || returnType == Long.class) {
+            return (long) updated;
+        }
+        return returnType == void.class || returnType == Void.class ? null : updated;
+    }
+
+    @Override
+    public JpaQueryMethod getQueryMethod() {
+        return method;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CriteriaUpdate<T> createUpdate(Bindings bindings) {
+        CriteriaBuilder builder = bindings.builder;
+        CriteriaUpdate<T> update = builder.createCriteriaUpdate((Class<T>) domainClass);
+        Root<T> root = update.from((Class<T>) domainClass);
+
+        Path<LocalDate> deletedDate = root.get(deletedDateAttribute);
+        if (softDelete) {
+            set(update, deletedDate, builder.literal(LocalDate.now()));
+        }
+        for (PropertyPath property : setProperties) {
+            Path<Object> path = toPath(root, property);
+            set(update, path, bindings.next((Class<Object>) path.getJavaType()));
+        }
+
+        List<Predicate> predicates = new ArrayList<>();
+        List<Predicate> or = new ArrayList<>();
+        for (PartTree.OrPart orPart : tree) {
+            List<Predicate> and = new ArrayList<>();
+            for (Part part : orPart) {
+                and.add(toPredicate(part, root, bindings));
+            }
+            or.add(builder.and(and.toArray(new Predicate[0])));
+        }
+        predicates.add(builder.or(or.toArray(new Predicate[0])));
+
+        DeletedRows deletedRows = softDelete ? DeletedRows.EXCLUDE : SoftDeleteScope.current();
+        if (deletedRows == DeletedRows.EXCLUDE) {
+            predicates.add(builder.isNull(deletedDate));
+        } else if (deletedRows == DeletedRows.ONLY) {
+            predicates.add(builder.isNotNull(deletedDate));
+        }
+        Predicate securityPredicate = getSecurityPredicate(root, builder);
+        if (securityPredicate != null) {
+            predicates.add(securityPredicate);
+        }
+        return update.where(predicates.toArray(new Predicate[0]));
+    }
+
+    private static <Y> void set(CriteriaUpdate<?> update, Path<Y> path, Expression<? extends Y> value) {
+        update.set(path, value);
+    }
+
+    @Nullable
+    private Predicate getSecurityPredicate(Root<?> root, CriteriaBuilder builder) {
+        if (!(method instanceof JmixJpaQueryMethod)) {
+            return null;
+        }
+        AccessGroupSecurityProvider securityProvider = ((JmixJpaQueryMethod) method).getApplicationContext()
+                .getBeanProvider(AccessGroupSecurityProvider.class).getIfAvailable();
+        if (securityProvider == null) {
+            return null;
+        }
+        return softDelete ? securityProvider.getDeletePredicate(root, builder) : securityProvider.getUpdatePredicate(root, builder);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate toPredicate(Part part, Root<?> root, Bindings bindings) {
+        CriteriaBuilder builder = bindings.builder;
+        Path<Object> path = toPath(root, part.getProperty());
+        Class<Object> type = (Class<Object>) path.getJavaType();
+        switch (part.getType()) {
+            case BETWEEN:
+                return builder.between((Expression<Comparable>) (Expression) path,
+                        (Expression<Comparable>) (Expression) bindings.next(type),
+                        (Expression<Comparable>) (Expression) bindings.next(type));
+            case AFTER:
+            case GREATER_THAN:
+                return builder.greaterThan((Expression<Comparable>) (Expression) path,
+                        (Expression<Comparable>) (Expression) bindings.next(type));
+            case GREATER_THAN_EQUAL:
+                return builder.greaterThanOrEqualTo((Expression<Comparable>) (Expression) path,
+                        (Expression<Comparable>) (Expression) bindings.next(type));
+            case BEFORE:
+            case LESS_THAN:
+                return builder.lessThan((Expression<Comparable>) (Expression) path,
+                        (Expression<Comparable>) (Expression) bindings.next(type));
+            case LESS_THAN_EQUAL:
+                return builder.lessThanOrEqualTo((Expression<Comparable>) (Expression) path,
+                        (Expression<Comparable>) (Expression) bindings.next(type));
+            case IS_NULL:
+                return builder.isNull(path);
+            case IS_NOT_NULL:
+                return builder.isNotNull(path);
+            case IN:
+                return path.in(bindings.next(Collection.class));
+            case NOT_IN:
+                return builder.not(path.in(bindings.next(Collection.class)));
+            case TRUE:
+                return builder.isTrue((Expression<Boolean>) (Expression) path);
+            case FALSE:
+                return builder.isFalse((Expression<Boolean>) (Expression) path);
+            case LIKE:
+            case STARTING_WITH:
+            case ENDING_WITH:
+            case CONTAINING:
+                return builder.like(upperIfIgnoreCase(part, (Expression<String>) (Expression) path),
+                        upperIfIgnoreCase(part, bindings.nextPattern(part.getType(), escape)), escape.getEscapeCharacter());
+            case NOT_LIKE:
+            case NOT_CONTAINING:
+                return builder.notLike(upperIfIgnoreCase(part, (Expression<String>) (Expression) path),
+                        upperIfIgnoreCase(part, bindings.nextPattern(part.getType(), escape)), escape.getEscapeCharacter());
+            case SIMPLE_PROPERTY:
+            case NEGATING_SIMPLE_PROPERTY:
+                boolean negated = part.getType() == Part.Type.NEGATING_SIMPLE_PROPERTY;
+                if (bindings.peek() == null) {
+                    bindings.skip();
+                    return negated ? builder.isNotNull(path) : builder.isNull(path);
+                }
+                Expression<Object> property = path;
+                Expression<Object> value = bindings.next(type);
+                if (isIgnoreCase(part) && String.class.equals(type)) {
+                    property = (Expression) builder.upper((Expression<String>) (Expression) property);
+                    value = (Expression) builder.upper((Expression<String>) (Expression) value);
+                }
+                return negated ? builder.notEqual(property, value) : builder.equal(property, value);
+            default:
+                throw new IllegalStateException("Unsupported keyword " + part.getType() + " in method " + method);
+        }
+    }
+
+    private Expression<String> upperIfIgnoreCase(Part part, Expression<String> expression) {
+        return isIgnoreCase(part) ? em.getCriteriaBuilder().upper(expression) : expression;
+    }
+
+    private static boolean isIgnoreCase(Part part) {
+        return part.shouldIgnoreCase() != Part.IgnoreCaseType.NEVER;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Path<Object> toPath(Root<?> root, PropertyPath property) {
+        Path<Object> path = root.get(property.getSegment());
+        return property.hasNext() ? toPath(path, property.next()) : path;
+    }
+
+    private static Path<Object> toPath(Path<Object> parent, PropertyPath property) {
+        Path<Object> path = parent.get(property.getSegment());
+        return property.hasNext() ? toPath(path, property.next()) : path;
+    }
+
+    private void validate() {
+        if (tree.getSort().isSorted() || tree.isDistinct()) {
+            throw new IllegalArgumentException("Derived update method " + method + " cannot sort or select distinct rows");
+        }
+        int arguments = setProperties.size();
+        for (Part part : tree.getParts()) {
+            if (!SUPPORTED_TYPES.contains(part.getType())) {
+                throw new IllegalArgumentException("Unsupported keyword " + part.getType() + " in method " + method);
+            }
+            arguments += part.getNumberOfArguments();
+        }
+        if (arguments != parameters.getBindableParameters().getNumberOfParameters()) {
+            throw new IllegalArgumentException(String.format("Method %s expects %d parameters", method, arguments));
+        }
+        Class<?> returnType = method.getReturnedObjectType();
+        if (returnType != int.class && returnType != Integer.class && returnType != long.class
+                && returnType != Long.class && returnType != void.class && returnType != Void.class) {
+            throw new IllegalArgumentException("Derived update method " + method + " should return int, long or void");
+        }
+    }
+
+    /**
+     * Parameter expressions created for the bindable method parameters, in order.
+     */
+    private static final class Bindings {
+
+        private final CriteriaBuilder builder;
+        private final ParametersParameterAccessor accessor;
+        private final Map<ParameterExpression<?>, Object> values = new LinkedHashMap<>();
+        private int index;
+
+        Bindings(CriteriaBuilder builder, ParametersParameterAccessor accessor) {
+            this.builder = builder;
+            this.accessor = accessor;
+        }
+
+        @Nullable
+        Object peek() {
+            return accessor.getBindableValue(index);
+        }
+
+        void skip() {
+            index++;
+        }
+
+        <T> ParameterExpression<T> next(Class<T> type) {
+            ParameterExpression<T> parameter = builder.parameter(type);
+            values.put(parameter, accessor.getBindableValue(index++));
+            return parameter;
+        }
+
+        ParameterExpression<String> nextPattern(Part.Type type, EscapeCharacter escape) {
+            Object value = accessor.getBindableValue(index++);
+            String text = value != null ? value.toString() : null;
+            if (text != null) {
+                switch (type) {
+                    case STARTING_WITH:
+                        text = escape.escape(text) + "%";
+                        break;
+                    case ENDING_WITH:
+                        text = "%" + escape.escape(text);
+                        break;
+                    case CONTAINING:
+                    case NOT_CONTAINING:
+                        text = "%" + escape.escape(text) + "%";
+                        break;
+                    default:
+                        break;
+                }
+            }
+            ParameterExpression<String> parameter = builder.parameter(String.class);
+            values.put(parameter, text);
+            return parameter;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        void bind(Query query) {
+            values.forEach((parameter, value) -> query.setParameter((ParameterExpression) parameter, value));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.springframework.data.jpa.repository.query;
+
+import io.jmix.data.repository.DeletedRows;
+import io.jmix.data.repository.SoftDeleteScope;
+
+import java.util.Arrays;
+
+/**
+ * Parameter values of a query method invocation and the {@link DeletedRows} mode of the calling thread.
+ */
+final class JmixQueryKey {
+
+    private final Object[] values;
+    private final DeletedRows deletedRows = SoftDeleteScope.current();
+
+    JmixQueryKey(Object[] values) {
+        this.values = values.clone();
+    }
+
+    /**
+     * @return key ignoring the paging and sorting parameters
+     */
+    static JmixQueryKey withoutPaging(Object[] values, JpaParameters parameters) {
+        JmixQueryKey key = new JmixQueryKey(values);
+        if (parameters.hasPageableParameter()) {
+            key.values[parameters.getPageableIndex()] = null;
+        }
+        if (parameters.hasSortParameter()) {
+            key.values[parameters.getSortIndex()] = null;
+        }
+        return key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof JmixQueryKey && deletedRows == ((JmixQueryKey) o).deletedRows
+                && Arrays.deepEquals(values, ((JmixQueryKey) o).values));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.deepHashCode(values) + deletedRows.hashCode();
+    }
+}
@@ -0,0 +1,191 @@
+package org.springframework.data.jpa.repository.query;
+
+import io.jmix.data.config.QueryLimits;
+import io.jmix.data.query.QueryLimitRegistry;
+import io.jmix.data.query.QueryLimitStatistics;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.repository.query.JmixJpaQueryMethod;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.Query;
+import javax.persistence.QueryTimeoutException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Enforces the {@link QueryLimits} of a query method.
+ */
+final class JmixQueryLimits {
+
+    private static final String TIMEOUT_HINT = "javax.persistence.query.timeout";
+
+    private final String name;
+    private final QueryLimits limits;
+    // page and slice queries derive the total and the next slice from the number of read rows
+    private final boolean paged;
+    @Nullable
+    private final Semaphore bulkhead;
+    private final QueryLimitStatistics statistics;
+
+    private JmixQueryLimits(String name, QueryLimits limits, boolean paged, @Nullable Semaphore bulkhead,
+                            QueryLimitStatistics statistics) {
+        this.name = name;
+        this.limits = limits;
+        this.paged = paged;
+        this.bulkhead = bulkhead;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return limits of a query method or its repository annotated with {@link QueryLimits}, or {@literal null}
+     */
+    @Nullable
+    static JmixQueryLimits create(JpaQueryMethod method) {
+        if (!(method instanceof JmixJpaQueryMethod)) {
+            return null;
+        }
+        JmixJpaQueryMethod jmixMethod = (JmixJpaQueryMethod) method;
+        Method javaMethod = jmixMethod.getMethod();
+        String name = ClassUtils.getShortName(jmixMethod.getRepositoryInterface()) + "." + javaMethod.getName();
+        boolean paged = method.isPageQuery() || method.isSliceQuery();
+
+        Class<?> repositoryInterface = jmixMethod.getRepositoryInterface();
+        QueryLimits limits = jmixMethod.findAnnotation(QueryLimits.class);
+        boolean repositoryLimits = limits == null;
+        if (repositoryLimits) {
+            limits = AnnotatedElementUtils.findMergedAnnotation(repositoryInterface, QueryLimits.class);
+            if (limits == null) {
+                return null;
+            }
+        }
+        QueryLimitRegistry registry = jmixMethod.getApplicationContext()
+                .getBeanProvider(QueryLimitRegistry.class).getIfAvailable();
+        if (registry == null) {
+            throw new IllegalStateException("@QueryLimits method " + name + " requires a QueryLimitRegistry bean");
+        }
+        Semaphore bulkhead = null;
+        if (limits.maxConcurrent() > 0) {
+            // repository level bulkheads are shared by the query methods of the repository
+            bulkhead = repositoryLimits
+                    ? registry.getRepositoryBulkhead(repositoryInterface, limits.maxConcurrent())
+                    : new Semaphore(limits.maxConcurrent(), true);
+        }
+        return new JmixQueryLimits(name, limits, paged, bulkhead, registry.register(name));
+    }
+
+    /**
+     * Sets the timeout hint rounded up to whole seconds and restricts the number of read rows to one more than the maximum, so that an
+     * overflow can be detected. Rows of page and slice queries are not restricted, their content is checked after
+     * the execution.
+     */
+    <T extends Query> T apply(T query) {
+        if (limits.timeoutMillis() > 0) {
+            query.setHint(TIMEOUT_HINT, getTimeoutHint(limits.timeoutMillis()));
+        }
+        if (!paged && limits.maxResults() > 0 && query.getMaxResults() > limits.maxResults()) {
+            query.setMaxResults(limits.maxResults() + 1);
+        }
+        return query;
+    }
+
+    /**
+     * JDBC statement timeouts are set in seconds, Hibernate rounds the hint to the nearest second, so that timeouts
+     * under 500 ms would turn into no timeout at all.
+     */
+    static int getTimeoutHint(int timeoutMillis) {
+        return (int) Math.min(Integer.MAX_VALUE, (timeoutMillis + 999L) / 1000 * 1000);
+    }
+
+    @Nullable
+    Object execute(Supplier<Object> query) {
+        acquire();
+        try {
+            statistics.executed();
+            return checkSize(query.get());
+        } catch (QueryTimeoutException e) {
+            statistics.timedOut();
+            throw e;
+        } finally {
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+        }
+    }
+
+    private void acquire() {
+        if (bulkhead == null) {
+            return;
+        }
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(limits.queueTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            statistics.rejected();
+            throw new TransientDataAccessResourceException("Interrupted while waiting to execute " + name, e);
+        }
+        if (!acquired) {
+            statistics.rejected();
+            throw new TransientDataAccessResourceException(String.format(
+                    "Query %s rejected: %d executions are running", name, limits.maxConcurrent()));
+        }
+    }
+
+    @Nullable
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object checkSize(@Nullable Object result) {
+        int maxResults = limits.maxResults();
+        if (maxResults <= 0) {
+            return result;
+        }
+        int size;
+        if (result instanceof Slice) {
+            size = ((Slice<?>) result).getNumberOfElements();
+        } else if (result instanceof Collection) {
+            size = ((Collection<?>) result).size();
+        } else {
+            return result;
+        }
+        if (size <= maxResults) {
+            return result;
+        }
+        if (limits.overflow() == QueryLimits.Overflow.FAIL) {
+            statistics.overflowed();
+            throw new IncorrectResultSizeDataAccessException(
+                    String.format("Query %s returned more than %d rows", name, maxResults), maxResults, size);
+        }
+        statistics.truncated();
+        if (result instanceof Page) {
+            Page<?> page = (Page<?>) result;
+            return new PageImpl(new ArrayList<>(page.getContent().subList(0, maxResults)), page.getPageable(),
+                    page.getTotalElements());
+        }
+        if (result instanceof Slice) {
+            Slice<?> slice = (Slice<?>) result;
+            return new SliceImpl(new ArrayList<>(slice.getContent().subList(0, maxResults)), slice.getPageable(), true);
+        }
+        if (result instanceof List) {
+            return new ArrayList<>(((List<?>) result).subList(0, maxResults));
+        }
+        List<Object> truncated = new ArrayList<>(maxResults);
+        for (Object element : (Collection<?>) result) {
+            if (truncated.size() == maxResults) {
+                break;
+            }
+            truncated.add(element);
+        }
+        return truncated;
+    }
+}
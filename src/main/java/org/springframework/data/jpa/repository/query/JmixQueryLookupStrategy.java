@@ -1,5 +1,7 @@
 package org.springframework.data.jpa.repository.query;
 
+import io.jmix.data.config.QueryBootstrapMode;
+import io.jmix.data.query.QueryBackgroundExecutor;
 import org.springframework.context.ApplicationContext;
 import org.springframework.data.jpa.provider.PersistenceProvider;
 import org.springframework.data.jpa.provider.QueryExtractor;
@@ -16,6 +18,7 @@ import org.springframework.util.Assert;
 
 import javax.persistence.EntityManager;
 import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
 
 public class JmixQueryLookupStrategy {
 
@@ -30,18 +33,22 @@ public class JmixQueryLookupStrategy {
         private final EntityManager em;
         private final QueryExtractor provider;
         protected final ApplicationContext applicationContext;
+        private final QueryBootstrapMode bootstrapMode;
 
         /**
          * Creates a new {@link AbstractQueryLookupStrategy}.
          *
          * @param em
          * @param extractor
+         * @param bootstrapMode
          */
-        public AbstractQueryLookupStrategy(EntityManager em, QueryExtractor extractor, ApplicationContext applicationContext) {
+        public AbstractQueryLookupStrategy(EntityManager em, QueryExtractor extractor, ApplicationContext applicationContext,
+                                           QueryBootstrapMode bootstrapMode) {
 
             this.em = em;
             this.provider = extractor;
             this.applicationContext = applicationContext;
+            this.bootstrapMode = bootstrapMode;
         }
 
         /*
@@ -51,7 +58,26 @@ public class JmixQueryLookupStrategy {
         @Override
         public final RepositoryQuery resolveQuery(Method method, RepositoryMetadata metadata, ProjectionFactory factory,
                                                   NamedQueries namedQueries) {
-            return resolveQuery(new JmixJpaQueryMethod(method, metadata, factory, provider, applicationContext, em), em, namedQueries);
+            JpaQueryMethod queryMethod = new JmixJpaQueryMethod(method, metadata, factory, provider, applicationContext, em);
+            // CompletableFuture methods are executed by io.jmix.data.repository.AsyncRepositoryExecutor
+            if (method.getReturnType() == CompletableFuture.class
+                    && (queryMethod.isStreamQuery() || queryMethod.isModifyingQuery() || queryMethod.isProcedureQuery())) {
+                throw new IllegalStateException("CompletableFuture is not supported by streaming, modifying or procedure method " + method);
+            }
+
+            if (bootstrapMode == QueryBootstrapMode.EAGER) {
+                return resolveQuery(queryMethod, em, namedQueries);
+            }
+
+            JmixLazyRepositoryQuery query = new JmixLazyRepositoryQuery(queryMethod, () -> resolveQuery(queryMethod, em, namedQueries));
+            if (bootstrapMode == QueryBootstrapMode.BACKGROUND) {
+                QueryBackgroundExecutor executor = applicationContext.getBeanProvider(QueryBackgroundExecutor.class).getIfAvailable();
+                // without the executor queries are created on the first invocation
+                if (executor != null) {
+                    query.initializeInBackground(executor::execute);
+                }
+            }
+            return query;
         }
 
         protected abstract RepositoryQuery resolveQuery(JpaQueryMethod method, EntityManager em, NamedQueries namedQueries);
@@ -68,9 +94,10 @@ public class JmixQueryLookupStrategy {
         private final PersistenceProvider persistenceProvider;
         private final EscapeCharacter escape;
 
-        public CreateQueryLookupStrategy(EntityManager em, QueryExtractor extractor, EscapeCharacter escape, ApplicationContext applicationContext) {
+        public CreateQueryLookupStrategy(EntityManager em, QueryExtractor extractor, EscapeCharacter escape, ApplicationContext applicationContext,
+                                         QueryBootstrapMode bootstrapMode) {
 
-            super(em, extractor, applicationContext);
+            super(em, extractor, applicationContext, bootstrapMode);
 
             this.persistenceProvider = PersistenceProvider.fromEntityManager(em);
             this.escape = escape;
@@ -78,6 +105,9 @@ public class JmixQueryLookupStrategy {
 
         @Override
         protected RepositoryQuery resolveQuery(JpaQueryMethod method, EntityManager em, NamedQueries namedQueries) {
+            if (JmixPartTreeUpdateQuery.isUpdateMethod(method.getName())) {
+                return new JmixPartTreeUpdateQuery(method, em, escape);
+            }
             return new JmixPartTreeQuery(method, em, persistenceProvider, escape);
         }
     }
@@ -100,11 +130,13 @@ public class JmixQueryLookupStrategy {
          * @param extractor
          * @param evaluationContextProvider
          * @param applicationContext
+         * @param bootstrapMode
          */
         public DeclaredQueryLookupStrategy(EntityManager em, QueryExtractor extractor,
-                                           QueryMethodEvaluationContextProvider evaluationContextProvider, ApplicationContext applicationContext) {
+                                           QueryMethodEvaluationContextProvider evaluationContextProvider, ApplicationContext applicationContext,
+                                           QueryBootstrapMode bootstrapMode) {
 
-            super(em, extractor, applicationContext);
+            super(em, extractor, applicationContext, bootstrapMode);
             this.evaluationContextProvider = evaluationContextProvider;
         }
 
@@ -164,11 +196,13 @@ public class JmixQueryLookupStrategy {
          * @param extractor
          * @param createStrategy
          * @param lookupStrategy
+         * @param bootstrapMode
          */
         public CreateIfNotFoundQueryLookupStrategy(EntityManager em, QueryExtractor extractor,
-                                                   CreateQueryLookupStrategy createStrategy, DeclaredQueryLookupStrategy lookupStrategy, ApplicationContext applicationContext) {
+                                                   CreateQueryLookupStrategy createStrategy, DeclaredQueryLookupStrategy lookupStrategy, ApplicationContext applicationContext,
+                                                   QueryBootstrapMode bootstrapMode) {
 
-            super(em, extractor, applicationContext);
+            super(em, extractor, applicationContext, bootstrapMode);
 
             this.createStrategy = createStrategy;
             this.lookupStrategy = lookupStrategy;
@@ -198,25 +232,28 @@ public class JmixQueryLookupStrategy {
      * @param evaluationContextProvider must not be {@literal null}.
      * @param escape
      * @param applicationContext
+     * @param bootstrapMode             must not be {@literal null}.
      * @return
      */
     public static QueryLookupStrategy create(EntityManager em, @Nullable QueryLookupStrategy.Key key, QueryExtractor extractor,
                                              QueryMethodEvaluationContextProvider evaluationContextProvider, EscapeCharacter escape
-            , ApplicationContext applicationContext) {
+            , ApplicationContext applicationContext, QueryBootstrapMode bootstrapMode) {
 
         Assert.notNull(em, "EntityManager must not be null!");
         Assert.notNull(extractor, "QueryExtractor must not be null!");
         Assert.notNull(evaluationContextProvider, "EvaluationContextProvider must not be null!");
+        Assert.notNull(bootstrapMode, "QueryBootstrapMode must not be null!");
 
         switch (key != null ? key : QueryLookupStrategy.Key.CREATE_IF_NOT_FOUND) {
             case CREATE:
-                return new CreateQueryLookupStrategy(em, extractor, escape, applicationContext);
+                return new CreateQueryLookupStrategy(em, extractor, escape, applicationContext, bootstrapMode);
             case USE_DECLARED_QUERY:
-                return new DeclaredQueryLookupStrategy(em, extractor, evaluationContextProvider, applicationContext);
+                return new DeclaredQueryLookupStrategy(em, extractor, evaluationContextProvider, applicationContext, bootstrapMode);
             case CREATE_IF_NOT_FOUND:
                 return new CreateIfNotFoundQueryLookupStrategy(em, extractor,
-                        new CreateQueryLookupStrategy(em, extractor, escape, applicationContext),
-                        new DeclaredQueryLookupStrategy(em, extractor, evaluationContextProvider, applicationContext), applicationContext);
+                        new CreateQueryLookupStrategy(em, extractor, escape, applicationContext, QueryBootstrapMode.EAGER),
+                        new DeclaredQueryLookupStrategy(em, extractor, evaluationContextProvider, applicationContext, QueryBootstrapMode.EAGER),
+                        applicationContext, bootstrapMode);
             default:
                 throw new IllegalArgumentException(String.format("Unsupported query lookup strategy %s!", key));
         }
@@ -0,0 +1,67 @@
+package org.springframework.data.jpa.repository.query;
+
+import io.jmix.data.config.CachedQuery;
+import io.jmix.data.query.QueryResultCache;
+import io.jmix.data.query.QueryResultCaches;
+import org.springframework.data.repository.query.JmixJpaQueryMethod;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.Method;
+import java.util.function.Supplier;
+
+/**
+ * Serves results of a {@link CachedQuery} method from its {@link QueryResultCache}.
+ */
+final class JmixResultCaching {
+
+    private final QueryResultCache cache;
+
+    private JmixResultCaching(QueryResultCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @return caching for a query method annotated with {@link CachedQuery} or {@literal null}
+     */
+    @Nullable
+    static JmixResultCaching create(JpaQueryMethod method) {
+        if (!(method instanceof JmixJpaQueryMethod)) {
+            return null;
+        }
+        CachedQuery annotation = ((JmixJpaQueryMethod) method).findAnnotation(CachedQuery.class);
+        if (annotation == null) {
+            return null;
+        }
+        Method javaMethod = ((JmixJpaQueryMethod) method).getMethod();
+        String name = ClassUtils.getShortName(javaMethod.getDeclaringClass()) + "." + javaMethod.getName();
+        if (method.isStreamQuery() || method.isModifyingQuery() || method.getLockModeType() != null) {
+            throw new IllegalStateException("@CachedQuery is not supported by streaming, modifying or locking method " + name);
+        }
+        QueryResultCaches caches = ((JmixJpaQueryMethod) method).getApplicationContext()
+                .getBeanProvider(QueryResultCaches.class).getIfAvailable();
+        if (caches == null) {
+            throw new IllegalStateException("@CachedQuery method " + name + " requires a QueryResultCaches bean");
+        }
+        QueryResultCache cache = new QueryResultCache(name, method.getEntityInformation().getJavaType(),
+                annotation.maxSize(), annotation.ttlSeconds());
+        caches.register(cache);
+        return new JmixResultCaching(cache);
+    }
+
+    /**
+     * @param emf factory of the EntityManager executing the query
+     */
+    @Nullable
+    Object execute(EntityManagerFactory emf, Object[] values, Supplier<Object> query) {
+        // results of read-write transactions may include uncommitted changes, and entities loaded by an EntityManager
+        // bound to the thread (read-only transaction, open EntityManager in view) stay managed by it
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.hasResource(emf)) {
+            return query.get();
+        }
+        return cache.get(new JmixQueryKey(values), query);
+    }
+}
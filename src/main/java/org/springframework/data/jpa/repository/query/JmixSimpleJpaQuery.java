@@ -13,15 +13,13 @@ public class JmixSimpleJpaQuery extends JmixAbstractStringBasedJpaQuery {
 
         super(method, em, queryString, evaluationContextProvider, parser);
 
-        validateQuery(getQuery().getQueryString(), "Validation failed for query for method %s!", method);
-
-        if (method.isPageQuery()) {
-            validateQuery(getCountQuery().getQueryString(),
-                    String.format("Count query validation failed for method %s!", method));
-        }
+        validateQueries(method);
     }
 
-    private void validateQuery(String query, String errorMessage, Object... arguments) {
+    /**
+     * Validates the query and, for page queries, the count query using a single validating {@link EntityManager}.
+     */
+    private void validateQueries(JpaQueryMethod method) {
 
         if (getQueryMethod().isProcedureQuery()) {
             return;
@@ -31,13 +29,11 @@ public class JmixSimpleJpaQuery extends JmixAbstractStringBasedJpaQuery {
 
         try {
             validatingEm = getEntityManager().getEntityManagerFactory().createEntityManager();
-            validatingEm.createQuery(query);
+            validateQuery(validatingEm, getQuery().getQueryString(), "Validation failed for query for method %s!", method);
 
-        } catch (RuntimeException e) {
-
-            // Needed as there's ambiguities in how an invalid query string shall be expressed by the persistence provider
-            // http://java.net/projects/jpa-spec/lists/jsr338-experts/archive/2012-07/message/17
-            throw new IllegalArgumentException(String.format(errorMessage, arguments), e);
+            if (method.isPageQuery()) {
+                validateQuery(validatingEm, getCountQuery().getQueryString(), "Count query validation failed for method %s!", method);
+            }
 
         } finally {
 
@@ -47,5 +43,18 @@ public class JmixSimpleJpaQuery extends JmixAbstractStringBasedJpaQuery {
         }
     }
 
+    private void validateQuery(EntityManager validatingEm, String query, String errorMessage, Object... arguments) {
+
+        try {
+            validatingEm.createQuery(query);
+
+        } catch (RuntimeException e) {
+
+            // Needed as there's ambiguities in how an invalid query string shall be expressed by the persistence provider
+            // http://java.net/projects/jpa-spec/lists/jsr338-experts/archive/2012-07/message/17
+            throw new IllegalArgumentException(String.format(errorMessage, arguments), e);
+        }
+    }
+
 
 }
@@ -0,0 +1,107 @@
+package org.springframework.data.jpa.repository.query;
+
+import io.jmix.data.config.SingleFlight;
+import org.springframework.data.repository.query.JmixJpaQueryMethod;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Shares one execution of a {@link SingleFlight} query method between concurrent invocations with equal parameters.
+ */
+final class JmixSingleFlight {
+
+    private final ConcurrentMap<JmixQueryKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private JmixSingleFlight() {
+    }
+
+    /**
+     * @return single flight for a query method annotated with {@link SingleFlight} or {@literal null}
+     */
+    @Nullable
+    static JmixSingleFlight create(JpaQueryMethod method) {
+        if (!(method instanceof JmixJpaQueryMethod)
+                || ((JmixJpaQueryMethod) method).findAnnotation(SingleFlight.class) == null) {
+            return null;
+        }
+        if (method.isStreamQuery() || method.isModifyingQuery() || method.getLockModeType() != null) {
+            throw new IllegalStateException("@SingleFlight is not supported by streaming, modifying or locking method "
+                    + ((JmixJpaQueryMethod) method).getMethod());
+        }
+        return new JmixSingleFlight();
+    }
+
+    /**
+     * @param emf factory of the EntityManager executing the query
+     */
+    @Nullable
+    Object execute(EntityManagerFactory emf, Object[] values, Supplier<Object> query) {
+        // entities loaded in a transaction or by an EntityManager bound to the thread (open EntityManager in view)
+        // are managed by that EntityManager and cannot be shared
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.hasResource(emf)) {
+            return query.get();
+        }
+        JmixQueryKey key = new JmixQueryKey(values);
+        CompletableFuture<Object> execution = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, execution);
+        if (leader != null) {
+            return await(leader);
+        }
+        try {
+            Object result = toReadOnly(query.get());
+            execution.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            execution.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, execution);
+        }
+    }
+
+    @Nullable
+    private static Object await(CompletableFuture<Object> leader) {
+        try {
+            return leader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the shared query execution", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Shared query execution failed", e.getCause());
+        }
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static Object toReadOnly(@Nullable Object result) {
+        if (result instanceof List) {
+            return Collections.unmodifiableList((List<Object>) result);
+        }
+        if (result instanceof Set) {
+            return Collections.unmodifiableSet((Set<Object>) result);
+        }
+        if (result instanceof Collection) {
+            return Collections.unmodifiableCollection((Collection<Object>) result);
+        }
+        // Page and Slice content is already unmodifiable
+        return result;
+    }
+}
@@ -0,0 +1,17 @@
+package org.springframework.data.jpa.repository.query;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Query that can be prepared by the persistence provider ahead of the first invocation, so that the provider caches
+ * the parsed query plan.
+ */
+public interface JmixWarmableQuery {
+
+    /**
+     * Creates, but does not execute, all provider queries used by this repository query.
+     *
+     * @param em entity manager used to create queries, must not be {@literal null}.
+     */
+    void warmUp(EntityManager em);
+}
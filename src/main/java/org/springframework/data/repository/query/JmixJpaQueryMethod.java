@@ -1,23 +1,35 @@
 package org.springframework.data.repository.query;
 
 import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.data.jpa.provider.QueryExtractor;
 import org.springframework.data.jpa.repository.query.JpaQueryMethod;
 import org.springframework.data.projection.ProjectionFactory;
 import org.springframework.data.repository.core.RepositoryMetadata;
+import org.springframework.lang.Nullable;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceUnitUtil;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 
 public class JmixJpaQueryMethod extends JpaQueryMethod {
 
     private ResultProcessor processor;
 
+    private final Method method;
+
+    private final ApplicationContext applicationContext;
+
+    private final Class<?> repositoryInterface;
+
     public JmixJpaQueryMethod(Method method, RepositoryMetadata metadata,
                               ProjectionFactory factory, QueryExtractor extractor,
                               ApplicationContext applicationContext, EntityManager em) {
         super(method, metadata, factory, extractor);
+        this.method = method;
+        this.applicationContext = applicationContext;
+        this.repositoryInterface = metadata.getRepositoryInterface();
         PersistenceUnitUtil persistenceUnitUtil = em.getEntityManagerFactory().getPersistenceUnitUtil();
         processor = new JmixResultProcessor(this, factory, applicationContext, persistenceUnitUtil);
     }
@@ -27,5 +39,25 @@ public class JmixJpaQueryMethod extends JpaQueryMethod {
         return processor;
     }
 
+    /**
+     * @return the annotation of the given type declared on the repository method or {@literal null}
+     */
+    @Nullable
+    public <A extends Annotation> A findAnnotation(Class<A> annotationType) {
+        return AnnotatedElementUtils.findMergedAnnotation(method, annotationType);
+    }
+
+    public ApplicationContext getApplicationContext() {
+        return applicationContext;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public Class<?> getRepositoryInterface() {
+        return repositoryInterface;
+    }
+
 
 }
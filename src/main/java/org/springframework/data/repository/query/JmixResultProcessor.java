@@ -1,16 +1,18 @@
 package org.springframework.data.repository.query;
 
-import io.jmix.data.config.ExternalReference;
-import org.apache.commons.lang3.reflect.FieldUtils;
+import io.jmix.data.metadata.EntityMetadata;
+import io.jmix.data.metadata.EntityMetadataRegistry;
+import io.jmix.data.metadata.ExternalReferenceDescriptor;
 import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.context.ApplicationContext;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.data.projection.ProjectionFactory;
 import org.springframework.data.repository.support.Repositories;
+import org.springframework.data.util.Lazy;
+import org.springframework.lang.Nullable;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.PersistenceUnitUtil;
-import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Arrays;
@@ -21,35 +23,72 @@ import java.util.stream.Collectors;
 
 public class JmixResultProcessor extends ResultProcessor {
 
-    private final Repositories repositories;
+    private final Lazy<Repositories> repositories;
     private final PersistenceUnitUtil persistenceUnitUtil;
+    private final ProjectionFactory factory;
+    private final boolean processingRequired;
 
 
     JmixResultProcessor(QueryMethod method, ProjectionFactory factory, ApplicationContext applicationContext, PersistenceUnitUtil persistenceUnitUtil) {
         super(method, factory);
-        this.repositories = new Repositories(applicationContext);
+        this.repositories = Lazy.of(() -> new Repositories(applicationContext));
         this.persistenceUnitUtil = persistenceUnitUtil;
+        this.factory = factory;
+        // closed projections without external references are read as tuples, there are no entities to process;
+        // neither are there for scalar results such as counts and exists checks
+        ReturnedType returnedType = getReturnedType();
+        boolean readsEntities = returnedType.isProjecting()
+                || returnedType.getDomainType().isAssignableFrom(returnedType.getReturnedType());
+        this.processingRequired = readsEntities
+                && (!returnedType.needsCustomConstruction() || exposesExternalReference(returnedType));
     }
 
     @Override
     public <T> T processResult(Object source) {
-        Object processed = processQueryResult(source);
+        Object processed = processingRequired ? processQueryResult(source) : source;
         return super.processResult(processed);
     }
 
     @Override
     public <T> T processResult(Object source, Converter<Object, Object> preparingConverter) {
-        Object processed = processQueryResult(source);
+        Object processed = processingRequired ? processQueryResult(source) : source;
         return super.processResult(processed, preparingConverter);
     }
 
+    /**
+     * Returns the type a derived query should read to produce the given returned type. A projection that exposes
+     * an {@link io.jmix.data.config.ExternalReference} attribute is read as the entity, since references are
+     * resolved on entities only. Other closed projections select just the projected columns.
+     */
+    public ReturnedType getQueryType(ReturnedType returnedType) {
+        if (returnedType.needsCustomConstruction() && exposesExternalReference(returnedType)) {
+            return ReturnedType.of(returnedType.getDomainType(), returnedType.getDomainType(), factory);
+        }
+        return returnedType;
+    }
+
+    private boolean exposesExternalReference(ReturnedType returnedType) {
+        List<ExternalReferenceDescriptor> references =
+                EntityMetadataRegistry.getMetadata(returnedType.getDomainType()).getExternalReferences();
+        for (String property : returnedType.getInputProperties()) {
+            for (ExternalReferenceDescriptor reference : references) {
+                if (property.equals(reference.getAttribute()) || property.startsWith(reference.getAttribute() + ".")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     @Override
     public ResultProcessor withDynamicProjection(ParameterAccessor accessor) {
         return super.withDynamicProjection(accessor);//TODO Might fail in some cases, should be overriden properly
     }
 
-    private Object processQueryResult(Object result) {
-        if (result instanceof Collection) {
+    private Object processQueryResult(@Nullable Object result) {
+        if (result == null) {
+            return null;
+        } else if (result instanceof Collection) {
             return ((Collection)result).stream().map(this::processSingleEntity).collect(Collectors.toList());
         } else if (result.getClass().isArray()) {
             return Arrays.stream((Object[])result).map(this::processSingleEntity).collect(Collectors.toList()).toArray();
@@ -60,30 +99,28 @@ public class JmixResultProcessor extends ResultProcessor {
 
     //TODO Works only for the 1st level entities - need to go through all entities in hierarchy
     private Object processSingleEntity(Object entity) {
-        List<Field> fields =
-                Arrays.stream(entity.getClass().getDeclaredFields())
-                        .filter(f -> f.isAnnotationPresent(ExternalReference.class)) //if the field is not transient, app startup will fail
-                        .collect(Collectors.toList());
-        if (fields.isEmpty()) {
+        EntityMetadata metadata = EntityMetadataRegistry.getMetadata(entity.getClass());
+        //if the field is not transient, app startup will fail
+        List<ExternalReferenceDescriptor> references = metadata.getExternalReferences();
+        if (references.isEmpty()) {
             return entity;
         }
-        fields.forEach(f -> setFieldValue(entity, f));
+        references.forEach(reference -> setFieldValue(entity, metadata, reference));
         return entity;
     }
 
-    private void setFieldValue(Object entity, Field valueField) {
-        ExternalReference annotation = valueField.getAnnotation(ExternalReference.class);
-        String referencedFieldName = annotation.references();
-        String idFieldName = annotation.keyAttribute();
+    private void setFieldValue(Object entity, EntityMetadata metadata, ExternalReferenceDescriptor reference) {
+        String referencedFieldName = reference.getReferences();
+        String idFieldName = reference.getKeyAttribute();
 
         if (!persistenceUnitUtil.isLoaded(entity, idFieldName)) {
             return;
         }
 
-        Class<?> valueFieldType = valueField.getType();
-        Object idValue = getId(entity, idFieldName);
+        Class<?> valueFieldType = reference.getType();
+        Object idValue = metadata.getValue(entity, idFieldName);
 
-        Object repository = repositories.getRepositoryFor(valueFieldType).orElseThrow(RuntimeException::new);
+        Object repository = repositories.get().getRepositoryFor(valueFieldType).orElseThrow(RuntimeException::new);
         String methodName = "findBy" + StringUtils.capitalize(referencedFieldName);
         Class<?>[] array = AopProxyUtils.proxiedUserInterfaces(repository);
         Method findById = Arrays.stream(array)
@@ -94,19 +131,10 @@ public class JmixResultProcessor extends ResultProcessor {
         try {
             Object values =  Proxy.getInvocationHandler(repository).invoke(repository, findById, new Object[]{idValue});
             Object realValue = (values instanceof Optional) ? ((Optional)values).orElse(null) : values;
-            FieldUtils.writeField(valueField, entity, realValue, true);
+            metadata.setValue(entity, reference.getAttribute(), realValue);
         } catch (Throwable throwable) {
             throw new IllegalArgumentException(throwable);
         }
     }
 
-    private Object getId(Object entity, String idFieldName) {
-        try {
-            Field declaredField = FieldUtils.getField(entity.getClass(), idFieldName, true);
-            return FieldUtils.readField(declaredField, entity);
-        } catch (IllegalAccessException | SecurityException e) {
-            throw new IllegalArgumentException(e);
-        }
-    }
-
 }
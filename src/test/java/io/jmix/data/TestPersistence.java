@@ -0,0 +1,46 @@
+package io.jmix.data;
+
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.sql.DataSource;
+import java.util.Properties;
+
+/**
+ * Embedded H2 databases and Hibernate persistence units of tests.
+ */
+public final class TestPersistence {
+
+    private TestPersistence() {
+    }
+
+    public static DataSource createDataSource() {
+        return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+    }
+
+    /**
+     * Creates a persistence unit of the given entity classes only, with the schema created on startup and
+     * statistics enabled.
+     */
+    public static LocalContainerEntityManagerFactoryBean createEntityManagerFactory(String name, DataSource dataSource,
+                                                                                    Class<?>... entityClasses) {
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setPersistenceUnitName(name);
+        factory.setDataSource(dataSource);
+        // builds a default persistence unit without scanning
+        factory.setPackagesToScan();
+        factory.setPersistenceUnitPostProcessors(unit -> {
+            for (Class<?> entityClass : entityClasses) {
+                unit.addManagedClassName(entityClass.getName());
+            }
+        });
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        Properties properties = new Properties();
+        properties.setProperty("hibernate.hbm2ddl.auto", "create");
+        properties.setProperty("hibernate.generate_statistics", "true");
+        factory.setJpaProperties(properties);
+        return factory;
+    }
+}
@@ -0,0 +1,68 @@
+package io.jmix.data.metadata;
+
+import io.jmix.data.config.DeletedDate;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EntityMetadataRegistryTest {
+
+    @Test
+    public void usesGeneratedMetadataOfExactClass() {
+        assertTrue(EntityMetadataRegistry.getMetadata(Parent.class) instanceof Parent_JmixMetadata);
+    }
+
+    @Test
+    public void scansSubclassWithoutGeneratedMetadata() {
+        EntityMetadata metadata = EntityMetadataRegistry.getMetadata(Child.class);
+
+        assertTrue(metadata instanceof ReflectionEntityMetadata);
+        assertEquals(Child.class, metadata.getEntityClass());
+        assertEquals("removedDate", metadata.getDeletedDateAttribute());
+    }
+
+    public static class Parent {
+    }
+
+    public static class Child extends Parent {
+
+        @DeletedDate
+        private LocalDate removedDate;
+    }
+
+    /**
+     * Stands for the class generated by the annotation processor.
+     */
+    public static class Parent_JmixMetadata implements EntityMetadata {
+
+        @Override
+        public Class<?> getEntityClass() {
+            return Parent.class;
+        }
+
+        @Override
+        public String getDeletedDateAttribute() {
+            return null;
+        }
+
+        @Override
+        public List<ExternalReferenceDescriptor> getExternalReferences() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Object getValue(Object entity, String attribute) {
+            throw new IllegalArgumentException("Attribute " + attribute + " is not available in generated metadata");
+        }
+
+        @Override
+        public void setValue(Object entity, String attribute, Object value) {
+            throw new IllegalArgumentException("Attribute " + attribute + " is not available in generated metadata");
+        }
+    }
+}
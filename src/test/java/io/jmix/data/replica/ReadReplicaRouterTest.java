@@ -0,0 +1,232 @@
+package io.jmix.data.replica;
+
+import io.jmix.data.config.CountStrategy;
+import io.jmix.data.config.DeletedDate;
+import io.jmix.data.query.QueryBackgroundExecutor;
+import io.jmix.data.repository.JmixRepositoryFactoryBean;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Id;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = ReadReplicaRouterTest.Config.class)
+@TestPropertySource(properties = {
+        "jmix.data.replica.entity-manager-factory=replicaEntityManagerFactory",
+        "jmix.data.replica.max-lag-millis=60000"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ReadReplicaRouterTest {
+
+    @Autowired
+    private ItemRepository repository;
+
+    @Autowired
+    private CountingDataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Before
+    public void setUp() {
+        new JdbcTemplate(primaryDataSource).update("insert into ITEM (ID, NAME) values (1, 'primary')");
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        replica.update("insert into ITEM (ID, NAME) values (1, 'replica')");
+        replica.update("insert into ITEM (ID, NAME) values (2, 'replica')");
+        primaryDataSource.connections.set(0);
+    }
+
+    @Test
+    public void readsFromReplicaWithoutPrimaryConnection() {
+        assertEquals("replica", repository.findById(1L).map(Item::getName).orElse(null));
+        assertEquals(2, repository.findAll().size());
+        assertEquals(2, repository.count());
+        assertTrue(repository.existsById(2L));
+
+        assertEquals(0, primaryDataSource.connections.get());
+    }
+
+    @Test
+    public void countsParallelPageOnReplica() {
+        Page<Item> page = repository.findByNameNotNull(PageRequest.of(0, 1));
+
+        assertEquals(names("replica"), names(page.getContent()));
+        assertEquals(2, page.getTotalElements());
+        assertEquals(0, primaryDataSource.connections.get());
+    }
+
+    @Test
+    public void readsFromPrimaryAfterWrite() {
+        repository.save(new Item(3L, "primary"));
+        assertTrue(primaryDataSource.connections.get() > 0);
+
+        assertEquals(names("primary", "primary"), names(repository.findAll()));
+        assertEquals("primary", repository.findById(1L).map(Item::getName).orElse(null));
+    }
+
+    @Test
+    public void readsFromPrimaryInTransaction() {
+        List<Item> items = new TransactionTemplate(transactionManager).execute(status -> repository.findAll());
+
+        assertEquals(names("primary"), names(items));
+    }
+
+    private static List<String> names(String... names) {
+        return Arrays.asList(names);
+    }
+
+    private static List<String> names(List<Item> items) {
+        return items.stream().map(Item::getName).collect(Collectors.toList());
+    }
+
+    @Entity(name = "Item")
+    public static class Item {
+
+        @Id
+        private Long id;
+
+        private String name;
+
+        @DeletedDate
+        private Date deletedDate;
+
+        public Item() {
+        }
+
+        Item(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public interface ItemRepository extends JpaRepository<Item, Long> {
+
+        @CountStrategy(parallel = true)
+        Page<Item> findByNameNotNull(Pageable pageable);
+    }
+
+    static class CountingDataSource extends DelegatingDataSource {
+
+        final AtomicInteger connections = new AtomicInteger();
+
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            connections.incrementAndGet();
+            return super.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            connections.incrementAndGet();
+            return super.getConnection(username, password);
+        }
+    }
+
+    @Configuration
+    @EnableJpaRepositories(basePackageClasses = ReadReplicaRouterTest.class, considerNestedRepositories = true,
+            repositoryFactoryBeanClass = JmixRepositoryFactoryBean.class)
+    static class Config {
+
+        @Bean
+        CountingDataSource primaryDataSource() {
+            return new CountingDataSource(new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build());
+        }
+
+        @Bean
+        DataSource replicaDataSource() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        }
+
+        @Bean
+        @Primary
+        LocalContainerEntityManagerFactoryBean entityManagerFactory() {
+            return createEntityManagerFactory("primary", primaryDataSource());
+        }
+
+        @Bean
+        LocalContainerEntityManagerFactoryBean replicaEntityManagerFactory() {
+            return createEntityManagerFactory("replica", replicaDataSource());
+        }
+
+        @Bean
+        JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+
+        @Bean
+        ReadReplicaRouter readReplicaRouter() {
+            return new ReadReplicaRouter();
+        }
+
+        @Bean
+        QueryBackgroundExecutor queryBackgroundExecutor() {
+            return new QueryBackgroundExecutor();
+        }
+
+        private static LocalContainerEntityManagerFactoryBean createEntityManagerFactory(String name, DataSource dataSource) {
+            LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+            factory.setPersistenceUnitName(name);
+            factory.setDataSource(dataSource);
+            factory.setPackagesToScan(ReadReplicaRouterTest.class.getPackage().getName());
+            factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+            Properties properties = new Properties();
+            properties.setProperty("hibernate.hbm2ddl.auto", "create");
+            factory.setJpaProperties(properties);
+            return factory;
+        }
+    }
+}
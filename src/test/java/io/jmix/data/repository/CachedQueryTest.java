@@ -0,0 +1,163 @@
+package io.jmix.data.repository;
+
+import io.jmix.data.TestPersistence;
+import io.jmix.data.config.CachedQuery;
+import io.jmix.data.config.DeletedDate;
+import io.jmix.data.query.QueryResultCache;
+import io.jmix.data.query.QueryResultCaches;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Id;
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = CachedQueryTest.Config.class)
+public class CachedQueryTest {
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Autowired
+    private QueryResultCaches caches;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbc;
+
+    private QueryResultCache cache;
+
+    private long hits;
+
+    private long misses;
+
+    @Before
+    public void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("delete from PRODUCT");
+        jdbc.update("insert into PRODUCT (ID, NAME) values (1, 'a')");
+        jdbc.update("insert into PRODUCT (ID, NAME) values (2, 'a')");
+        assertEquals(1, caches.getCaches().size());
+        cache = caches.getCaches().get(0);
+        cache.invalidate();
+        hits = cache.getHitCount();
+        misses = cache.getMissCount();
+    }
+
+    @Test
+    public void cachesResultsPerParameters() {
+        assertEquals(Arrays.asList(1L, 2L), ids(repository.findByNameOrderById("a")));
+        // not visible through the cache, the repository did not change the table
+        jdbc.update("insert into PRODUCT (ID, NAME) values (3, 'a')");
+
+        assertEquals(Arrays.asList(1L, 2L), ids(repository.findByNameOrderById("a")));
+        assertEquals(Arrays.asList(), ids(repository.findByNameOrderById("b")));
+        assertEquals(1, cache.getHitCount() - hits);
+        assertEquals(2, cache.getMissCount() - misses);
+    }
+
+    @Test
+    public void invalidatedAfterSave() {
+        assertEquals(Arrays.asList(1L, 2L), ids(repository.findByNameOrderById("a")));
+
+        Product product = new Product();
+        product.id = 3L;
+        product.name = "a";
+        repository.save(product);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(repository.findByNameOrderById("a")));
+        assertEquals(0, cache.getHitCount() - hits);
+    }
+
+    @Test
+    public void invalidatedAfterSoftDelete() {
+        assertEquals(Arrays.asList(1L, 2L), ids(repository.findByNameOrderById("a")));
+
+        repository.deleteById(1L);
+
+        assertEquals(Arrays.asList(2L), ids(repository.findByNameOrderById("a")));
+        assertEquals(0, cache.getHitCount() - hits);
+    }
+
+    @Test
+    public void destroyDropsCaches() {
+        QueryResultCaches registry = new QueryResultCaches();
+        registry.register(new QueryResultCache("test", Product.class, 10, 60));
+
+        registry.destroy();
+
+        assertTrue(registry.getCaches().isEmpty());
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(product -> product.id).collect(Collectors.toList());
+    }
+
+    @Entity(name = "Product")
+    public static class Product {
+
+        @Id
+        private Long id;
+
+        private String name;
+
+        @DeletedDate
+        private LocalDate deletedDate;
+    }
+
+    public interface ProductRepository extends JpaRepository<Product, Long>, SoftDeleteRepository<Product, Long> {
+
+        @CachedQuery
+        List<Product> findByNameOrderById(String name);
+    }
+
+    @Configuration
+    @EnableJpaRepositories(basePackageClasses = CachedQueryTest.class, considerNestedRepositories = true,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ProductRepository.class),
+            repositoryFactoryBeanClass = JmixRepositoryFactoryBean.class)
+    static class Config {
+
+        @Bean
+        DataSource dataSource() {
+            return TestPersistence.createDataSource();
+        }
+
+        @Bean
+        LocalContainerEntityManagerFactoryBean entityManagerFactory() {
+            return TestPersistence.createEntityManagerFactory("cached", dataSource(), Product.class);
+        }
+
+        @Bean
+        JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+
+        @Bean
+        QueryResultCaches queryResultCaches() {
+            return new QueryResultCaches();
+        }
+    }
+}
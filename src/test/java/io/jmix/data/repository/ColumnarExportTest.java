@@ -0,0 +1,301 @@
+package io.jmix.data.repository;
+
+import io.jmix.data.TestPersistence;
+import io.jmix.data.config.DeletedDate;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Id;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Reads exported files as described in {@link ColumnarExportRepository}.
+ */
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = ColumnarExportTest.Config.class)
+public class ColumnarExportTest {
+
+    private static final UUID UUID_VALUE = UUID.fromString("0f8fad5b-d9cb-469f-a165-70867728950e");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired
+    private RecordRepository repository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbc;
+
+    @Before
+    public void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("delete from RECORD");
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        jdbc.update("insert into RECORD (ID, NAME, AMOUNT, ACTIVE, DAY, TIMEOFDAY, STAMP, CREATED, CODE, DATA) "
+                        + "values (1, 'first', 12.35, true, DATE '2020-02-29', TIME '13:45:30', "
+                        + "TIMESTAMP '2020-02-29 13:45:30.123456', TIMESTAMP '2020-02-29 13:45:30.5', ?, X'01FF')",
+                UUID_VALUE);
+        jdbc.update("insert into RECORD (ID) values (2)");
+        jdbc.update("insert into RECORD (ID, NAME, DELETEDDATE) values (3, 'deleted', CURRENT_TIMESTAMP)");
+        Path target = folder.getRoot().toPath().resolve("records.jmxc");
+
+        ColumnarExportResult result = repository.exportColumnar(null, target);
+
+        assertEquals(2, result.getRowCount());
+        assertEquals(1, result.getBatchCount());
+        assertEquals(Files.size(target), result.getBytesWritten());
+
+        ExportFile file = ExportFile.read(target);
+        assertEquals(Arrays.asList("id", "active", "amount", "code", "created", "data", "day", "deletedDate", "name",
+                "stamp", "timeOfDay"), new ArrayList<>(file.types.keySet()));
+        assertEquals(Arrays.asList("LONG", "BOOLEAN", "DECIMAL", "UUID", "TIMESTAMP", "BYTES", "DATE", "TIMESTAMP",
+                "STRING", "TIMESTAMP", "TIME"), new ArrayList<>(file.types.values()));
+        assertEquals(1, file.batchRowCounts.size());
+
+        assertEquals(Arrays.asList(1L, 2L), file.columns.get("id"));
+        assertEquals(Arrays.asList(true, null), file.columns.get("active"));
+        assertEquals(Arrays.asList(new BigDecimal("12.35"), null), file.columns.get("amount"));
+        assertEquals(Arrays.asList(UUID_VALUE, null), file.columns.get("code"));
+        assertEquals(Arrays.asList(LocalDateTime.of(2020, 2, 29, 13, 45, 30, 500_000_000).toInstant(ZoneOffset.UTC), null),
+                file.columns.get("created"));
+        assertArrayEquals(new byte[]{1, (byte) 0xFF}, (byte[]) file.columns.get("data").get(0));
+        assertNull(file.columns.get("data").get(1));
+        assertEquals(Arrays.asList(LocalDate.of(2020, 2, 29), null), file.columns.get("day"));
+        assertEquals(Arrays.asList(null, null), file.columns.get("deletedDate"));
+        assertEquals(Arrays.asList("first", null), file.columns.get("name"));
+        assertEquals(Arrays.asList(Timestamp.valueOf("2020-02-29 13:45:30.123456").toInstant(), null),
+                file.columns.get("stamp"));
+        assertEquals(Arrays.asList(LocalTime.of(13, 45, 30), null), file.columns.get("timeOfDay"));
+    }
+
+    @Test
+    public void splitsRowsIntoBatches() throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= 4097; id++) {
+            rows.add(new Object[]{id, id % 2 == 0 ? null : "name " + id});
+        }
+        jdbc.batchUpdate("insert into RECORD (ID, NAME) values (?, ?)", rows);
+        Path target = folder.getRoot().toPath().resolve("records.jmxc");
+
+        ColumnarExportResult result = repository.exportColumnar(null, Arrays.asList("name", "id"), target);
+
+        assertEquals(4097, result.getRowCount());
+        assertEquals(2, result.getBatchCount());
+
+        ExportFile file = ExportFile.read(target);
+        assertEquals(Arrays.asList("name", "id"), new ArrayList<>(file.types.keySet()));
+        assertEquals(Arrays.asList(4096, 1), file.batchRowCounts);
+        List<Object> ids = file.columns.get("id");
+        List<Object> names = file.columns.get("name");
+        assertEquals(4097, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            long id = (Long) ids.get(i);
+            assertEquals(id % 2 == 0 ? null : "name " + id, names.get(i));
+        }
+    }
+
+    private static final class ExportFile {
+
+        final Map<String, String> types = new LinkedHashMap<>();
+        final Map<String, List<Object>> columns = new LinkedHashMap<>();
+        final List<Integer> batchRowCounts = new ArrayList<>();
+
+        static ExportFile read(Path path) throws IOException {
+            ExportFile file = new ExportFile();
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+                byte[] magic = new byte[4];
+                in.readFully(magic);
+                assertArrayEquals(new byte[]{'J', 'M', 'X', 'C'}, magic);
+                assertEquals(1, in.readByte());
+                int columnCount = in.readInt();
+                for (int i = 0; i < columnCount; i++) {
+                    String name = in.readUTF();
+                    file.types.put(name, in.readUTF());
+                    file.columns.put(name, new ArrayList<>());
+                }
+                int rows;
+                while ((rows = in.readInt()) > 0) {
+                    byte[] raw = new byte[in.readInt()];
+                    byte[] compressed = new byte[in.readInt()];
+                    in.readFully(compressed);
+                    inflate(compressed, raw);
+                    file.batchRowCounts.add(rows);
+                    file.readBatch(new DataInputStream(new ByteArrayInputStream(raw)), rows);
+                }
+                // lengths of the end marker
+                assertEquals(0, in.readInt());
+                assertEquals(0, in.readInt());
+                assertEquals(-1, in.read());
+            }
+            return file;
+        }
+
+        private void readBatch(DataInputStream in, int rows) throws IOException {
+            for (Map.Entry<String, String> column : types.entrySet()) {
+                byte[] nulls = new byte[(rows + 7) / 8];
+                in.readFully(nulls);
+                List<Object> values = columns.get(column.getKey());
+                for (int row = 0; row < rows; row++) {
+                    boolean isNull = (nulls[row / 8] & (1 << (row % 8))) != 0;
+                    values.add(isNull ? null : readValue(in, column.getValue()));
+                }
+            }
+            assertEquals(-1, in.read());
+        }
+
+        private static Object readValue(DataInputStream in, String type) throws IOException {
+            switch (type) {
+                case "LONG":
+                    return in.readLong();
+                case "BOOLEAN":
+                    return in.readBoolean();
+                case "STRING":
+                    return new String(readBytes(in), StandardCharsets.UTF_8);
+                case "BYTES":
+                    return readBytes(in);
+                case "DECIMAL":
+                    int scale = in.readInt();
+                    return new BigDecimal(new BigInteger(readBytes(in)), scale);
+                case "DATE":
+                    return LocalDate.ofEpochDay(in.readLong());
+                case "TIME":
+                    return LocalTime.ofNanoOfDay(in.readLong());
+                case "TIMESTAMP":
+                    long seconds = in.readLong();
+                    return Instant.ofEpochSecond(seconds, in.readInt());
+                case "UUID":
+                    long most = in.readLong();
+                    return new UUID(most, in.readLong());
+                default:
+                    throw new AssertionError("Unexpected column type " + type);
+            }
+        }
+
+        private static byte[] readBytes(DataInputStream in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return bytes;
+        }
+
+        private static void inflate(byte[] compressed, byte[] raw) {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                assertEquals(raw.length, inflater.inflate(raw));
+                assertEquals(0, inflater.getRemaining());
+            } catch (DataFormatException e) {
+                throw new AssertionError(e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    @Entity(name = "Record")
+    public static class Record {
+
+        @Id
+        private Long id;
+
+        private String name;
+
+        private BigDecimal amount;
+
+        private Boolean active;
+
+        @Temporal(TemporalType.DATE)
+        private Date day;
+
+        @Temporal(TemporalType.TIME)
+        private Date timeOfDay;
+
+        @Temporal(TemporalType.TIMESTAMP)
+        private Date stamp;
+
+        private LocalDateTime created;
+
+        private UUID code;
+
+        private byte[] data;
+
+        @DeletedDate
+        private Date deletedDate;
+    }
+
+    public interface RecordRepository extends JpaRepository<Record, Long>, SoftDeleteRepository<Record, Long>,
+            ColumnarExportRepository<Record> {
+    }
+
+    @Configuration
+    @EnableJpaRepositories(basePackageClasses = ColumnarExportTest.class, considerNestedRepositories = true,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = RecordRepository.class),
+            repositoryFactoryBeanClass = JmixRepositoryFactoryBean.class)
+    static class Config {
+
+        @Bean
+        DataSource dataSource() {
+            return TestPersistence.createDataSource();
+        }
+
+        @Bean
+        LocalContainerEntityManagerFactoryBean entityManagerFactory() {
+            return TestPersistence.createEntityManagerFactory("export", dataSource(), Record.class);
+        }
+
+        @Bean
+        JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+    }
+}
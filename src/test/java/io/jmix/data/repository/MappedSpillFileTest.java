@@ -0,0 +1,97 @@
+package io.jmix.data.repository;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MappedSpillFileTest {
+
+    private static final int SEGMENT_SIZE = 16;
+
+    @Test
+    public void roundTripAcrossSegments() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        Random random = new Random(42);
+        // shorter, equal to and longer than a segment, and records ending exactly at a segment boundary
+        for (int length : new int[]{0, 1, 12, 3, 16, 40, 0, 7, 12, 0, 33}) {
+            byte[] record = new byte[length];
+            random.nextBytes(record);
+            records.add(record);
+        }
+
+        try (MappedSpillFile file = MappedSpillFile.create("test", SEGMENT_SIZE)) {
+            long expectedSize = 0;
+            for (byte[] record : records) {
+                file.writeRecord(record, record.length);
+                expectedSize += Integer.BYTES + record.length;
+            }
+            assertEquals(records.size(), file.getRecordCount());
+            assertEquals(expectedSize, file.getSize());
+
+            assertRecords(records, file.reader());
+            // readers are independent
+            assertRecords(records, file.reader());
+        }
+    }
+
+    @Test
+    public void emptyRecordEndingTheLastSegment() throws IOException {
+        try (MappedSpillFile file = MappedSpillFile.create("test", SEGMENT_SIZE)) {
+            file.writeRecord(new byte[8], 8);
+            file.writeRecord(new byte[0], 0);
+            assertEquals(SEGMENT_SIZE, file.getSize());
+
+            MappedSpillFile.Reader reader = file.reader();
+            assertEquals(8, reader.next().remaining());
+            assertEquals(0, reader.next().remaining());
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    public void writesOnlyTheGivenLength() throws IOException {
+        try (MappedSpillFile file = MappedSpillFile.create("test", SEGMENT_SIZE)) {
+            file.writeRecord(new byte[]{1, 2, 3, 4, 5}, 2);
+
+            MappedSpillFile.Reader reader = file.reader();
+            assertArrayEquals(new byte[]{1, 2}, toArray(reader.next()));
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    public void deletesFileOnClose() throws IOException {
+        MappedSpillFile file = MappedSpillFile.create("test", SEGMENT_SIZE);
+        Path path = file.getPath();
+        file.writeRecord(new byte[20], 20);
+        assertTrue(Files.exists(path));
+
+        file.close();
+        assertFalse(Files.exists(path));
+    }
+
+    private static void assertRecords(List<byte[]> expected, MappedSpillFile.Reader reader) throws IOException {
+        for (byte[] record : expected) {
+            assertTrue(reader.hasNext());
+            assertArrayEquals(record, toArray(reader.next()));
+        }
+        assertFalse(reader.hasNext());
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
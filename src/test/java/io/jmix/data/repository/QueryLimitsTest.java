@@ -0,0 +1,224 @@
+package io.jmix.data.repository;
+
+import io.jmix.data.TestPersistence;
+import io.jmix.data.config.DeletedDate;
+import io.jmix.data.config.QueryLimits;
+import io.jmix.data.query.QueryLimitRegistry;
+import io.jmix.data.query.QueryLimitStatistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Id;
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = QueryLimitsTest.Config.class)
+public class QueryLimitsTest {
+
+    private static final AtomicInteger EXECUTIONS = new AtomicInteger();
+
+    private static volatile CountDownLatch gate = new CountDownLatch(0);
+
+    @Autowired
+    private TicketRepository repository;
+
+    @Autowired
+    private QueryLimitRegistry registry;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private ExecutorService executor;
+
+    /**
+     * H2 function holding the execution of a query until the gate is opened.
+     */
+    public static int gate(long id) throws InterruptedException {
+        EXECUTIONS.incrementAndGet();
+        gate.await(10, TimeUnit.SECONDS);
+        return 1;
+    }
+
+    @Before
+    public void setUp() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("delete from TICKET");
+        jdbc.update("insert into TICKET (ID, STATUS) values (1, 'open')");
+        jdbc.update("insert into TICKET (ID, STATUS) values (2, 'open')");
+        jdbc.update("insert into TICKET (ID, STATUS) values (3, 'open')");
+        jdbc.update("insert into TICKET (ID, STATUS) values (4, 'closed')");
+        EXECUTIONS.set(0);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        gate.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void rejectsExecutionsOverMaxConcurrent() throws Exception {
+        gate = new CountDownLatch(1);
+        Future<List<Ticket>> running = executor.submit(() -> repository.findGated(1L));
+        awaitExecutions();
+
+        try {
+            repository.findGated(1L);
+            fail("Expected rejection");
+        } catch (TransientDataAccessResourceException e) {
+            assertTrue(e.getMessage().contains("TicketRepository.findGated"));
+        }
+        assertEquals(1, getStatistics("findGated").getRejectionCount());
+
+        gate.countDown();
+        assertEquals(Arrays.asList(1L), ids(running.get(10, TimeUnit.SECONDS)));
+        // the slot is released after the execution
+        assertEquals(Arrays.asList(1L), ids(repository.findGated(1L)));
+        assertEquals(1, getStatistics("findGated").getRejectionCount());
+        // the rejected invocation is not an execution
+        assertEquals(2, getStatistics("findGated").getExecutionCount());
+    }
+
+    @Test
+    public void failsWhenRowsExceedMaxResults() {
+        try {
+            repository.findByStatusOrderById("open");
+            fail("Expected overflow");
+        } catch (IncorrectResultSizeDataAccessException e) {
+            assertEquals(2, e.getExpectedSize());
+            // one row more than the maximum is read to detect the overflow
+            assertEquals(3, e.getActualSize());
+        }
+        assertEquals(1, getStatistics("findByStatusOrderById").getOverflowCount());
+        assertEquals(Arrays.asList(4L), ids(repository.findByStatusOrderById("closed")));
+    }
+
+    @Test
+    public void truncatesRowsOverMaxResults() {
+        assertEquals(Arrays.asList(1L, 2L), ids(repository.findByStatusNotNullOrderById()));
+        assertEquals(1, getStatistics("findByStatusNotNullOrderById").getTruncationCount());
+    }
+
+    @Test
+    public void destroyDropsStatisticsAndBulkheads() {
+        QueryLimitRegistry limits = new QueryLimitRegistry();
+        limits.register("test");
+        limits.getRepositoryBulkhead(TicketRepository.class, 1).acquireUninterruptibly();
+
+        limits.destroy();
+
+        assertTrue(limits.getStatistics().isEmpty());
+        assertEquals(1, limits.getRepositoryBulkhead(TicketRepository.class, 1).availablePermits());
+    }
+
+    /**
+     * Statistics are registered when a query method is invoked for the first time.
+     */
+    private QueryLimitStatistics getStatistics(String method) {
+        String name = "TicketRepository." + method;
+        return registry.getStatistics().stream()
+                .filter(statistics -> statistics.getName().endsWith(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No statistics of " + name));
+    }
+
+    private static void awaitExecutions() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (EXECUTIONS.get() == 0) {
+            assertTrue("Query was not executed", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static List<Long> ids(List<Ticket> tickets) {
+        return tickets.stream().map(ticket -> ticket.id).collect(Collectors.toList());
+    }
+
+    @Entity(name = "Ticket")
+    public static class Ticket {
+
+        @Id
+        private Long id;
+
+        private String status;
+
+        @DeletedDate
+        private LocalDate deletedDate;
+    }
+
+    public interface TicketRepository extends JpaRepository<Ticket, Long> {
+
+        @QueryLimits(maxConcurrent = 1, queueTimeoutMillis = 0)
+        @Query(value = "select * from TICKET where ID = ?1 and GATE(ID) = 1", nativeQuery = true)
+        List<Ticket> findGated(Long id);
+
+        @QueryLimits(maxResults = 2)
+        List<Ticket> findByStatusOrderById(String status);
+
+        @QueryLimits(maxResults = 2, overflow = QueryLimits.Overflow.TRUNCATE)
+        List<Ticket> findByStatusNotNullOrderById();
+    }
+
+    @Configuration
+    @EnableJpaRepositories(basePackageClasses = QueryLimitsTest.class, considerNestedRepositories = true,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = TicketRepository.class),
+            repositoryFactoryBeanClass = JmixRepositoryFactoryBean.class)
+    static class Config {
+
+        @Bean
+        DataSource dataSource() {
+            DataSource dataSource = TestPersistence.createDataSource();
+            new JdbcTemplate(dataSource).execute("create alias GATE for \"" + QueryLimitsTest.class.getName() + ".gate\"");
+            return dataSource;
+        }
+
+        @Bean
+        LocalContainerEntityManagerFactoryBean entityManagerFactory() {
+            return TestPersistence.createEntityManagerFactory("limits", dataSource(), Ticket.class);
+        }
+
+        @Bean
+        JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+
+        @Bean
+        QueryLimitRegistry queryLimitRegistry() {
+            return new QueryLimitRegistry();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package io.jmix.data.repository;
+
+import io.jmix.data.TestPersistence;
+import io.jmix.data.config.DeletedDate;
+import io.jmix.data.config.SingleFlight;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Id;
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Holds the database execution of a {@link SingleFlight} method in the GATE function until concurrent callers of the
+ * method are waiting for it.
+ */
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = SingleFlightTest.Config.class)
+public class SingleFlightTest {
+
+    private static final int CALLERS = 4;
+
+    private static final AtomicInteger EXECUTIONS = new AtomicInteger();
+
+    private static volatile CountDownLatch gate = new CountDownLatch(0);
+
+    @Autowired
+    private ArticleRepository repository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private ExecutorService executor;
+
+    /**
+     * H2 function evaluated once per execution of the query over the single matching row.
+     */
+    public static int gate(long id) throws InterruptedException {
+        EXECUTIONS.incrementAndGet();
+        gate.await(10, TimeUnit.SECONDS);
+        return 1;
+    }
+
+    @Before
+    public void setUp() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("delete from ARTICLE");
+        jdbc.update("insert into ARTICLE (ID, TITLE) values (1, 'a')");
+        EXECUTIONS.set(0);
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @After
+    public void tearDown() {
+        gate.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        gate = new CountDownLatch(1);
+        List<Thread> followers = new ArrayList<>();
+        List<Future<List<Article>>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> {
+                if (EXECUTIONS.get() > 0) {
+                    synchronized (followers) {
+                        followers.add(Thread.currentThread());
+                    }
+                }
+                return repository.findGated("a");
+            }));
+            if (i == 0) {
+                awaitExecutions(1);
+            }
+        }
+        awaitFollowers(followers, CALLERS - 1);
+
+        gate.countDown();
+
+        List<Article> first = results.get(0).get(10, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(1L), ids(first));
+        for (Future<List<Article>> result : results) {
+            assertSame(first, result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, EXECUTIONS.get());
+    }
+
+    @Test
+    public void differentParametersAndLaterCallsExecuteAgain() throws Exception {
+        assertEquals(Arrays.asList(1L), ids(repository.findGated("a")));
+        assertEquals(Arrays.asList(1L), ids(repository.findGated("a")));
+        assertEquals(2, EXECUTIONS.get());
+
+        gate = new CountDownLatch(1);
+        Future<List<Article>> a = executor.submit(() -> repository.findGated("a"));
+        awaitExecutions(3);
+        // returns while the execution for "a" is held, H2 filters the row by title before calling GATE
+        assertEquals(Arrays.asList(), ids(repository.findGated("b")));
+        gate.countDown();
+
+        assertEquals(Arrays.asList(1L), ids(a.get(10, TimeUnit.SECONDS)));
+        assertEquals(3, EXECUTIONS.get());
+    }
+
+    private static void awaitExecutions(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (EXECUTIONS.get() < count) {
+            assertTrue("Query was not executed", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void awaitFollowers(List<Thread> followers, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (waitingForLeader(followers) < count) {
+            assertTrue("Callers did not join the execution", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static int waitingForLeader(List<Thread> followers) {
+        synchronized (followers) {
+            int count = 0;
+            for (Thread follower : followers) {
+                boolean waiting = Arrays.stream(follower.getStackTrace())
+                        .anyMatch(element -> element.getClassName().endsWith("JmixSingleFlight")
+                                && element.getMethodName().equals("await"));
+                if (waiting) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    private static List<Long> ids(List<Article> articles) {
+        return articles.stream().map(article -> article.id).collect(Collectors.toList());
+    }
+
+    @Entity(name = "Article")
+    public static class Article {
+
+        @Id
+        private Long id;
+
+        private String title;
+
+        @DeletedDate
+        private LocalDate deletedDate;
+    }
+
+    public interface ArticleRepository extends JpaRepository<Article, Long> {
+
+        @SingleFlight
+        @Query(value = "select * from ARTICLE where GATE(ID) = 1 and TITLE = ?1", nativeQuery = true)
+        List<Article> findGated(String title);
+    }
+
+    @Configuration
+    @EnableJpaRepositories(basePackageClasses = SingleFlightTest.class, considerNestedRepositories = true,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ArticleRepository.class),
+            repositoryFactoryBeanClass = JmixRepositoryFactoryBean.class)
+    static class Config {
+
+        @Bean
+        DataSource dataSource() {
+            DataSource dataSource = TestPersistence.createDataSource();
+            new JdbcTemplate(dataSource).execute("create alias GATE for \"" + SingleFlightTest.class.getName() + ".gate\"");
+            return dataSource;
+        }
+
+        @Bean
+        LocalContainerEntityManagerFactoryBean entityManagerFactory() {
+            return TestPersistence.createEntityManagerFactory("flight", dataSource(), Article.class);
+        }
+
+        @Bean
+        JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package io.jmix.data.repository;
+
+import io.jmix.data.TestPersistence;
+import io.jmix.data.config.DeletedDate;
+import io.jmix.data.config.SoftDeleteArchive;
+import io.jmix.data.purge.SoftDeletePurger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Id;
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = SoftDeleteArchivePurgeTest.Config.class)
+public class SoftDeleteArchivePurgeTest {
+
+    @Autowired
+    private MemoRepository repository;
+
+    @Autowired
+    private SoftDeletePurger purger;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbc;
+
+    @Before
+    public void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table if not exists MEMO_ARCHIVE as select * from MEMO where 1 = 0");
+        jdbc.update("delete from MEMO");
+        jdbc.update("delete from MEMO_ARCHIVE");
+        for (long id = 1; id <= 3; id++) {
+            jdbc.update("insert into MEMO (ID, TEXT) values (?, ?)", id, "memo " + id);
+        }
+        // soft deleted rows are moved to the archive by the deleting transaction
+        repository.deleteAll(repository.findAllById(Arrays.asList(1L, 2L)));
+        setArchivedDeletedDate(1L, LocalDate.now().minusDays(40));
+    }
+
+    @Test
+    public void purgesArchivedRowsDeletedBeforeDate() {
+        assertEquals(Arrays.asList(1L, 2L), archivedIds());
+
+        assertEquals(1, repository.purgeArchivedBefore(LocalDate.now().minusDays(30), 10));
+
+        assertEquals(Arrays.asList(2L), archivedIds());
+        assertEquals(0, repository.purgeArchivedBefore(LocalDate.now().minusDays(30), 10));
+    }
+
+    @Test
+    public void purgesArchivedRowsInChunks() {
+        setArchivedDeletedDate(2L, LocalDate.now().minusDays(35));
+
+        assertEquals(1, repository.purgeArchivedBefore(LocalDate.now().minusDays(30), 1));
+        assertEquals(Arrays.asList(2L), archivedIds());
+        assertEquals(1, repository.purgeArchivedBefore(LocalDate.now().minusDays(30), 1));
+        assertEquals(Arrays.asList(), archivedIds());
+    }
+
+    @Test
+    public void purgerPurgesArchiveAfterRetention() {
+        purger.purge();
+
+        assertEquals(Arrays.asList(2L), archivedIds());
+        assertEquals(Arrays.asList(3L), jdbc.queryForList("select ID from MEMO", Long.class));
+        assertEquals(1, purger.getStatistics().get(Memo.class).getLastRunPurged());
+    }
+
+    private void setArchivedDeletedDate(long id, LocalDate deletedDate) {
+        jdbc.update("update MEMO_ARCHIVE set DELETEDDATE = ? where ID = ?", Date.valueOf(deletedDate), id);
+    }
+
+    private List<Long> archivedIds() {
+        return jdbc.queryForList("select ID from MEMO_ARCHIVE order by ID", Long.class);
+    }
+
+    @Entity(name = "Memo")
+    @SoftDeleteArchive
+    public static class Memo {
+
+        @Id
+        private Long id;
+
+        private String text;
+
+        @DeletedDate
+        private LocalDate deletedDate;
+    }
+
+    public interface MemoRepository extends JpaRepository<Memo, Long>, SoftDeleteRepository<Memo, Long>,
+            ArchiveRepository<Memo, Long> {
+    }
+
+    @Configuration
+    @EnableJpaRepositories(basePackageClasses = SoftDeleteArchivePurgeTest.class, considerNestedRepositories = true,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = MemoRepository.class),
+            repositoryFactoryBeanClass = JmixRepositoryFactoryBean.class)
+    static class Config {
+
+        @Bean
+        DataSource dataSource() {
+            return TestPersistence.createDataSource();
+        }
+
+        @Bean
+        LocalContainerEntityManagerFactoryBean entityManagerFactory() {
+            return TestPersistence.createEntityManagerFactory("archive-purge", dataSource(), Memo.class);
+        }
+
+        @Bean
+        JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+
+        @Bean
+        SoftDeletePurger softDeletePurger() {
+            return new SoftDeletePurger();
+        }
+    }
+}
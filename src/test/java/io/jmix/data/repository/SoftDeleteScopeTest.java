@@ -0,0 +1,183 @@
+package io.jmix.data.repository;
+
+import io.jmix.data.TestPersistence;
+import io.jmix.data.config.DeletedDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Id;
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = SoftDeleteScopeTest.Config.class)
+public class SoftDeleteScopeTest {
+
+    @Autowired
+    private TaskRepository repository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Before
+    public void setUp() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("delete from TASK");
+        jdbc.update("insert into TASK (ID, NAME) values (1, 'a')");
+        jdbc.update("insert into TASK (ID, NAME, DELETEDDATE) values (2, 'a', CURRENT_DATE)");
+        jdbc.update("insert into TASK (ID, NAME) values (3, 'b')");
+    }
+
+    @Test
+    public void excludesDeletedRowsByDefault() {
+        assertEquals(Arrays.asList(1L, 3L), ids(repository.findAll()));
+        assertEquals(Arrays.asList(1L), ids(repository.findByNameOrderById("a")));
+        assertFalse(repository.findById(2L).isPresent());
+        assertFalse(repository.existsById(2L));
+        assertEquals(2, repository.count());
+        assertEquals(1, repository.countByName("a"));
+    }
+
+    @Test
+    public void withDeletedViewIncludesDeletedRows() {
+        TaskRepository withDeleted = SoftDeleteScope.withDeleted(repository);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(withDeleted.findAll()));
+        assertEquals(Arrays.asList(1L, 2L), ids(withDeleted.findByNameOrderById("a")));
+        assertTrue(withDeleted.findById(2L).isPresent());
+        assertTrue(withDeleted.existsById(2L));
+        assertEquals(3, withDeleted.count());
+        assertEquals(2, withDeleted.countByName("a"));
+        // the view does not change the mode of the repository
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    public void onlyDeletedViewReturnsDeletedRows() {
+        TaskRepository onlyDeleted = SoftDeleteScope.onlyDeleted(repository);
+
+        assertEquals(Arrays.asList(2L), ids(onlyDeleted.findAll()));
+        assertEquals(Arrays.asList(2L), ids(onlyDeleted.findByNameOrderById("a")));
+        assertFalse(onlyDeleted.findById(1L).isPresent());
+        assertTrue(onlyDeleted.findById(2L).isPresent());
+        assertEquals(1, onlyDeleted.count());
+        assertEquals(1, onlyDeleted.countByName("a"));
+    }
+
+    @Test
+    public void nestedScopesRestoreTheOuterMode() {
+        long counts = SoftDeleteScope.call(DeletedRows.INCLUDE, () -> {
+            long only = SoftDeleteScope.call(DeletedRows.ONLY, repository::count);
+            assertEquals(DeletedRows.INCLUDE, SoftDeleteScope.current());
+            return only * 10 + repository.count();
+        });
+
+        assertEquals(13, counts);
+        assertEquals(DeletedRows.EXCLUDE, SoftDeleteScope.current());
+    }
+
+    @Test
+    public void concurrentReadsKeepTheirModes() throws Exception {
+        TaskRepository withDeleted = SoftDeleteScope.withDeleted(repository);
+        TaskRepository onlyDeleted = SoftDeleteScope.onlyDeleted(repository);
+        List<Callable<Void>> readers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int reader = i;
+            readers.add(() -> {
+                for (int j = 0; j < 50; j++) {
+                    switch ((reader + j) % 3) {
+                        case 0:
+                            assertEquals(Arrays.asList(1L), ids(repository.findByNameOrderById("a")));
+                            break;
+                        case 1:
+                            assertEquals(Arrays.asList(1L, 2L), ids(withDeleted.findByNameOrderById("a")));
+                            break;
+                        default:
+                            assertEquals(Arrays.asList(2L), ids(onlyDeleted.findByNameOrderById("a")));
+                    }
+                }
+                return null;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(readers.size());
+        try {
+            for (Future<Void> result : executor.invokeAll(readers)) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<Long> ids(List<Task> tasks) {
+        return tasks.stream().map(task -> task.id).sorted().collect(Collectors.toList());
+    }
+
+    @Entity(name = "Task")
+    public static class Task {
+
+        @Id
+        private Long id;
+
+        private String name;
+
+        @DeletedDate
+        private LocalDate deletedDate;
+    }
+
+    public interface TaskRepository extends JpaRepository<Task, Long>, SoftDeleteRepository<Task, Long> {
+
+        List<Task> findByNameOrderById(String name);
+
+        long countByName(String name);
+    }
+
+    @Configuration
+    @EnableJpaRepositories(basePackageClasses = SoftDeleteScopeTest.class, considerNestedRepositories = true,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = TaskRepository.class),
+            repositoryFactoryBeanClass = JmixRepositoryFactoryBean.class)
+    static class Config {
+
+        @Bean
+        DataSource dataSource() {
+            return TestPersistence.createDataSource();
+        }
+
+        @Bean
+        LocalContainerEntityManagerFactoryBean entityManagerFactory() {
+            return TestPersistence.createEntityManagerFactory("scope", dataSource(), Task.class);
+        }
+
+        @Bean
+        JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+    }
+}
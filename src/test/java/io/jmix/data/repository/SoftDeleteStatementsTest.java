@@ -0,0 +1,178 @@
+package io.jmix.data.repository;
+
+import io.jmix.data.TestPersistence;
+import io.jmix.data.config.DeletedDate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Id;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the statements and the persistence context size per soft deleted entity with Hibernate statistics.
+ */
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = SoftDeleteStatementsTest.Config.class)
+public class SoftDeleteStatementsTest {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    @Autowired
+    private NoteRepository repository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        new JdbcTemplate(dataSource).update("delete from NOTE");
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void detachedEntityIsLoadedOnce() {
+        insert(1);
+        Note note = repository.findById(1L).orElseThrow(IllegalStateException::new);
+        statistics.clear();
+
+        repository.delete(note);
+
+        // merge and update
+        assertEquals(1, statistics.getEntityLoadCount());
+        assertEquals(1, statistics.getEntityUpdateCount());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertTrue(note.deletedDate != null);
+    }
+
+    @Test
+    public void managedEntityIsUpdatedInPlace() {
+        insert(1);
+        new TransactionTemplate(transactionManager).execute(status -> {
+            Note note = em.find(Note.class, 1L);
+            statistics.clear();
+
+            repository.delete(note);
+            em.flush();
+
+            assertEquals(0, statistics.getEntityLoadCount());
+            assertEquals(1, statistics.getEntityUpdateCount());
+            assertEquals(1, statistics.getPrepareStatementCount());
+            return null;
+        });
+    }
+
+    @Test
+    public void deleteByIdLoadsOnce() {
+        insert(1);
+        statistics.clear();
+
+        repository.deleteById(1L);
+
+        assertEquals(1, statistics.getEntityLoadCount());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void detachedEntitiesDoNotAccumulate() {
+        int count = 2 * CHUNK_SIZE + CHUNK_SIZE / 2;
+        insert(count);
+        List<Note> notes = repository.findAll();
+        statistics.clear();
+
+        int managed = new TransactionTemplate(transactionManager).execute(status -> {
+            repository.deleteAll(notes);
+            return em.unwrap(Session.class).getStatistics().getEntityCount();
+        });
+
+        // a select and an update per entity, only the copies merged since the last flush stay managed
+        assertEquals(count, statistics.getEntityLoadCount());
+        assertEquals(count, statistics.getEntityUpdateCount());
+        assertEquals(2 * count, statistics.getPrepareStatementCount());
+        assertEquals(CHUNK_SIZE / 2, managed);
+        assertEquals(0, repository.count());
+    }
+
+    private void insert(int count) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            rows.add(new Object[]{id, "note " + id});
+        }
+        new JdbcTemplate(dataSource).batchUpdate("insert into NOTE (ID, TEXT) values (?, ?)", rows);
+    }
+
+    @Entity(name = "Note")
+    public static class Note {
+
+        @Id
+        private Long id;
+
+        private String text;
+
+        @DeletedDate
+        private LocalDate deletedDate;
+    }
+
+    public interface NoteRepository extends JpaRepository<Note, Long>, SoftDeleteRepository<Note, Long> {
+    }
+
+    @Configuration
+    @EnableJpaRepositories(basePackageClasses = SoftDeleteStatementsTest.class, considerNestedRepositories = true,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = NoteRepository.class),
+            repositoryFactoryBeanClass = JmixRepositoryFactoryBean.class)
+    static class Config {
+
+        @Bean
+        DataSource dataSource() {
+            return TestPersistence.createDataSource();
+        }
+
+        @Bean
+        LocalContainerEntityManagerFactoryBean entityManagerFactory() {
+            return TestPersistence.createEntityManagerFactory("statements", dataSource(), Note.class);
+        }
+
+        @Bean
+        JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+    }
+}
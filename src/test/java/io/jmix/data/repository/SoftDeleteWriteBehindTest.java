@@ -0,0 +1,175 @@
+package io.jmix.data.repository;
+
+import io.jmix.data.TestPersistence;
+import io.jmix.data.config.DeletedDate;
+import io.jmix.data.config.SoftDeleteWriteBehind;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Id;
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = SoftDeleteWriteBehindTest.Config.class)
+public class SoftDeleteWriteBehindTest {
+
+    private static final String DELETED_IDS = "select ID from EVENT where DELETEDDATE is not null order by ID";
+
+    @Autowired
+    private EventRepository repository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbc;
+
+    @Before
+    public void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("delete from EVENT");
+        for (long id = 1; id <= 4; id++) {
+            jdbc.update("insert into EVENT (ID, NAME) values (?, ?)", id, "event " + id);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        jdbc.execute("alter table EVENT drop constraint if exists NOT_DELETED");
+        repository.flushPendingDeletes();
+    }
+
+    @Test
+    public void deletesAreWrittenOnFlush() {
+        repository.deleteById(1L);
+
+        // excluded by the repository right away, written to the table on flush
+        assertFalse(repository.findById(1L).isPresent());
+        assertEquals(3, repository.count());
+        assertTrue(deletedIds().isEmpty());
+
+        assertEquals(1, repository.flushPendingDeletes());
+
+        assertEquals(Arrays.asList(1L), deletedIds());
+        assertFalse(repository.findById(1L).isPresent());
+        assertEquals(0, repository.flushPendingDeletes());
+    }
+
+    @Test
+    public void failedFlushRequeuesIds() {
+        jdbc.execute("alter table EVENT add constraint NOT_DELETED check (DELETEDDATE is null)");
+        repository.deleteById(1L);
+
+        try {
+            repository.flushPendingDeletes();
+            fail("Expected flush failure");
+        } catch (DataAccessException e) {
+            // rejected by the constraint
+        }
+        assertFalse(repository.findById(1L).isPresent());
+        assertTrue(deletedIds().isEmpty());
+
+        jdbc.execute("alter table EVENT drop constraint NOT_DELETED");
+        assertEquals(1, repository.flushPendingDeletes());
+        assertEquals(Arrays.asList(1L), deletedIds());
+    }
+
+    @Test
+    public void fullQueueRejectsDeletesWhileFlushesFail() {
+        jdbc.execute("alter table EVENT add constraint NOT_DELETED check (DELETEDDATE is null)");
+        // the second delete fills the queue and starts a background flush, which fails and requeues the ids
+        repository.deleteById(1L);
+        repository.deleteById(2L);
+
+        try {
+            repository.deleteById(3L);
+            fail("Expected the failure of the flush making room for the delete");
+        } catch (DataAccessException e) {
+            // rejected by the constraint
+        }
+        assertTrue(repository.findById(3L).isPresent());
+        assertEquals(2, repository.count());
+
+        jdbc.execute("alter table EVENT drop constraint NOT_DELETED");
+        repository.deleteById(3L);
+        repository.flushPendingDeletes();
+        assertEquals(Arrays.asList(1L, 2L, 3L), deletedIds());
+    }
+
+    @Test(expected = EmptyResultDataAccessException.class)
+    public void deleteOfMissingIdFails() {
+        repository.deleteById(99L);
+    }
+
+    private List<Long> deletedIds() {
+        return jdbc.queryForList(DELETED_IDS, Long.class);
+    }
+
+    @Entity(name = "Event")
+    @SoftDeleteWriteBehind(capacity = 2, flushIntervalMillis = 3_600_000)
+    public static class Event {
+
+        @Id
+        private Long id;
+
+        private String name;
+
+        @DeletedDate
+        private LocalDate deletedDate;
+    }
+
+    public interface EventRepository extends JpaRepository<Event, Long>, SoftDeleteRepository<Event, Long> {
+    }
+
+    @Configuration
+    @EnableJpaRepositories(basePackageClasses = SoftDeleteWriteBehindTest.class, considerNestedRepositories = true,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = EventRepository.class),
+            repositoryFactoryBeanClass = JmixRepositoryFactoryBean.class)
+    static class Config {
+
+        @Bean
+        DataSource dataSource() {
+            return TestPersistence.createDataSource();
+        }
+
+        @Bean
+        LocalContainerEntityManagerFactoryBean entityManagerFactory() {
+            return TestPersistence.createEntityManagerFactory("write-behind", dataSource(), Event.class);
+        }
+
+        @Bean
+        JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+
+        @Bean
+        SoftDeleteFlushScheduler softDeleteFlushScheduler() {
+            return new SoftDeleteFlushScheduler();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.springframework.data.jpa.repository.query;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class JmixQueryLimitsTest {
+
+    @Test
+    public void timeoutHintIsRoundedUpToSeconds() {
+        // Hibernate rounds the hint to the nearest second, 300 ms must not turn into no timeout
+        assertEquals(1000, JmixQueryLimits.getTimeoutHint(1));
+        assertEquals(1000, JmixQueryLimits.getTimeoutHint(300));
+        assertEquals(1000, JmixQueryLimits.getTimeoutHint(1000));
+        assertEquals(2000, JmixQueryLimits.getTimeoutHint(1001));
+        assertEquals(2000, JmixQueryLimits.getTimeoutHint(1400));
+        assertEquals(Integer.MAX_VALUE, JmixQueryLimits.getTimeoutHint(Integer.MAX_VALUE));
+    }
+}